@@ -0,0 +1,42 @@
+package chess;
+
+import java.nio.ByteBuffer;
+
+// Reusable CharSequence view of ASCII bytes in a ByteBuffer, so FEN and PGN text can be parsed
+// straight out of a file buffer without decoding it into Strings
+public final class AsciiView implements CharSequence {
+	private ByteBuffer buffer;
+	private int start, end;
+
+	// Points the view at buffer[start, end) and returns it
+	public AsciiView set(ByteBuffer buffer, int start, int end) {
+		this.buffer = buffer;
+		this.start = start;
+		this.end = end;
+		return this;
+	}
+
+	@Override
+	public int length() {
+		return end - start;
+	}
+
+	@Override
+	public char charAt(int index) {
+		return (char) (buffer.get(start + index) & 0xFF);
+	}
+
+	@Override
+	public CharSequence subSequence(int from, int to) {
+		return toString().substring(from, to);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder s = new StringBuilder(length());
+		for (int i = start; i < end; i++)
+			s.append((char) (buffer.get(i) & 0xFF));
+		return s.toString();
+	}
+
+}
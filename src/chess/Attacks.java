@@ -0,0 +1,76 @@
+package chess;
+
+// Precomputed attack tables for the bitboard position.
+// Squares are indexed row * 8 + col, so row 0 (black's back rank) holds bits 0-7.
+public final class Attacks {
+
+	public static final long[] KNIGHT = new long[64];         // Knight jumps from each square
+	public static final long[] KING = new long[64];           // King steps from each square
+	public static final long[][] PAWN = new long[2][64];      // Squares a pawn of each color attacks
+
+	// Ray directions as (row, col) steps; directions 0-3 walk toward higher square indices
+	private static final int[] RAY_ROW = { 1, 0, 1, 1, -1, 0, -1, -1 };
+	private static final int[] RAY_COL = { 0, 1, 1, -1, 0, -1, -1, 1 };
+	private static final long[][] RAYS = new long[8][64];     // Empty-board ray from each square in each direction
+
+	static {
+		int[][] knightSteps = { { -2, -1 }, { -2, 1 }, { -1, -2 }, { -1, 2 }, { 1, -2 }, { 1, 2 }, { 2, -1 }, { 2, 1 } };
+		for (int sq = 0; sq < 64; sq++) {
+			int row = sq >> 3, col = sq & 7;
+			for (int[] step : knightSteps)
+				KNIGHT[sq] |= bit(row + step[0], col + step[1]);
+			for (int dr = -1; dr <= 1; dr++)
+				for (int dc = -1; dc <= 1; dc++)
+					if (dr != 0 || dc != 0)
+						KING[sq] |= bit(row + dr, col + dc);
+
+			// White pawns move toward row 0, black pawns toward row 7
+			PAWN[Position.WHITE][sq] = bit(row - 1, col - 1) | bit(row - 1, col + 1);
+			PAWN[Position.BLACK][sq] = bit(row + 1, col - 1) | bit(row + 1, col + 1);
+
+			for (int dir = 0; dir < 8; dir++) {
+				int r = row + RAY_ROW[dir], c = col + RAY_COL[dir];
+				while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+					RAYS[dir][sq] |= 1L << (r * 8 + c);
+					r += RAY_ROW[dir];
+					c += RAY_COL[dir];
+				}
+			}
+		}
+	}
+
+	private Attacks() {
+	}
+
+	// Returns the mask for (row, col), or 0 if the square is off the board
+	private static long bit(int row, int col) {
+		return row >= 0 && row < 8 && col >= 0 && col < 8 ? 1L << (row * 8 + col) : 0L;
+	}
+
+	// Squares a rook on sq attacks given the occupied squares
+	public static long rook(int sq, long occupied) {
+		return ray(0, sq, occupied) | ray(1, sq, occupied) | ray(4, sq, occupied) | ray(5, sq, occupied);
+	}
+
+	// Squares a bishop on sq attacks given the occupied squares
+	public static long bishop(int sq, long occupied) {
+		return ray(2, sq, occupied) | ray(3, sq, occupied) | ray(6, sq, occupied) | ray(7, sq, occupied);
+	}
+
+	// Squares a queen on sq attacks given the occupied squares
+	public static long queen(int sq, long occupied) {
+		return rook(sq, occupied) | bishop(sq, occupied);
+	}
+
+	// Walks one ray until the first blocker (inclusive) and cuts off everything behind it
+	private static long ray(int dir, int sq, long occupied) {
+		long attacks = RAYS[dir][sq];
+		long blockers = attacks & occupied;
+		if (blockers != 0) {
+			int blocker = dir < 4 ? Long.numberOfTrailingZeros(blockers) : 63 - Long.numberOfLeadingZeros(blockers);
+			attacks ^= RAYS[dir][blocker];
+		}
+		return attacks;
+	}
+
+}
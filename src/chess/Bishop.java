@@ -11,26 +11,7 @@ public class Bishop extends Piece {
 	@Override
 	public boolean isValidMove(int destRow, int destCol, Piece[][] board) {
 		// Bishops move diagonally, so the absolute difference between rows and cols must be equal
-		if (Math.abs(destRow - row) != Math.abs(destCol - col))
-			return false;
-
-		// Determine the direction of movement (positive or negative step)
-		int stepRow = Integer.compare(destRow, row);
-		int stepCol = Integer.compare(destCol, col);
-
-		// Start checking from the square next to the current position
-		int r = row + stepRow, c = col + stepCol;
-		
-		// Check that all squares between current position and destination are empty
-		while (r != destRow && c != destCol) {
-			if (board[r][c] != null)
-				return false;
-			r += stepRow;
-			c += stepCol;
-		}
-
-		// Return true if the destination is empty or contains an opponent’s piece
-		return board[destRow][destCol] == null || board[destRow][destCol].isWhite() != isWhite;
+		return isDiagonalLine(destRow, destCol) && isSlideClear(row, col, destRow, destCol, isWhite, board);
 	}
 
 	// Returns the Unicode symbol for the bishop 
@@ -39,4 +20,10 @@ public class Bishop extends Piece {
 		return isWhite ? "\u2657" : "\u265D";
 	}
 
+	// Returns the bitboard piece type for the bishop
+	@Override
+	public int getType() {
+		return Position.BISHOP;
+	}
+
 }
@@ -1,16 +1,34 @@
 package chess;
 
-import javax.swing.JOptionPane;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import chess.metrics.Metrics;
 
 public class Board {
 	private Piece[][] board;    // 2D array representing the 8x8 chess board
 	private boolean whiteTurn;  // true if it's white's turn, false if black's
+	private final Position position = new Position();  // Bitboard mirror of board[][] used for rules queries
+	private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];  // Reused by move lookups and mate detection
+
+	// Piece-object side of the undo stack; the primitive state lives in Position's own undo stack
+	private Piece[] movedPieces = new Piece[256];
+	private Piece[] capturedPieces = new Piece[256];
+	private Piece[] promotedPieces = new Piece[256];  // Cached promotion pieces, reused per ply
+	private boolean[] hadMoved = new boolean[256];     // hasMoved flag of the moving piece before the move
+	private int ply;
+	private long dirty = -1L;   // Squares (bit row * 8 + col) changed since takeDirtySquares was last called
+
+	// Piece objects taken off the board by loadFen, by piece code, so loading reuses them
+	private final Piece[][] spares = new Piece[12][16];
+	private final int[] spareCounts = new int[12];
 
 	// Constructor initializes the board and sets white to start
 	public Board() {
 		board = new Piece[8][8];
 		setup();                  // Place all pieces in starting positions
 		whiteTurn = true;         // White starts the game
+		syncPosition();           // Build the bitboards from the piece array
 	}
 
 	// Places all chess pieces at their standard starting positions
@@ -40,199 +58,422 @@ public class Board {
 			board[6][i] = new Pawn(6, i, true);
 	}
 
+	// Rebuilds the bitboard position from the piece array; castling rights follow the hasMoved flags
+	private void syncPosition() {
+		position.clear();
+		for (int row = 0; row < 8; row++) {
+			for (int col = 0; col < 8; col++) {
+				Piece piece = board[row][col];
+				if (piece != null)
+					position.put(Position.square(row, col), code(piece));
+			}
+		}
+		position.setSideToMove(color(whiteTurn));
+		position.setCastlingRights(castlingRights());
+	}
+
+	// Castling rights implied by the hasMoved flags of the kings and rooks
+	private int castlingRights() {
+		int rights = 0;
+		if (canCastle(7, 7))
+			rights |= Position.WHITE_KINGSIDE;
+		if (canCastle(7, 0))
+			rights |= Position.WHITE_QUEENSIDE;
+		if (canCastle(0, 7))
+			rights |= Position.BLACK_KINGSIDE;
+		if (canCastle(0, 0))
+			rights |= Position.BLACK_QUEENSIDE;
+		return rights;
+	}
+
+	// True if the king on row and the rook in the given corner are both unmoved
+	private boolean canCastle(int row, int rookCol) {
+		Piece king = board[row][4], rook = board[row][rookCol];
+		return king instanceof King && rook instanceof Rook && !king.hasMoved() && !rook.hasMoved()
+				&& king.isWhite() == (row == 7) && rook.isWhite() == (row == 7);
+	}
+
+	// Bitboard piece code for a piece object
+	private static int code(Piece piece) {
+		return Position.piece(piece.isWhite() ? Position.WHITE : Position.BLACK, piece.getType());
+	}
+
+	private static int color(boolean white) {
+		return white ? Position.WHITE : Position.BLACK;
+	}
+
+	// Replaces the game with the position described by fen. The board array and piece objects are
+	// reused, and the move history is cleared.
+	public void loadFen(CharSequence fen) {
+		Fen.parse(fen, position);
+		loadFromPosition();
+	}
+
+	// Same as loadFen(CharSequence), reading the FEN bytes between fen's position and limit in place
+	public void loadFen(ByteBuffer fen) {
+		Fen.parse(fen, position);
+		loadFromPosition();
+	}
+
+	// Returns the FEN of the current position, with castling rights taken from the hasMoved flags
+	public String toFen() {
+		return Fen.append(position, castlingRights(), new StringBuilder(90)).toString();
+	}
+
+	// Rebuilds the piece array from a freshly parsed position
+	private void loadFromPosition() {
+		dirty = -1L;
+		// Everything on the board or in the capture history goes back to the spares
+		for (int row = 0; row < 8; row++) {
+			for (int col = 0; col < 8; col++) {
+				if (board[row][col] != null)
+					release(board[row][col]);
+				board[row][col] = null;
+			}
+		}
+		for (int i = 0; i < ply; i++) {
+			if (capturedPieces[i] != null)
+				release(capturedPieces[i]);
+			capturedPieces[i] = null;
+			movedPieces[i] = null;
+		}
+		Arrays.fill(promotedPieces, null);
+		ply = 0;
+
+		// Kings and rooks count as unmoved only where the FEN grants the matching castling right
+		int rights = position.castlingRights();
+		for (int sq = 0; sq < 64; sq++) {
+			int code = position.pieceAt(sq);
+			if (code == Position.EMPTY)
+				continue;
+			int row = sq / 8, col = sq % 8;
+			boolean white = Position.colorOf(code) == Position.WHITE;
+			Piece piece = acquire(code, row, col);
+			switch (Position.typeOf(code)) {
+			case Position.PAWN:
+				piece.setMoved(row != (white ? 6 : 1));
+				break;
+			case Position.KING:
+				piece.setMoved((rights & (white ? Position.WHITE_KINGSIDE | Position.WHITE_QUEENSIDE
+						: Position.BLACK_KINGSIDE | Position.BLACK_QUEENSIDE)) == 0);
+				break;
+			case Position.ROOK:
+				piece.setMoved(!(col == 7 && (rights & (white ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE)) != 0
+						|| col == 0 && (rights & (white ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE)) != 0));
+				break;
+			default:
+				piece.setMoved(false);
+				break;
+			}
+			board[row][col] = piece;
+		}
+		whiteTurn = position.sideToMove() == Position.WHITE;
+
+		// Drop rights whose king or rook is not actually in place
+		position.setCastlingRights(rights & castlingRights());
+	}
+
+	// Takes a spare piece object for code, or creates one, placed at (row, col)
+	private Piece acquire(int code, int row, int col) {
+		int count = spareCounts[code];
+		if (count == 0)
+			return newPiece(Position.typeOf(code), row, col, Position.colorOf(code) == Position.WHITE);
+		Piece piece = spares[code][--spareCounts[code]];
+		spares[code][count - 1] = null;
+		piece.setPosition(row, col);
+		return piece;
+	}
+
+	private void release(Piece piece) {
+		int code = code(piece);
+		if (spareCounts[code] < spares[code].length)
+			spares[code][spareCounts[code]++] = piece;
+	}
+
+	// Creates a piece object of the given bitboard type
+	private static Piece newPiece(int type, int row, int col, boolean white) {
+		switch (type) {
+		case Position.PAWN:
+			return new Pawn(row, col, white);
+		case Position.KNIGHT:
+			return new Knight(row, col, white);
+		case Position.BISHOP:
+			return new Bishop(row, col, white);
+		case Position.ROOK:
+			return new Rook(row, col, white);
+		case Position.QUEEN:
+			return new Queen(row, col, white);
+		default:
+			return new King(row, col, white);
+		}
+	}
+
 	// Returns the current state of the board
 	public Piece[][] getBoard() {
 		return board;
 	}
 
-	// Attempts to move a piece from one position to another
+	// Returns the bitboard position kept in step with the piece array
+	public Position getPosition() {
+		return position;
+	}
+
+	// Attempts to move a piece from one position to another; a pawn reaching the last rank becomes a queen
 	public boolean movePiece(int fromRow, int fromCol, int toRow, int toCol) {
+		return movePiece(fromRow, fromCol, toRow, toCol, Position.QUEEN);
+	}
+
+	// Attempts to move a piece, promoting a pawn that reaches the last rank to promotionType
+	// (Position.QUEEN, ROOK, BISHOP or KNIGHT). Returns false and leaves the board unchanged if the
+	// move is not legal.
+	public boolean movePiece(int fromRow, int fromCol, int toRow, int toCol, int promotionType) {
+		long start = Metrics.ENABLED ? System.nanoTime() : 0;
+		int move = findMove(fromRow, fromCol, toRow, toCol, promotionType);
+		if (move != Move.NONE) {
+			makeMove(move);
+		}
+		if (Metrics.ENABLED) {
+			Metrics.MOVE_PIECE.record(System.nanoTime() - start);
+		}
+		return move != Move.NONE;
+	}
+
+	// Returns the encoded legal move from (fromRow, fromCol) to (toRow, toCol), promoting to
+	// promotionType if it is a promotion, or Move.NONE if there is no such move
+	public int findMove(int fromRow, int fromCol, int toRow, int toCol, int promotionType) {
 		Piece piece = board[fromRow][fromCol];
 		
-		// Invalid move: empty square, wrong turn, or invalid move rule
-		if (piece == null || piece.isWhite() != whiteTurn || !piece.isValidMove(toRow, toCol, board)) {
+		// Invalid move: empty square or wrong turn
+		if (piece == null || piece.isWhite() != whiteTurn) {
+			return Move.NONE;
+		}
+
+		// The move must be one the generator produced: this rejects captures of your own pieces,
+		// castling through attacked or occupied squares and moves that leave your king in check
+		return findLegalMove(Position.square(fromRow, fromCol), Position.square(toRow, toCol), promotionType);
+	}
+
+	// True if moving from (fromRow, fromCol) to (toRow, toCol) is a legal pawn promotion, so the
+	// caller has to choose the piece before calling movePiece
+	public boolean isPromotionMove(int fromRow, int fromCol, int toRow, int toCol) {
+		Piece piece = board[fromRow][fromCol];
+		if (piece == null || piece.isWhite() != whiteTurn) {
 			return false;
 		}
-		
-		// Prevent capturing your own piece
-	    if (board[toRow][toCol] != null && board[toRow][toCol].isWhite() == piece.isWhite()) {
-	        return false;
-	    }
+		int move = findLegalMove(Position.square(fromRow, fromCol), Position.square(toRow, toCol), Position.QUEEN);
+		return Move.isPromotion(move);
+	}
+
+	// Plays a legal encoded move (see Move) on both the bitboards and the piece array.
+	// The move is not validated: it must come from the move generator for the current position.
+	public void makeMove(int move) {
+		int from = Move.from(move), to = Move.to(move), flags = Move.flags(move);
+		int fromRow = from / 8, fromCol = from % 8, toRow = to / 8, toCol = to % 8;
+		Piece piece = board[fromRow][fromCol];
+
+		if (ply == movedPieces.length) {
+			growUndoStack();
+		}
+		movedPieces[ply] = piece;
+		hadMoved[ply] = piece.hasMoved();
 
-		// Castling logic
-		if (piece instanceof King && Math.abs(toCol - fromCol) == 2 && fromRow == toRow && !piece.hasMoved()) {
+		// En passant captures the pawn beside the moving pawn, not on the destination
+		int capturedRow = flags == Move.EN_PASSANT ? fromRow : toRow;
+		capturedPieces[ply] = board[capturedRow][toCol];
+		board[capturedRow][toCol] = null;
+		dirty |= 1L << from | 1L << to | 1L << Position.square(capturedRow, toCol);
+
+		// Castling logic: move the rook next to the king
+		if (Move.isCastle(move)) {
 			int rookCol = (toCol > fromCol) ? 7 : 0;
 			int newRookCol = (toCol > fromCol) ? 5 : 3;
+			dirty |= 1L << Position.square(fromRow, rookCol) | 1L << Position.square(fromRow, newRookCol);
 			Piece rook = board[fromRow][rookCol];
-			
-			// Ensure castling conditions: rook is present and neither piece has moved
-			if (rook instanceof Rook && !rook.hasMoved() && !isKingInCheck(whiteTurn)) {
-				int dir = (toCol - fromCol) > 0 ? 1 : -1;
-				
-				// Check all squares between king and rook
-				for (int c = fromCol + dir; c != toCol; c += dir) {
-					if (board[fromRow][c] != null || squareUnderAttack(fromRow, c, !whiteTurn)) {
-						return false;
-					}
-				}
-				// Perform castling
-				board[toRow][toCol] = piece;
-				board[fromRow][fromCol] = null;
-				board[fromRow][rookCol] = null;
-				board[fromRow][newRookCol] = rook;
-				
-				piece.setPosition(toRow, toCol);
-				rook.setPosition(fromRow, newRookCol);
-				piece.setMoved(true);
-				rook.setMoved(true);
-				whiteTurn = !whiteTurn;  // Switch turn
-				return true;
-			} else {
-				return false;
-			}
+			board[fromRow][rookCol] = null;
+			board[fromRow][newRookCol] = rook;
+			rook.setPosition(fromRow, newRookCol);
+			rook.setMoved(true);
 		}
 
-		//Perform normal move
-		Piece captured = board[toRow][toCol];    // Backup captured piece (if any)
-		board[toRow][toCol] = piece;
+		//Perform the move, replacing a promoting pawn with its new piece
 		board[fromRow][fromCol] = null;
+		board[toRow][toCol] = Move.isPromotion(move) ? promotedPiece(Move.promotionType(move), toRow, toCol, piece.isWhite())
+				: piece;
 		piece.setPosition(toRow, toCol);
+		piece.setMoved(true);    // Mark piece as moved (important for castling/pawns)
 
-		//Undo move if it results in your king being in check
-		if (isKingInCheck(whiteTurn)) {
-			board[fromRow][fromCol] = piece;
-			board[toRow][toCol] = captured;
-			piece.setPosition(fromRow, fromCol);
-			return false;
+		position.makeMove(move); // Keep the bitboards in step
+		ply++;
+		whiteTurn = !whiteTurn;  // Switch turn
+	}
+
+	// Takes back the last move made with makeMove or movePiece
+	public void unmakeMove() {
+		if (ply == 0) {
+			return;
 		}
+		ply--;
+		int move = position.moveAt(position.ply() - 1);
+		int from = Move.from(move), to = Move.to(move), flags = Move.flags(move);
+		int fromRow = from / 8, fromCol = from % 8, toRow = to / 8, toCol = to % 8;
+		Piece piece = movedPieces[ply];
 
-		//Handle manual pawn promotion
-		if (piece instanceof Pawn && (toRow == 0 || toRow == 7)) {
-			String[] options = { "Queen", "Rook", "Bishop", "Knight" };
-			String choice = (String) JOptionPane.showInputDialog(null, "Promote pawn to:", "Pawn Promotion",
-					JOptionPane.PLAIN_MESSAGE, null, options, options[0]);
+		board[toRow][toCol] = null;
+		board[fromRow][fromCol] = piece;
+		piece.setPosition(fromRow, fromCol);
+		piece.setMoved(hadMoved[ply]);
 
-			// Replace pawn with chosen piece
-			switch (choice) {
-			case "Rook":
-				board[toRow][toCol] = new Rook(toRow, toCol, piece.isWhite());
-				break;
-			case "Bishop":
-				board[toRow][toCol] = new Bishop(toRow, toCol, piece.isWhite());
-				break;
-			case "Knight":
-				board[toRow][toCol] = new Knight(toRow, toCol, piece.isWhite());
-				break;
-			default:
-				board[toRow][toCol] = new Queen(toRow, toCol, piece.isWhite());
-				break;
-			}
+		// Put the captured piece back (beside the destination for en passant)
+		int capturedRow = flags == Move.EN_PASSANT ? fromRow : toRow;
+		board[capturedRow][toCol] = capturedPieces[ply];
+		capturedPieces[ply] = null;
+		dirty |= 1L << from | 1L << to | 1L << Position.square(capturedRow, toCol);
+
+		// Return the castling rook to its corner; castling is only possible with an unmoved rook
+		if (Move.isCastle(move)) {
+			int rookCol = (toCol > fromCol) ? 7 : 0;
+			int newRookCol = (toCol > fromCol) ? 5 : 3;
+			dirty |= 1L << Position.square(fromRow, rookCol) | 1L << Position.square(fromRow, newRookCol);
+			Piece rook = board[fromRow][newRookCol];
+			board[fromRow][newRookCol] = null;
+			board[fromRow][rookCol] = rook;
+			rook.setPosition(fromRow, rookCol);
+			rook.setMoved(false);
 		}
 
-		piece.setMoved(true);    // Mark piece as moved (important for castling/pawns)
-		whiteTurn = !whiteTurn;  // Switch turn
-		return true;
+		position.unmakeMove();
+		whiteTurn = !whiteTurn;
 	}
 
-	// Check detection
-	public boolean isKingInCheck(boolean white) {
-		int kingRow = -1, kingCol = -1;
-		
-		// Find king's position
-		for (int row = 0; row < 8; row++) {
-			for (int col = 0; col < 8; col++) {
-				Piece piece = board[row][col];
-				if (piece instanceof King && piece.isWhite() == white) {
-					kingRow = row;
-					kingCol = col;
-				}
-			}
+	// Returns the piece a pawn promotes into at the current ply, reusing the one cached for this ply
+	// when it matches so repeated make/unmake of the same promotion does not allocate
+	private Piece promotedPiece(int type, int row, int col, boolean white) {
+		Piece cached = promotedPieces[ply];
+		if (cached != null && cached.getType() == type && cached.isWhite() == white) {
+			cached.setPosition(row, col);
+			cached.setMoved(true);
+			return cached;
 		}
+		Piece promoted = newPiece(type, row, col, white);
+		promoted.setMoved(true);
+		promotedPieces[ply] = promoted;
+		return promoted;
+	}
 
-		// Check if any opponent piece can attack the king
-		for (int row = 0; row < 8; row++) {
-			for (int col = 0; col < 8; col++) {
-				Piece piece = board[row][col];
-				if (piece != null && piece.isWhite() != white && piece.isValidMove(kingRow, kingCol, board)) {
-					return true;
-				}
+	// Doubles the piece undo arrays; only reached by games longer than the initial capacity
+	private void growUndoStack() {
+		int capacity = movedPieces.length * 2;
+		movedPieces = Arrays.copyOf(movedPieces, capacity);
+		capturedPieces = Arrays.copyOf(capturedPieces, capacity);
+		promotedPieces = Arrays.copyOf(promotedPieces, capacity);
+		hadMoved = Arrays.copyOf(hadMoved, capacity);
+	}
+
+	// Returns the squares whose piece changed since the last call (bit row * 8 + col, every square
+	// after construction or loadFen) and starts collecting afresh. Lets a view redraw only those.
+	public long takeDirtySquares() {
+		long changed = dirty;
+		dirty = 0;
+		return changed;
+	}
+
+	// Number of moves that can currently be taken back
+	public int getPly() {
+		return ply;
+	}
+
+	// Returns the legal move from -> to (choosing the given promotion piece), or Move.NONE
+	private int findLegalMove(int from, int to, int promotionType) {
+		if (Metrics.ENABLED) {
+			Metrics.countLegalityCheck(Position.typeOf(position.pieceAt(from)));
+		}
+		int count = MoveGenerator.generatePiece(position, from, moveBuffer, 0);
+		for (int i = 0; i < count; i++) {
+			int move = moveBuffer[i];
+			if (Move.to(move) == to && (!Move.isPromotion(move) || Move.promotionType(move) == promotionType)) {
+				return move;
 			}
 		}
-		return false;
+		return Move.NONE;
 	}
 
-	// Checkmate detection
+	// Bitmask (bit row * 8 + col) of the squares the piece at (row, col) can legally move to
+	public long getLegalTargets(int row, int col) {
+		long start = Metrics.ENABLED ? System.nanoTime() : 0;
+		long targets = 0;
+		int count = getLegalMoves(row, col, moveBuffer);
+		for (int i = 0; i < count; i++) {
+			targets |= 1L << Move.to(moveBuffer[i]);
+		}
+		if (Metrics.ENABLED) {
+			Metrics.LEGAL_MOVES.record(System.nanoTime() - start);
+		}
+		return targets;
+	}
+
+	// Writes the legal moves of the piece at (row, col) into moves; returns how many were written
+	public int getLegalMoves(int row, int col, int[] moves) {
+		if (board[row][col] == null) {
+			return 0;
+		}
+		int from = Position.square(row, col);
+		if (Metrics.ENABLED) {
+			Metrics.countLegalityCheck(Position.typeOf(position.pieceAt(from)));
+		}
+		return MoveGenerator.generatePiece(position, from, moves, 0);
+	}
+
+	// Check detection: one attack-mask lookup on the king's square
+	public boolean isKingInCheck(boolean white) {
+		if (Metrics.ENABLED) {
+			long start = System.nanoTime();
+			boolean check = position.isInCheck(color(white));
+			Metrics.KING_IN_CHECK.record(System.nanoTime() - start);
+			return check;
+		}
+		return position.isInCheck(color(white));
+	}
+
+	// True if moving the piece at (fromRow, fromCol) to (toRow, toCol) would expose its own king
+	public boolean leavesKingInCheck(int fromRow, int fromCol, int toRow, int toCol) {
+		return position.leavesKingInCheck(Position.square(fromRow, fromCol), Position.square(toRow, toCol));
+	}
+
+	// Checkmate detection: in check and no move escapes it
 	public boolean isCheckmateFor(boolean isWhite) {
-	    // First verify the king is actually in check
-	    if (!isKingInCheck(isWhite)) {
-	        return false;
-	    }
-
-	 // Try all legal moves for that player to see if any escape check
-	    for (int row = 0; row < 8; row++) {
-	        for (int col = 0; col < 8; col++) {
-	            Piece piece = board[row][col];
-	            if (piece != null && piece.isWhite() == isWhite) {
-	                // Check all possible moves for this piece
-	                for (int r = 0; r < 8; r++) {
-	                    for (int c = 0; c < 8; c++) {
-	                        if (piece.isValidMove(r, c, board)) {
-	                            // Simulate the move
-	                            Piece captured = board[r][c];
-	                            board[r][c] = piece;
-	                            board[row][col] = null;
-	                            piece.setPosition(r, c);
-	                            
-	                            boolean stillInCheck = isKingInCheck(isWhite);
-	                            
-	                            // Undo the move
-	                            board[row][col] = piece;
-	                            board[r][c] = captured;
-	                            piece.setPosition(row, col);
-	                            
-	                            if (!stillInCheck) {
-	                                return false; // Found at least one legal move
-	                            }
-	                        }
-	                    }
-	                }
-	            }
-	        }
-	    }
-	    return true; // No legal moves found
-	}
-
-	// Stalemate detection
-	public boolean isStalemate() {
-		// If the king is in check, it's not stalemate
-		if (isKingInCheck(whiteTurn))
-			return false;
+		long start = Metrics.ENABLED ? System.nanoTime() : 0;
+		int color = color(isWhite);
+		boolean mate = position.isInCheck(color) && MoveGenerator.generate(position, color, moveBuffer, 0) == 0;
+		if (Metrics.ENABLED) {
+			Metrics.CHECKMATE.record(System.nanoTime() - start);
+		}
+		return mate;
+	}
 
-		// Check if current player has any legal moves
-		for (int row = 0; row < 8; row++) {
-			for (int col = 0; col < 8; col++) {
-				Piece piece = board[row][col];
-				if (piece != null && piece.isWhite() == whiteTurn) {
-					for (int r = 0; r < 8; r++) {
-						for (int c = 0; c < 8; c++) {
-							if (piece.isValidMove(r, c, board)) {
-								Piece backup = board[r][c];
-								board[r][c] = piece;
-								board[row][col] = null;
-								piece.setPosition(r, c);
-								boolean stillInCheck = isKingInCheck(whiteTurn);
-								board[row][col] = piece;
-								board[r][c] = backup;
-								piece.setPosition(row, col);
-								if (!stillInCheck)
-									return false;
-							}
-						}
-					}
-				}
-			}
+	// Stalemate detection: not in check but no legal move for the side to move
+	public boolean isStalemate() {
+		long start = Metrics.ENABLED ? System.nanoTime() : 0;
+		int color = color(whiteTurn);
+		boolean stalemate = !position.isInCheck(color) && MoveGenerator.generate(position, color, moveBuffer, 0) == 0;
+		if (Metrics.ENABLED) {
+			Metrics.STALEMATE.record(System.nanoTime() - start);
 		}
-		return true;  // No legal moves and not in check = stalemate
+		return stalemate;
+	}
+
+	// Returns the Zobrist key of the current position
+	public long getZobristKey() {
+		return position.key();
+	}
+
+	// True if the current position has now occurred three times
+	public boolean isThreefoldRepetition() {
+		return position.repetitions() >= 2;
+	}
+
+	// Returns the king's square index (row * 8 + col) for a color, tracked on every move
+	public int getKingSquare(boolean white) {
+		return position.kingSquare(color(white));
 	}
 
 	// Returns whose turn it is
@@ -242,14 +483,6 @@ public class Board {
 
 	// Utility: detect if a square is under attack
 	public boolean squareUnderAttack(int row, int col, boolean byWhite) {
-		for (int r = 0; r < 8; r++) {
-			for (int c = 0; c < 8; c++) {
-				Piece piece = board[r][c];
-				if (piece != null && piece.isWhite() == byWhite && piece.isValidMove(row, col, board)) {
-					return true;
-				}
-			}
-		}
-		return false;
+		return position.isSquareAttacked(Position.square(row, col), color(byWhite));
 	}
 }
@@ -1,8 +1,17 @@
 package chess;
 
+import java.io.IOException;
+
+import chess.uci.Uci;
+
 public class ChessGame {
 
-	public static void main(String[] args) {
+	// Opens the window, or speaks UCI on stdin/stdout when started with the argument "uci"
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0 && args[0].equals("uci")) {
+			new Uci(System.in, System.out).run();
+			return;
+		}
 		new GUI();
 	}
 
@@ -0,0 +1,187 @@
+package chess;
+
+import java.nio.ByteBuffer;
+
+// Reads and writes positions in Forsyth-Edwards Notation, e.g.
+// "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1". Ranks are listed from the 8th down,
+// which is the same order as Position's rows, so the board field fills squares 0..63 in order.
+public final class Fen {
+
+	public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	private static final String PIECE_LETTERS = "PNBRQKpnbrqk";   // Indexed by piece code
+
+	private Fen() {
+	}
+
+	// Replaces the contents of pos with the FEN held in the bytes between fen's position and limit.
+	// The bytes are read in place (FEN is plain ASCII) and the buffer's position is not changed.
+	public static void parse(ByteBuffer fen, Position pos) {
+		parse(new AsciiView().set(fen, fen.position(), fen.limit()), pos);
+	}
+
+	// Replaces the contents of pos with the position described by fen. Throws
+	// IllegalArgumentException if a rank does not hold exactly 8 squares, a pawn stands on the first
+	// or last rank, a side does not have exactly one king, or the side to move, castling or en
+	// passant field is malformed, leaving pos partly filled.
+	public static void parse(CharSequence fen, Position pos) {
+		pos.clear();
+		int i = 0, length = fen.length();
+
+		// Piece placement: 8 ranks of 8 squares separated by '/'
+		int row = 0, col = 0;
+		for (; i < length && fen.charAt(i) != ' '; i++) {
+			char c = fen.charAt(i);
+			if (c == '/') {
+				if (col != 8)
+					throw new IllegalArgumentException("Rank " + (8 - row) + " is too short in FEN: " + fen);
+				if (++row > 7)
+					throw new IllegalArgumentException("More than 8 ranks in FEN: " + fen);
+				col = 0;
+			} else if (c >= '1' && c <= '8') {
+				col += c - '0';
+				if (col > 8)
+					throw new IllegalArgumentException("Rank " + (8 - row) + " is too long in FEN: " + fen);
+			} else {
+				int piece = PIECE_LETTERS.indexOf(c);
+				if (piece < 0 || col >= 8)
+					throw new IllegalArgumentException("Bad piece placement in FEN: " + fen);
+				if (Position.typeOf(piece) == Position.PAWN && (row == 0 || row == 7))
+					throw new IllegalArgumentException("Pawn on the first or last rank in FEN: " + fen);
+				pos.put(Position.square(row, col++), piece);
+			}
+		}
+		if (row != 7 || col != 8)
+			throw new IllegalArgumentException("FEN does not describe 64 squares: " + fen);
+		if (Long.bitCount(pos.pieces(Position.WHITE, Position.KING)) != 1
+				|| Long.bitCount(pos.pieces(Position.BLACK, Position.KING)) != 1)
+			throw new IllegalArgumentException("FEN needs exactly one king per side: " + fen);
+
+		// Side to move
+		i = skipSpaces(fen, i);
+		int end = skipField(fen, i);
+		if (end - i > 1 || (end > i && fen.charAt(i) != 'w' && fen.charAt(i) != 'b'))
+			throw new IllegalArgumentException("Bad side to move in FEN: " + fen);
+		if (end > i && fen.charAt(i) == 'b')
+			pos.setSideToMove(Position.BLACK);
+		i = end;
+
+		// Castling rights
+		i = skipSpaces(fen, i);
+		int rights = 0;
+		for (; i < length && fen.charAt(i) != ' '; i++) {
+			switch (fen.charAt(i)) {
+			case 'K':
+				rights |= Position.WHITE_KINGSIDE;
+				break;
+			case 'Q':
+				rights |= Position.WHITE_QUEENSIDE;
+				break;
+			case 'k':
+				rights |= Position.BLACK_KINGSIDE;
+				break;
+			case 'q':
+				rights |= Position.BLACK_QUEENSIDE;
+				break;
+			case '-':
+				break;
+			default:
+				throw new IllegalArgumentException("Bad castling rights in FEN: " + fen);
+			}
+		}
+		pos.setCastlingRights(rights);
+
+		// En passant square: '-', or the square behind a pawn that just moved two, so on the 6th rank
+		// with white to move and on the 3rd with black to move
+		i = skipSpaces(fen, i);
+		end = skipField(fen, i);
+		if (end > i && !(end - i == 1 && fen.charAt(i) == '-')) {
+			char rank = pos.sideToMove() == Position.WHITE ? '6' : '3';
+			if (end - i != 2 || fen.charAt(i) < 'a' || fen.charAt(i) > 'h' || fen.charAt(i + 1) != rank)
+				throw new IllegalArgumentException("Bad en passant square in FEN: " + fen);
+			pos.setEpSquare(Position.square('8' - rank, fen.charAt(i) - 'a'));
+		}
+		i = end;
+
+		// Halfmove clock and fullmove number are optional
+		i = skipSpaces(fen, i);
+		if (i < length) {
+			pos.setHalfmoveClock(parseNumber(fen, i));
+			i = skipSpaces(fen, skipField(fen, i));
+			if (i < length)
+				pos.setFullmoveNumber(Math.max(1, parseNumber(fen, i)));
+		}
+	}
+
+	// Returns the FEN of pos
+	public static String toFen(Position pos) {
+		return append(pos, new StringBuilder(90)).toString();
+	}
+
+	// Appends the FEN of pos to out and returns out
+	public static StringBuilder append(Position pos, StringBuilder out) {
+		return append(pos, pos.castlingRights(), out);
+	}
+
+	// Appends the FEN of pos with the given castling rights (Board derives them from its pieces)
+	static StringBuilder append(Position pos, int castlingRights, StringBuilder out) {
+		for (int row = 0; row < 8; row++) {
+			int empty = 0;
+			for (int col = 0; col < 8; col++) {
+				int piece = pos.pieceAt(Position.square(row, col));
+				if (piece == Position.EMPTY) {
+					empty++;
+					continue;
+				}
+				if (empty > 0)
+					out.append((char) ('0' + empty));
+				empty = 0;
+				out.append(PIECE_LETTERS.charAt(piece));
+			}
+			if (empty > 0)
+				out.append((char) ('0' + empty));
+			if (row < 7)
+				out.append('/');
+		}
+
+		out.append(pos.sideToMove() == Position.WHITE ? " w " : " b ");
+		if (castlingRights == 0)
+			out.append('-');
+		if ((castlingRights & Position.WHITE_KINGSIDE) != 0)
+			out.append('K');
+		if ((castlingRights & Position.WHITE_QUEENSIDE) != 0)
+			out.append('Q');
+		if ((castlingRights & Position.BLACK_KINGSIDE) != 0)
+			out.append('k');
+		if ((castlingRights & Position.BLACK_QUEENSIDE) != 0)
+			out.append('q');
+
+		out.append(' ');
+		int ep = pos.epSquare();
+		if (ep < 0)
+			out.append('-');
+		else
+			out.append(Move.squareName(ep));
+		return out.append(' ').append(pos.halfmoveClock()).append(' ').append(pos.fullmoveNumber());
+	}
+
+	private static int skipSpaces(CharSequence s, int i) {
+		while (i < s.length() && s.charAt(i) == ' ')
+			i++;
+		return i;
+	}
+
+	private static int skipField(CharSequence s, int i) {
+		while (i < s.length() && s.charAt(i) != ' ')
+			i++;
+		return i;
+	}
+
+	private static int parseNumber(CharSequence s, int i) {
+		int value = 0;
+		for (; i < s.length() && s.charAt(i) >= '0' && s.charAt(i) <= '9'; i++)
+			value = value * 10 + (s.charAt(i) - '0');
+		return value;
+	}
+
+}
@@ -0,0 +1,100 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+// Streams FEN (or EPD) lines from a file into a reused Position or Board.
+// The file is read through one direct buffer and each line is parsed in place through a reusable
+// ASCII view, so no String or piece array is created per position. Blank lines and lines starting
+// with '#' are skipped.
+//
+// Usage: java chess.FenReader <file> [board]   parses every line and reports positions per second
+public final class FenReader {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private FenReader() {
+	}
+
+	// Parses each line into pos and passes it to handler; returns the number of positions read
+	public static long read(Path file, Position pos, Consumer<Position> handler) throws IOException {
+		return forEachLine(file, line -> {
+			Fen.parse(line, pos);
+			handler.accept(pos);
+		});
+	}
+
+	// Loads each line into board and passes it to handler; returns the number of positions read
+	public static long read(Path file, Board board, Consumer<Board> handler) throws IOException {
+		return forEachLine(file, line -> {
+			board.loadFen(line);
+			handler.accept(board);
+		});
+	}
+
+	// Passes every non-blank, non-comment line to handler. The CharSequence is a view into the read
+	// buffer and is only valid during the call. Returns the number of lines handled.
+	public static long forEachLine(Path file, Consumer<CharSequence> handler) throws IOException {
+		AsciiView view = new AsciiView();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		long lines = 0, lineNumber = 0;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			boolean eof = false;
+			while (!eof) {
+				eof = channel.read(buffer) < 0;
+				buffer.flip();
+
+				// Hand over every complete line; at end of file the last line needs no newline
+				int start = buffer.position(), limit = buffer.limit();
+				for (int i = start; i < limit || eof && start < limit; i++) {
+					if (i < limit && buffer.get(i) != '\n')
+						continue;
+					lineNumber++;
+					int end = i;
+					if (end > start && buffer.get(end - 1) == '\r')
+						end--;
+					while (start < end && buffer.get(start) == ' ')
+						start++;
+					if (start < end && buffer.get(start) != '#') {
+						try {
+							handler.accept(view.set(buffer, start, end));
+						} catch (IllegalArgumentException e) {
+							throw new IllegalArgumentException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+						}
+						lines++;
+					}
+					start = i + 1;
+				}
+
+				// Keep the partial last line for the next read
+				buffer.position(Math.min(start, limit));
+				buffer.compact();
+				if (!eof && buffer.position() == buffer.capacity())
+					throw new IOException(file + ":" + (lineNumber + 1) + ": line longer than " + BUFFER_SIZE + " bytes");
+			}
+		}
+		return lines;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: java chess.FenReader <file> [board]");
+			return;
+		}
+		Path file = Paths.get(args[0]);
+		boolean toBoard = args.length > 1 && args[1].equals("board");
+		long[] checksum = new long[1];
+		long start = System.nanoTime();
+		long count = toBoard ? read(file, new Board(), board -> checksum[0] ^= board.getZobristKey())
+				: read(file, new Position(), pos -> checksum[0] ^= pos.key());
+		long micros = Math.max(1, (System.nanoTime() - start) / 1000);
+		System.out.printf("%,d positions in %d ms (%,d positions/s) into %s, key checksum %016x%n", count,
+				micros / 1000, count * 1_000_000 / micros, toBoard ? "Board" : "Position", checksum[0]);
+	}
+
+}
@@ -2,8 +2,13 @@ package chess;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.List;
-import java.util.ArrayList;
+import javax.swing.event.ListSelectionEvent;
+
+import chess.engine.AnalysisListener;
+import chess.engine.AnalysisWorker;
+import chess.engine.Engine;
+import chess.engine.SearchInfo;
+import chess.engine.SearchLimits;
 
 @SuppressWarnings("serial")
 //GUI class represents the graphical user interface for the chess game
@@ -12,22 +17,54 @@ public class GUI extends JFrame {
 	private JButton[][] squares;         // 2D array of buttons representing the board
 	private int selectedRow = -1;        // Coordinates of the selected piece
 	private int selectedCol = -1;       
-	private List<Point> legalMoves = new ArrayList<>();      // Valid destinations for selected piece
+	private long legalMoves;             // Valid destinations for selected piece (bit row * 8 + col)
+	private long highlighted;            // Squares drawn with a highlight color at the last refresh
+	private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];  // Scratch space for the move generator
+
+	// The engine searches on a background thread; everything below is only touched on the EDT
+	private static final long ENGINE_MOVE_MILLIS = 1000;     // Thinking time for a computer move
+	private static final long ANALYSIS_MILLIS = 30_000;      // Analysis of the human's position stops after this
+	private final AnalysisWorker analysis = new AnalysisWorker(new Engine(), SwingUtilities::invokeLater);
+	private final JLabel status = new JLabel(" ");           // Latest depth, score, best move and speed
+	private final JCheckBox computerPlaysBlack = new JCheckBox("Computer plays Black");
+	private final JCheckBox analyse = new JCheckBox("Analyse");     // Off by default: analysis keeps a core busy
+	private boolean engineThinking;                          // The computer is choosing a move
+
+	// Move history: the list shows one row per ply, the slider picks the ply shown on the board
+	private GameHistory history;
+	private final DefaultListModel<String> moveList = new DefaultListModel<>();
+	private final JList<String> moveView = new JList<>(moveList);
+	private final JSlider slider = new JSlider(0, 0, 0);
+	private boolean syncingHistory;                          // Set while the controls are updated from code
 
 	// Constructor to sets up the window, layout, and initializes board
 	public GUI() {
 		board = new Board();
+		history = new GameHistory(board);
 		squares = new JButton[8][8];
 		setTitle("Chess Game");
-		setLayout(new GridLayout(8, 8));        // 8x8 chess board layout          
+		setLayout(new BorderLayout());
+		JPanel boardPanel = new JPanel(new GridLayout(8, 8));   // 8x8 chess board layout
+		add(boardPanel, BorderLayout.CENTER);
+		JPanel controls = new JPanel(new BorderLayout());
+		JPanel toggles = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+		toggles.add(computerPlaysBlack);
+		toggles.add(analyse);
+		controls.add(toggles, BorderLayout.WEST);
+		controls.add(status, BorderLayout.CENTER);
+		add(controls, BorderLayout.SOUTH);
+		add(createHistoryPanel(), BorderLayout.EAST);
+		computerPlaysBlack.addActionListener(e -> startEngine());
+		analyse.addActionListener(e -> startEngine());
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-		initializeBoard();        // Build board UI
+		initializeBoard(boardPanel);        // Build board UI
 		pack();                   // Resize window to fit components
 		setVisible(true);         // Display the window
+		startEngine();
 	}
 
 	// Initializes buttons and places piece symbols on the board
-	private void initializeBoard() {
+	private void initializeBoard(JPanel boardPanel) {
 		Piece[][] b = board.getBoard();    // Get current board state
 
 		for (int row = 0; row < 8; row++) {
@@ -40,24 +77,105 @@ public class GUI extends JFrame {
 				// Add click listener for the square
 				btn.addActionListener(e -> handleClick(r, c));
 				squares[row][col] = btn;
-				add(btn);        // Add button to the board UI
+				boardPanel.add(btn);        // Add button to the board UI
 			}
 		}
 		refreshBoard();    // Apply initial colors and highlights
 
 	}
 
+	// Builds the move list with the slider and first/previous/next/last buttons beneath it
+	private JPanel createHistoryPanel() {
+		moveView.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		moveView.addListSelectionListener((ListSelectionEvent e) -> {
+			if (!syncingHistory && !e.getValueIsAdjusting() && moveView.getSelectedIndex() >= 0) {
+				showPly(moveView.getSelectedIndex() + 1);
+			}
+		});
+		slider.addChangeListener(e -> {
+			if (!syncingHistory) {
+				showPly(slider.getValue());
+			}
+		});
+
+		JPanel buttons = new JPanel(new GridLayout(1, 4));
+		String[] labels = { "|<", "<", ">", ">|" };
+		int[] steps = { Integer.MIN_VALUE, -1, 1, Integer.MAX_VALUE };
+		for (int i = 0; i < labels.length; i++) {
+			JButton button = new JButton(labels[i]);
+			int step = steps[i];
+			button.addActionListener(e -> showPly(step == Integer.MIN_VALUE ? 0
+					: step == Integer.MAX_VALUE ? history.getLength() : history.getPly() + step));
+			buttons.add(button);
+		}
+
+		JPanel navigation = new JPanel(new BorderLayout());
+		navigation.add(slider, BorderLayout.NORTH);
+		navigation.add(buttons, BorderLayout.SOUTH);
+		JPanel panel = new JPanel(new BorderLayout());
+		JScrollPane scroll = new JScrollPane(moveView);
+		scroll.setPreferredSize(new Dimension(180, 0));
+		panel.add(scroll, BorderLayout.CENTER);
+		panel.add(navigation, BorderLayout.SOUTH);
+		return panel;
+	}
+
+	// Shows the position after the first ply moves of the game; only the changed squares are redrawn
+	private void showPly(int ply) {
+		if (engineThinking || ply == history.getPly()) {
+			return;
+		}
+		history.seek(ply);
+		selectedRow = -1;
+		selectedCol = -1;
+		legalMoves = 0;
+		refreshBoard();
+		syncHistoryControls();
+		startEngine();
+	}
+
+	// Brings the move list and slider in line with the history without triggering their listeners
+	private void syncHistoryControls() {
+		syncingHistory = true;
+		while (moveList.size() > history.getLength()) {
+			moveList.remove(moveList.size() - 1);
+		}
+		// Only the last move can have changed since the previous call: play replaces one move at a time
+		for (int ply = Math.max(0, Math.min(moveList.size(), history.getLength() - 1)); ply < history.getLength(); ply++) {
+			String row = (ply / 2 + 1) + (ply % 2 == 0 ? ". " : "... ") + history.getSan(ply);
+			if (ply >= moveList.size()) {
+				moveList.addElement(row);
+			} else if (!row.equals(moveList.get(ply))) {
+				moveList.set(ply, row);
+			}
+		}
+		slider.setMaximum(history.getLength());
+		slider.setValue(history.getPly());
+		if (history.getPly() > 0) {
+			moveView.setSelectedIndex(history.getPly() - 1);
+			moveView.ensureIndexIsVisible(history.getPly() - 1);
+		} else {
+			moveView.clearSelection();
+		}
+		syncingHistory = false;
+	}
+
 	// Handles player clicking a square (selecting or moving a piece)
 	private void handleClick(int row, int col) {
 		Piece[][] b = board.getBoard();
 		Piece piece = b[row][col];      // Get the clicked square's piece
 
+		// The computer's pieces are not the player's to move
+		if (engineThinking) {
+			return;
+		}
+
 		if (selectedRow == -1) {
 			// First click - select piece if it's the player's turn
 			if (piece != null && piece.isWhite() == board.isWhiteTurn()) {
 				selectedRow = row;
 				selectedCol = col;
-				legalMoves = getLegalMoves(piece, row, col);   // Get valid moves
+				legalMoves = board.getLegalTargets(row, col);   // Get valid moves
 			}
 		} else {
 			// Second click - attempt move
@@ -65,82 +183,148 @@ public class GUI extends JFrame {
 				// Deselect the piece if clicked again
 				selectedRow = -1;
 				selectedCol = -1;
-				legalMoves.clear();
+				legalMoves = 0;
 			} else {
 				// Store current turn before move
 				boolean wasWhiteTurn = board.isWhiteTurn();
 
-				// Try to move the piece
-				if (board.movePiece(selectedRow, selectedCol, row, col)) {
-					refreshBoard();  // Update the board visually
-
-					// Check the PREVIOUS player's status (the one who just moved)
-					boolean opponentCheckmate = board.isCheckmateFor(!wasWhiteTurn);
-
-					if (opponentCheckmate) {
-						String winner = wasWhiteTurn ? "White" : "Black";
-						JOptionPane.showMessageDialog(this, "Checkmate! " + winner + " wins the game!", "Game Over",
-								JOptionPane.INFORMATION_MESSAGE);
-					}
+				// A pawn reaching the last rank needs a piece chosen first; cancelling abandons the move
+				int promotionType = Position.QUEEN;
+				if (board.isPromotionMove(selectedRow, selectedCol, row, col)) {
+					promotionType = choosePromotion();
+				}
 
+				// Try to move the piece; a move made while looking at an earlier ply replaces the rest of the game
+				int move = promotionType >= 0 ? board.findMove(selectedRow, selectedCol, row, col, promotionType) : Move.NONE;
+				if (move != Move.NONE) {
+					history.play(move);
+					afterMove(wasWhiteTurn);
 				}
 			}
 			// Reset selection regardless of move success
 			selectedRow = -1;
 			selectedCol = -1;
-			legalMoves.clear();
+			legalMoves = 0;
 		}
 		refreshBoard(); // Always refresh to update highlights
 	}
 
-	// Visually updates the board: symbols, square colors, highlights
-	private void refreshBoard() {
-		Piece[][] b = board.getBoard();
+	// Announces a checkmate by the side that just moved, then hands the new position to the engine
+	private void afterMove(boolean wasWhiteTurn) {
+		refreshBoard();  // Update the board visually
+		syncHistoryControls();
 
-		// Detect if current player's king is in check
-		Point checkedKing = board.isKingInCheck(board.isWhiteTurn()) ? findKingPosition(board.isWhiteTurn()) : null;
+		// Check the PREVIOUS player's status (the one who just moved)
+		boolean opponentCheckmate = board.isCheckmateFor(!wasWhiteTurn);
 
-		for (int row = 0; row < 8; row++) {
-			for (int col = 0; col < 8; col++) {
-				JButton btn = squares[row][col];
-				updateButtonIcon(btn, b[row][col]); // Set piece symbol
+		if (opponentCheckmate) {
+			analysis.cancel();
+			engineThinking = false;
+			String winner = wasWhiteTurn ? "White" : "Black";
+			status.setText("Checkmate");
+			JOptionPane.showMessageDialog(this, "Checkmate! " + winner + " wins the game!", "Game Over",
+					JOptionPane.INFORMATION_MESSAGE);
+			return;
+		}
+		startEngine();
+	}
 
-				//Default square color
-				btn.setBackground((row + col) % 2 == 0 ? Color.WHITE : Color.GRAY);
+	// Cancels whatever the engine was doing and starts on the current position: a move of its own
+	// when it is the computer's turn, otherwise analysis for the player if that is switched on.
+	// Returns immediately.
+	private void startEngine() {
+		if (MoveGenerator.generate(board.getPosition(), moveBuffer, 0) == 0) {
+			analysis.cancel();
+			engineThinking = false;
+			status.setText(board.isStalemate() ? "Stalemate" : "Checkmate");
+			return;
+		}
+		engineThinking = computerPlaysBlack.isSelected() && !board.isWhiteTurn() && history.getPly() == history.getLength();
+		if (!engineThinking && !analyse.isSelected()) {
+			analysis.cancel();
+			status.setText(" ");
+			return;
+		}
+		long zobrist = board.getZobristKey();
+		SearchLimits limits = new SearchLimits().moveTime(engineThinking ? ENGINE_MOVE_MILLIS : ANALYSIS_MILLIS);
+		status.setText(engineThinking ? "Thinking..." : "Analysing...");
+		analysis.analyze(board.getPosition(), limits, new AnalysisListener() {
+			@Override
+			public void onIteration(SearchInfo info) {
+				showInfo(info);
+			}
 
-				//Highlight selected piece
-				if (row == selectedRow && col == selectedCol) {
-					btn.setBackground(Color.YELLOW);
+			@Override
+			public void onComplete(SearchInfo info) {
+				showInfo(info);
+				if (engineThinking && board.getZobristKey() == zobrist && info.getBestMove() != Move.NONE) {
+					engineThinking = false;
+					history.play(info.getBestMove());
+					afterMove(false);
 				}
+			}
+		});
+	}
 
-				//Highlight legal move destinations
-				for (Point p : legalMoves) {
-					if (p.x == row && p.y == col) {
-						btn.setBackground(Color.GREEN);
-					}
-				}
+	// Shows one search report in the status line, with the score from White's point of view
+	private void showInfo(SearchInfo info) {
+		int score = board.isWhiteTurn() ? info.getScore() : -info.getScore();
+		String eval = info.isMate() ? "mate " + (board.isWhiteTurn() ? info.getMateIn() : -info.getMateIn())
+				: String.format("%+.2f", score / 100.0);
+		status.setText(String.format("depth %d  %s  best %s  %,d nps", info.getDepth(), eval,
+				Move.toUci(info.getBestMove()), info.getNodesPerSecond()));
+	}
 
-				// Highlight king in red if it's in check
-				if (checkedKing != null && checkedKing.x == row && checkedKing.y == col) {
-					btn.setBackground(Color.RED);
-				}
-			}
+	// Asks which piece a pawn promotes to; returns its Position type, or -1 if the dialog was cancelled
+	private int choosePromotion() {
+		String[] options = { "Queen", "Rook", "Bishop", "Knight" };
+		String choice = (String) JOptionPane.showInputDialog(this, "Promote pawn to:", "Pawn Promotion",
+				JOptionPane.PLAIN_MESSAGE, null, options, options[0]);
+		if (choice == null) {
+			return -1;
+		}
+		switch (choice) {
+		case "Rook":
+			return Position.ROOK;
+		case "Bishop":
+			return Position.BISHOP;
+		case "Knight":
+			return Position.KNIGHT;
+		default:
+			return Position.QUEEN;
 		}
-
 	}
 
-	// Finds the current position of the specified color's king
-	private Point findKingPosition(boolean isWhite) {
+	// Visually updates the board: symbols, square colors, highlights. Only squares whose piece
+	// changed (as reported by the board) or whose highlight comes or goes are touched.
+	private void refreshBoard() {
 		Piece[][] b = board.getBoard();
-		for (int row = 0; row < 8; row++) {
-			for (int col = 0; col < 8; col++) {
-				Piece piece = b[row][col];
-				if (piece instanceof King && piece.isWhite() == isWhite) {
-					return new Point(row, col);  // Return the king's coordinates
-				}
+
+		// Detect if current player's king is in check
+		long checkedKing = board.isKingInCheck(board.isWhiteTurn()) ? 1L << board.getKingSquare(board.isWhiteTurn()) : 0;
+		long selected = selectedRow == -1 ? 0 : 1L << Position.square(selectedRow, selectedCol);
+		long highlights = selected | legalMoves | checkedKing;
+
+		long dirty = board.takeDirtySquares() | highlighted | highlights;
+		highlighted = highlights;
+		for (long bits = dirty; bits != 0; bits &= bits - 1) {
+			int sq = Long.numberOfTrailingZeros(bits);
+			int row = sq / 8, col = sq % 8;
+			JButton btn = squares[row][col];
+			updateButtonIcon(btn, b[row][col]); // Set piece symbol
+
+			// King in check beats selection, which beats legal destinations, which beat the plain color
+			long bit = 1L << sq;
+			if ((checkedKing & bit) != 0) {
+				btn.setBackground(Color.RED);
+			} else if ((selected & bit) != 0) {
+				btn.setBackground(Color.YELLOW);
+			} else if ((legalMoves & bit) != 0) {
+				btn.setBackground(Color.GREEN);
+			} else {
+				btn.setBackground((row + col) % 2 == 0 ? Color.WHITE : Color.GRAY);
 			}
 		}
-		return null;  // Should never happen in a valid game
 	}
 
 	// Sets the button's label to the piece's Unicode symbol (or blank)
@@ -148,42 +332,4 @@ public class GUI extends JFrame {
 		btn.setText(piece == null ? "" : piece.getSymbol());
 	}
 
-	// Returns a list of valid move destinations for a given piece
-	private List<Point> getLegalMoves(Piece piece, int row, int col) {
-		List<Point> moves = new ArrayList<>();
-		Piece[][] b = board.getBoard();
-
-		// Try every square on the board
-		for (int r = 0; r < 8; r++) {
-			for (int c = 0; c < 8; c++) {
-				// Skip current position
-				if (r == row && c == col)
-					continue;
-
-				// Check if the piece is allowed to move there
-				if (piece.isValidMove(r, c, b)) {
-					// Simulate move to check for self-check
-					Piece captured = b[r][c];
-					b[r][c] = piece;
-					b[row][col] = null;
-					piece.setPosition(r, c);
-
-					// Check if the king would be in check after this move
-					boolean legal = !board.isKingInCheck(piece.isWhite());
-
-					// Undo simulation
-					b[row][col] = piece;
-					b[r][c] = captured;
-					piece.setPosition(row, col);
-
-					// Only add it if it's legal
-					if (legal) {
-						moves.add(new Point(r, c));
-					}
-				}
-			}
-		}
-		return moves;
-	}
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,107 @@
+package chess;
+
+import java.util.Arrays;
+
+import chess.pgn.San;
+
+// The moves of one game played on a Board, with random access to any point in it. Seeking walks
+// the board with makeMove/unmakeMove; a FEN snapshot taken every SNAPSHOT_INTERVAL plies lets a
+// long jump restart from the nearest snapshot instead, so no seek costs more than one FEN load and
+// SNAPSHOT_INTERVAL moves however long the game is. Playing a move while looking at an earlier
+// point drops the moves that followed it.
+//
+// A board restarted from a snapshot only remembers positions from that snapshot on, so
+// repetitions across it are not detected until the board is next walked back to the start.
+public class GameHistory {
+
+	public static final int SNAPSHOT_INTERVAL = 32;
+
+	private final Board board;
+	private final int[] scratch = new int[MoveGenerator.MAX_MOVES];
+	private int[] moves = new int[256];
+	private String[] sans = new String[256];
+	private int length;
+	private String[] snapshots = new String[8];     // FEN before ply i * SNAPSHOT_INTERVAL
+	private int basePly;                            // Game ply of the board's oldest undoable position
+
+	// Starts an empty history at the board's current position
+	public GameHistory(Board board) {
+		this.board = board;
+		clear();
+	}
+
+	// Forgets all moves; the board's current position becomes the start of the game
+	public void clear() {
+		length = 0;
+		basePly = board.getPly();
+		Arrays.fill(snapshots, null);
+		snapshots[0] = board.toFen();
+		if (basePly > 0) {
+			board.loadFen(snapshots[0]);
+			basePly = 0;
+		}
+	}
+
+	// Plays a legal move on the board at the current ply, discarding any moves after it
+	public void play(int move) {
+		int ply = getPly();
+		length = ply;
+		if (length == moves.length) {
+			moves = Arrays.copyOf(moves, length * 2);
+			sans = Arrays.copyOf(sans, length * 2);
+		}
+		moves[length] = move;
+		sans[length] = San.toSan(board.getPosition(), move, scratch);
+		length++;
+		board.makeMove(move);
+
+		// Keep the snapshots in step with the (possibly rewritten) game
+		int snapshot = length / SNAPSHOT_INTERVAL;
+		if (length % SNAPSHOT_INTERVAL == 0) {
+			if (snapshot == snapshots.length)
+				snapshots = Arrays.copyOf(snapshots, snapshot * 2);
+			snapshots[snapshot] = board.toFen();
+		}
+	}
+
+	// Moves the board to the position after the first ply moves (clamped to the game)
+	public void seek(int ply) {
+		ply = Math.max(0, Math.min(length, ply));
+		int current = getPly();
+
+		// Walk directly when that is cheaper than loading the nearest snapshot and walking from it
+		int snapshot = ply / SNAPSHOT_INTERVAL;
+		int fromSnapshot = 1 + ply - snapshot * SNAPSHOT_INTERVAL;
+		if (ply >= basePly && Math.abs(ply - current) <= fromSnapshot) {
+			while (current > ply) {
+				board.unmakeMove();
+				current--;
+			}
+		} else {
+			board.loadFen(snapshots[snapshot]);
+			basePly = current = snapshot * SNAPSHOT_INTERVAL;
+		}
+		while (current < ply)
+			board.makeMove(moves[current++]);
+	}
+
+	// Number of moves played before the position on the board
+	public int getPly() {
+		return basePly + board.getPly();
+	}
+
+	// Number of moves in the game
+	public int getLength() {
+		return length;
+	}
+
+	public int getMove(int ply) {
+		return moves[ply];
+	}
+
+	// Standard algebraic notation of a move, e.g. "Nxe5+"
+	public String getSan(int ply) {
+		return sans[ply];
+	}
+
+}
@@ -42,4 +42,10 @@ public class King extends Piece {
 		return isWhite ? "\u2654" : "\u265A";
 	}
 
+	// Returns the bitboard piece type for the king
+	@Override
+	public int getType() {
+		return Position.KING;
+	}
+
 }
@@ -28,4 +28,10 @@ public class Knight extends Piece {
 		return isWhite ? "\u2658" : "\u265E";
 	}
 
+	// Returns the bitboard piece type for the knight
+	@Override
+	public int getType() {
+		return Position.KNIGHT;
+	}
+
 }
@@ -0,0 +1,97 @@
+package chess;
+
+// Moves are packed into 16 bits of an int: from square (bits 0-5), to square (bits 6-11)
+// and a 4-bit flag (bits 12-15) telling captures, castling, en passant and promotions apart.
+// Squares use Position's row * 8 + col indexing.
+public final class Move {
+
+	public static final int NONE = 0;           // a8-a8 can never be a real move
+
+	// Flag values
+	public static final int QUIET = 0;
+	public static final int DOUBLE_PUSH = 1;
+	public static final int KING_CASTLE = 2;
+	public static final int QUEEN_CASTLE = 3;
+	public static final int CAPTURE = 4;
+	public static final int EN_PASSANT = 5;
+	public static final int PROMOTION = 8;      // Plus (type - KNIGHT), plus CAPTURE for capture-promotions
+
+	private Move() {
+	}
+
+	public static int encode(int from, int to, int flags) {
+		return from | (to << 6) | (flags << 12);
+	}
+
+	public static int from(int move) {
+		return move & 63;
+	}
+
+	public static int to(int move) {
+		return (move >>> 6) & 63;
+	}
+
+	public static int flags(int move) {
+		return (move >>> 12) & 15;
+	}
+
+	public static boolean isCapture(int move) {
+		return (flags(move) & CAPTURE) != 0;
+	}
+
+	public static boolean isPromotion(int move) {
+		return (flags(move) & PROMOTION) != 0;
+	}
+
+	public static boolean isCastle(int move) {
+		int flags = flags(move);
+		return flags == KING_CASTLE || flags == QUEEN_CASTLE;
+	}
+
+	// Piece type a promotion turns into (only meaningful if isPromotion)
+	public static int promotionType(int move) {
+		return Position.KNIGHT + (flags(move) & 3);
+	}
+
+	// Flags for a promotion to the given piece type
+	public static int promotionFlags(int type, boolean capture) {
+		return PROMOTION | (type - Position.KNIGHT) | (capture ? CAPTURE : 0);
+	}
+
+	// Algebraic name of a square, e.g. 60 -> "e1"
+	public static String squareName(int sq) {
+		return "" + (char) ('a' + (sq & 7)) + (char) ('8' - (sq >> 3));
+	}
+
+	// Square index for an algebraic name such as "e1" at s[i, i + 2), or -1 if it is not one
+	public static int parseSquare(CharSequence s, int i) {
+		if (i + 1 >= s.length())
+			return -1;
+		int col = s.charAt(i) - 'a', row = '8' - s.charAt(i + 1);
+		return col < 0 || col > 7 || row < 0 || row > 7 ? -1 : Position.square(row, col);
+	}
+
+	// Returns the legal move in pos written in UCI notation ("e2e4", "e7e8q"), or NONE if there is
+	// none. moves is scratch space for the generator.
+	public static int fromUci(Position pos, CharSequence uci, int[] moves) {
+		int from = parseSquare(uci, 0), to = parseSquare(uci, 2);
+		if (from < 0 || to < 0 || pos.pieceAt(from) == Position.EMPTY
+				|| Position.colorOf(pos.pieceAt(from)) != pos.sideToMove())
+			return NONE;
+		int promotion = uci.length() > 4 ? Position.KNIGHT + "nbrq".indexOf(Character.toLowerCase(uci.charAt(4))) : -1;
+		int count = MoveGenerator.generatePiece(pos, from, moves, 0);
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			if (to(move) == to && (isPromotion(move) ? promotionType(move) == promotion : promotion < 0))
+				return move;
+		}
+		return NONE;
+	}
+
+	// Long algebraic (UCI) notation, e.g. "e2e4" or "e7e8q"
+	public static String toUci(int move) {
+		String uci = squareName(from(move)) + squareName(to(move));
+		return isPromotion(move) ? uci + "nbrq".charAt(promotionType(move) - Position.KNIGHT) : uci;
+	}
+
+}
@@ -0,0 +1,222 @@
+package chess;
+
+// Legal move generator over the bitboard Position.
+// Knights and kings use the precomputed attack tables and sliders use ray walks. Legality is
+// filtered with a check mask (the squares that resolve a single check) and pin lines, so moves
+// are never played out just to test whether the king is left in check.
+public final class MoveGenerator {
+
+	public static final int MAX_MOVES = 256;   // Upper bound on legal moves in any position
+
+	private static final long[] BETWEEN = new long[64 * 64];  // Squares strictly between two aligned squares
+	private static final long[] LINE = new long[64 * 64];     // Whole board line through two aligned squares
+
+	static {
+		for (int a = 0; a < 64; a++) {
+			for (int b = 0; b < 64; b++) {
+				long aBit = 1L << a, bBit = 1L << b;
+				if (a == b)
+					continue;
+				if ((Attacks.rook(a, 0L) & bBit) != 0) {
+					BETWEEN[a * 64 + b] = Attacks.rook(a, bBit) & Attacks.rook(b, aBit);
+					LINE[a * 64 + b] = (Attacks.rook(a, 0L) & Attacks.rook(b, 0L)) | aBit | bBit;
+				} else if ((Attacks.bishop(a, 0L) & bBit) != 0) {
+					BETWEEN[a * 64 + b] = Attacks.bishop(a, bBit) & Attacks.bishop(b, aBit);
+					LINE[a * 64 + b] = (Attacks.bishop(a, 0L) & Attacks.bishop(b, 0L)) | aBit | bBit;
+				}
+			}
+		}
+	}
+
+	private MoveGenerator() {
+	}
+
+	// Writes every legal move for the side to move into moves; returns how many were written
+	public static int generate(Position pos, int[] moves) {
+		return generate(pos, pos.sideToMove(), moves, 0, ~0L, false);
+	}
+
+	// Writes every legal move for the side to move starting at index start; returns the end index
+	public static int generate(Position pos, int[] moves, int start) {
+		return generate(pos, pos.sideToMove(), moves, start, ~0L, false);
+	}
+
+	// Writes the legal moves of the piece on sq starting at index start; returns the end index
+	public static int generatePiece(Position pos, int sq, int[] moves, int start) {
+		return generate(pos, Position.colorOf(pos.pieceAt(sq)), moves, start, 1L << sq, false);
+	}
+
+	// Writes every legal move of the given color, whether or not it is that side's turn
+	public static int generate(Position pos, int color, int[] moves, int start) {
+		return generate(pos, color, moves, start, ~0L, false);
+	}
+
+	// Writes the legal captures, en passant captures and queen promotions for the side to move
+	// starting at index start; returns the end index (used by quiescence search)
+	public static int generateCaptures(Position pos, int[] moves, int start) {
+		return generate(pos, pos.sideToMove(), moves, start, ~0L, true);
+	}
+
+	// Core generator: fromMask limits which of our pieces are moved, captures limits the output to
+	// captures and queen promotions
+	private static int generate(Position pos, int us, int[] moves, int n, long fromMask, boolean captures) {
+		int them = us ^ 1;
+		long own = pos.occupancy(us), enemy = pos.occupancy(them), all = pos.occupied();
+		int king = pos.kingSquare(us);
+		if (king < 0)
+			return n;
+		long checkers = pos.attackersTo(king, them, all);
+
+		// King steps: the destination must stay unattacked once the king has left its square
+		if ((fromMask & (1L << king)) != 0) {
+			long targets = Attacks.KING[king] & (captures ? enemy : ~own);
+			long occ = all ^ (1L << king);
+			while (targets != 0) {
+				int to = Long.numberOfTrailingZeros(targets);
+				targets &= targets - 1;
+				if (pos.attackersTo(to, them, occ) == 0)
+					moves[n++] = Move.encode(king, to, (enemy & (1L << to)) != 0 ? Move.CAPTURE : Move.QUIET);
+			}
+			if (checkers == 0 && !captures)
+				n = castling(pos, us, king, moves, n);
+		}
+
+		// In double check only the king may move
+		if (Long.bitCount(checkers) > 1)
+			return n;
+
+		// Non-king moves must capture the checker or block its ray
+		long checkMask = checkers == 0 ? ~0L : checkers | BETWEEN[king * 64 + Long.numberOfTrailingZeros(checkers)];
+		long pinned = pinned(pos, us, king);
+		long mask = checkMask & (captures ? enemy : ~own);
+
+		// Knights: a pinned knight can never move
+		long knights = pos.pieces(us, Position.KNIGHT) & ~pinned & fromMask;
+		while (knights != 0) {
+			int from = Long.numberOfTrailingZeros(knights);
+			knights &= knights - 1;
+			n = addMoves(from, Attacks.KNIGHT[from] & mask, enemy, moves, n);
+		}
+
+		// Sliders: pinned pieces stay on the line through their king
+		long diagonal = (pos.pieces(us, Position.BISHOP) | pos.pieces(us, Position.QUEEN)) & fromMask;
+		while (diagonal != 0) {
+			int from = Long.numberOfTrailingZeros(diagonal);
+			diagonal &= diagonal - 1;
+			long targets = Attacks.bishop(from, all) & mask;
+			if ((pinned & (1L << from)) != 0)
+				targets &= LINE[king * 64 + from];
+			n = addMoves(from, targets, enemy, moves, n);
+		}
+		long straight = (pos.pieces(us, Position.ROOK) | pos.pieces(us, Position.QUEEN)) & fromMask;
+		while (straight != 0) {
+			int from = Long.numberOfTrailingZeros(straight);
+			straight &= straight - 1;
+			long targets = Attacks.rook(from, all) & mask;
+			if ((pinned & (1L << from)) != 0)
+				targets &= LINE[king * 64 + from];
+			n = addMoves(from, targets, enemy, moves, n);
+		}
+
+		return pawnMoves(pos, us, king, pinned, checkMask, pos.pieces(us, Position.PAWN) & fromMask, captures, moves, n);
+	}
+
+	// Pieces of color us that are pinned against their own king
+	private static long pinned(Position pos, int us, int king) {
+		int them = us ^ 1;
+		long enemy = pos.occupancy(them);
+		long queens = pos.pieces(them, Position.QUEEN);
+		long snipers = (Attacks.rook(king, enemy) & (pos.pieces(them, Position.ROOK) | queens))
+				| (Attacks.bishop(king, enemy) & (pos.pieces(them, Position.BISHOP) | queens));
+		long pinned = 0;
+		while (snipers != 0) {
+			int sniper = Long.numberOfTrailingZeros(snipers);
+			snipers &= snipers - 1;
+			long blockers = BETWEEN[king * 64 + sniper] & pos.occupied();
+			if (Long.bitCount(blockers) == 1)
+				pinned |= blockers & pos.occupancy(us);
+		}
+		return pinned;
+	}
+
+	// Pushes, double pushes, captures, promotions and en passant
+	private static int pawnMoves(Position pos, int us, int king, long pinned, long checkMask, long pawns,
+			boolean captures, int[] moves, int n) {
+		int them = us ^ 1;
+		long enemy = pos.occupancy(them), all = pos.occupied();
+		int push = us == Position.WHITE ? -8 : 8;
+		int startRow = us == Position.WHITE ? 6 : 1;
+		int promotionRow = us == Position.WHITE ? 0 : 7;
+		int ep = us == pos.sideToMove() ? pos.epSquare() : -1;
+
+		while (pawns != 0) {
+			int from = Long.numberOfTrailingZeros(pawns);
+			pawns &= pawns - 1;
+			long pinLine = (pinned & (1L << from)) != 0 ? LINE[king * 64 + from] : ~0L;
+
+			long targets = Attacks.PAWN[us][from] & enemy;
+			int one = from + push;
+			if ((all & (1L << one)) == 0 && (!captures || one >> 3 == promotionRow)) {
+				targets |= 1L << one;
+				if (from >> 3 == startRow && (all & (1L << (one + push))) == 0 && !captures)
+					targets |= 1L << (one + push);
+			}
+			targets &= checkMask & pinLine;
+
+			while (targets != 0) {
+				int to = Long.numberOfTrailingZeros(targets);
+				targets &= targets - 1;
+				boolean capture = (enemy & (1L << to)) != 0;
+				if (to >> 3 == promotionRow) {
+					for (int type = Position.QUEEN; type >= (captures ? Position.QUEEN : Position.KNIGHT); type--)
+						moves[n++] = Move.encode(from, to, Move.promotionFlags(type, capture));
+				} else if (capture) {
+					moves[n++] = Move.encode(from, to, Move.CAPTURE);
+				} else {
+					moves[n++] = Move.encode(from, to, to - from == 2 * push ? Move.DOUBLE_PUSH : Move.QUIET);
+				}
+			}
+
+			// En passant removes two pawns from one rank at once, so test it on the resulting occupancy
+			if (ep >= 0 && (Attacks.PAWN[us][from] & (1L << ep)) != 0) {
+				int captured = ep - push;
+				long occ = (all ^ (1L << from) ^ (1L << captured)) | (1L << ep);
+				if ((pos.attackersTo(king, them, occ) & ~(1L << captured)) == 0)
+					moves[n++] = Move.encode(from, ep, Move.EN_PASSANT);
+			}
+		}
+		return n;
+	}
+
+	// Castling: rights kept, rook in its corner, squares between empty and king path not attacked
+	private static int castling(Position pos, int us, int king, int[] moves, int n) {
+		int home = us == Position.WHITE ? 60 : 4;
+		if (king != home)
+			return n;
+		int rights = pos.castlingRights();
+		int rook = Position.piece(us, Position.ROOK);
+		int them = us ^ 1;
+		long all = pos.occupied();
+		int kingSide = us == Position.WHITE ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+		int queenSide = us == Position.WHITE ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+
+		if ((rights & kingSide) != 0 && pos.pieceAt(home + 3) == rook && (all & (3L << (home + 1))) == 0
+				&& !pos.isSquareAttacked(home + 1, them) && !pos.isSquareAttacked(home + 2, them))
+			moves[n++] = Move.encode(home, home + 2, Move.KING_CASTLE);
+		if ((rights & queenSide) != 0 && pos.pieceAt(home - 4) == rook && (all & (7L << (home - 3))) == 0
+				&& !pos.isSquareAttacked(home - 1, them) && !pos.isSquareAttacked(home - 2, them))
+			moves[n++] = Move.encode(home, home - 2, Move.QUEEN_CASTLE);
+		return n;
+	}
+
+	// Appends one move per target square, flagging captures of enemy pieces
+	private static int addMoves(int from, long targets, long enemy, int[] moves, int n) {
+		while (targets != 0) {
+			int to = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			moves[n++] = Move.encode(from, to, (enemy & (1L << to)) != 0 ? Move.CAPTURE : Move.QUIET);
+		}
+		return n;
+	}
+
+}
@@ -39,4 +39,10 @@ public class Pawn extends Piece {
 		return isWhite ? "\u2659" : "\u265F";
 	}
 
+	// Returns the bitboard piece type for the pawn
+	@Override
+	public int getType() {
+		return Position.PAWN;
+	}
+
 }
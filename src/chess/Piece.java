@@ -36,6 +36,38 @@ public abstract class Piece {
 	// Abstract method: must return the Unicode symbol representing the piece
 	public abstract String getSymbol();
 
+	// Abstract method: must return the piece type constant used by the bitboard Position
+	public abstract int getType();
+
+	// Shared sliding rule for rooks, bishops and queens: every square strictly between (row, col) and
+	// (destRow, destCol) must be empty, and the destination must be empty or hold an opponent's piece.
+	// Callers check that the destination lies on a straight or diagonal line first.
+	protected static boolean isSlideClear(int row, int col, int destRow, int destCol, boolean isWhite, Piece[][] board) {
+		// Determine direction of movement
+		int stepRow = Integer.compare(destRow, row);
+		int stepCol = Integer.compare(destCol, col);
+
+		// Traverse the path toward the destination; any occupied square blocks the move
+		int r = row + stepRow, c = col + stepCol;
+		while (r != destRow || c != destCol) {
+			if (board[r][c] != null)
+				return false;
+			r += stepRow;
+			c += stepCol;
+		}
+		return board[destRow][destCol] == null || board[destRow][destCol].isWhite() != isWhite;
+	}
+
+	// True if the destination is on the same row or column
+	protected boolean isStraightLine(int destRow, int destCol) {
+		return row == destRow || col == destCol;
+	}
+
+	// True if the destination is on one of the piece's diagonals
+	protected boolean isDiagonalLine(int destRow, int destCol) {
+		return Math.abs(destRow - row) == Math.abs(destCol - col);
+	}
+
 	// Sets the hasMoved flag (true after the piece moves)
 	public void setMoved(boolean moved) {
 		this.hasMoved = moved;
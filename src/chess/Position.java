@@ -0,0 +1,421 @@
+package chess;
+
+import java.util.Arrays;
+
+// Bitboard representation of a position: one 64-bit mask per piece type and color plus occupancy masks.
+// Square index is row * 8 + col, matching Board's board[row][col] layout (row 0 is black's back rank).
+public class Position {
+
+	// Colors and piece types; a piece code is color * 6 + type
+	public static final int WHITE = 0, BLACK = 1;
+	public static final int PAWN = 0, KNIGHT = 1, BISHOP = 2, ROOK = 3, QUEEN = 4, KING = 5;
+	public static final int EMPTY = -1;
+
+	// Castling right bits
+	public static final int WHITE_KINGSIDE = 1, WHITE_QUEENSIDE = 2, BLACK_KINGSIDE = 4, BLACK_QUEENSIDE = 8;
+
+	// Rights kept when a piece leaves or lands on each square (corners and king squares clear theirs)
+	private static final int[] CASTLING_MASK = new int[64];
+
+	static {
+		Arrays.fill(CASTLING_MASK, 15);
+		CASTLING_MASK[0] = 15 & ~BLACK_QUEENSIDE;
+		CASTLING_MASK[4] = 15 & ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+		CASTLING_MASK[7] = 15 & ~BLACK_KINGSIDE;
+		CASTLING_MASK[56] = 15 & ~WHITE_QUEENSIDE;
+		CASTLING_MASK[60] = 15 & ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+		CASTLING_MASK[63] = 15 & ~WHITE_KINGSIDE;
+	}
+
+	private final long[] pieces = new long[12];     // One mask per piece code
+	private final long[] occupancy = new long[2];   // All pieces of each color
+	private long occupied;                          // All pieces on the board
+	private final byte[] mailbox = new byte[64];    // Piece code on each square, or EMPTY
+	private final int[] kingSquares = { -1, -1 };   // Tracked on every put/remove so kings are never searched for
+	private final long[] attackMaps = new long[2];  // Squares each color attacks
+	private int validAttackMaps;                    // Bit per color whose attack map is current
+	private int sideToMove = WHITE;
+	private int castlingRights;                     // Combination of the castling right bits
+	private int epSquare = -1;                      // Square a pawn skipped with a double push, or -1
+	private int halfmoveClock;                      // Plies since the last capture or pawn move
+	private int fullmoveNumber = 1;
+	private long key;                               // Zobrist key without the en passant part, see key()
+
+	// Undo stack of primitive records, one entry per made move: the move itself, the captured piece
+	// code and the packed castling rights / en passant square / halfmove clock it overwrote
+	private static final int INITIAL_UNDO_CAPACITY = 1024;
+	private int[] undoMoves = new int[INITIAL_UNDO_CAPACITY];
+	private int[] undoStates = new int[INITIAL_UNDO_CAPACITY];
+	private byte[] undoCaptured = new byte[INITIAL_UNDO_CAPACITY];
+	private long[] undoKeys = new long[INITIAL_UNDO_CAPACITY];
+	private int ply;
+
+	// Creates an empty position
+	public Position() {
+		clear();
+	}
+
+	// Removes every piece from the position
+	public void clear() {
+		Arrays.fill(pieces, 0L);
+		occupancy[WHITE] = occupancy[BLACK] = occupied = 0L;
+		Arrays.fill(mailbox, (byte) EMPTY);
+		kingSquares[WHITE] = kingSquares[BLACK] = -1;
+		validAttackMaps = 0;
+		sideToMove = WHITE;
+		castlingRights = 0;
+		epSquare = -1;
+		halfmoveClock = 0;
+		fullmoveNumber = 1;
+		key = 0L;
+		ply = 0;
+	}
+
+	// Makes this position an exact copy of another, including its undo stack (so repetitions of
+	// positions played before the copy are still detected)
+	public void copyFrom(Position other) {
+		System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+		occupancy[WHITE] = other.occupancy[WHITE];
+		occupancy[BLACK] = other.occupancy[BLACK];
+		occupied = other.occupied;
+		System.arraycopy(other.mailbox, 0, mailbox, 0, mailbox.length);
+		kingSquares[WHITE] = other.kingSquares[WHITE];
+		kingSquares[BLACK] = other.kingSquares[BLACK];
+		validAttackMaps = 0;
+		sideToMove = other.sideToMove;
+		castlingRights = other.castlingRights;
+		epSquare = other.epSquare;
+		halfmoveClock = other.halfmoveClock;
+		fullmoveNumber = other.fullmoveNumber;
+		key = other.key;
+		if (undoMoves.length < other.undoMoves.length) {
+			undoMoves = new int[other.undoMoves.length];
+			undoStates = new int[other.undoMoves.length];
+			undoCaptured = new byte[other.undoMoves.length];
+			undoKeys = new long[other.undoMoves.length];
+		}
+		ply = other.ply;
+		System.arraycopy(other.undoMoves, 0, undoMoves, 0, ply);
+		System.arraycopy(other.undoStates, 0, undoStates, 0, ply);
+		System.arraycopy(other.undoCaptured, 0, undoCaptured, 0, ply);
+		System.arraycopy(other.undoKeys, 0, undoKeys, 0, ply);
+	}
+
+	// Square index helpers
+	public static int square(int row, int col) {
+		return row * 8 + col;
+	}
+
+	public static int piece(int color, int type) {
+		return color * 6 + type;
+	}
+
+	public static int colorOf(int piece) {
+		return piece < 6 ? WHITE : BLACK;
+	}
+
+	public static int typeOf(int piece) {
+		return piece < 6 ? piece : piece - 6;
+	}
+
+	// Places a piece code on an empty square
+	public void put(int sq, int piece) {
+		long bit = 1L << sq;
+		pieces[piece] |= bit;
+		occupancy[colorOf(piece)] |= bit;
+		occupied |= bit;
+		mailbox[sq] = (byte) piece;
+		key ^= Zobrist.piece(piece, sq);
+		if (typeOf(piece) == KING)
+			kingSquares[colorOf(piece)] = sq;
+		validAttackMaps = 0;
+	}
+
+	// Removes and returns the piece on a square (EMPTY if there was none)
+	public int remove(int sq) {
+		int piece = mailbox[sq];
+		if (piece != EMPTY) {
+			long bit = ~(1L << sq);
+			pieces[piece] &= bit;
+			occupancy[colorOf(piece)] &= bit;
+			occupied &= bit;
+			mailbox[sq] = (byte) EMPTY;
+			key ^= Zobrist.piece(piece, sq);
+			if (typeOf(piece) == KING && kingSquares[colorOf(piece)] == sq)
+				kingSquares[colorOf(piece)] = -1;
+			validAttackMaps = 0;
+		}
+		return piece;
+	}
+
+	// Moves the piece on from to an empty square
+	public void move(int from, int to) {
+		put(to, remove(from));
+	}
+
+	// Returns the piece code on a square, or EMPTY
+	public int pieceAt(int sq) {
+		return mailbox[sq];
+	}
+
+	public long pieces(int color, int type) {
+		return pieces[piece(color, type)];
+	}
+
+	public long occupancy(int color) {
+		return occupancy[color];
+	}
+
+	public long occupied() {
+		return occupied;
+	}
+
+	public int sideToMove() {
+		return sideToMove;
+	}
+
+	public void setSideToMove(int color) {
+		key ^= Zobrist.sideToMove(sideToMove) ^ Zobrist.sideToMove(color);
+		sideToMove = color;
+	}
+
+	public int castlingRights() {
+		return castlingRights;
+	}
+
+	public void setCastlingRights(int rights) {
+		key ^= Zobrist.castling(castlingRights) ^ Zobrist.castling(rights);
+		castlingRights = rights;
+	}
+
+	public int epSquare() {
+		return epSquare;
+	}
+
+	public void setEpSquare(int sq) {
+		epSquare = sq;
+	}
+
+	public int halfmoveClock() {
+		return halfmoveClock;
+	}
+
+	public void setHalfmoveClock(int plies) {
+		halfmoveClock = plies;
+	}
+
+	public int fullmoveNumber() {
+		return fullmoveNumber;
+	}
+
+	public void setFullmoveNumber(int number) {
+		fullmoveNumber = number;
+	}
+
+	// Zobrist key identifying this position (pieces, side to move, castling rights, en passant file).
+	// The en passant file only counts when a pawn of the side to move could take there, so the
+	// position after 1.d4 e6 2.e4 has the same key as after 1.e4 e6 2.d4.
+	public long key() {
+		return key ^ enPassantKey();
+	}
+
+	// Zobrist part of the en passant square, or 0 if there is none or no pawn attacks it
+	private long enPassantKey() {
+		if (epSquare < 0)
+			return 0L;
+		int us = sideToMove;
+		return (Attacks.PAWN[us ^ 1][epSquare] & pieces(us, PAWN)) != 0 ? Zobrist.enPassant(epSquare) : 0L;
+	}
+
+	// Number of earlier positions on the undo stack with the same key. Only positions since the last
+	// capture or pawn move can repeat, and only those with the same side to move, so every other
+	// entry is checked back to the halfmove clock.
+	public int repetitions() {
+		int count = 0;
+		int limit = Math.max(0, ply - halfmoveClock);
+		for (int i = ply - 2; i >= limit; i -= 2) {
+			if (undoKeys[i] == key())
+				count++;
+		}
+		return count;
+	}
+
+	// Returns the king's square for a color, or -1 if it has no king
+	public int kingSquare(int color) {
+		return kingSquares[color];
+	}
+
+	// Returns every square the given color attacks. Each side's map is rebuilt at most once per move,
+	// on the first query after the pieces changed, and later queries answer from the cached mask.
+	public long attackMap(int color) {
+		if ((validAttackMaps & (1 << color)) == 0) {
+			attackMaps[color] = computeAttacks(color);
+			validAttackMaps |= 1 << color;
+		}
+		return attackMaps[color];
+	}
+
+	// Union of the attacks of every piece of one color
+	private long computeAttacks(int color) {
+		int base = color * 6;
+		long attacks = 0;
+		for (long bb = pieces[base + PAWN]; bb != 0; bb &= bb - 1)
+			attacks |= Attacks.PAWN[color][Long.numberOfTrailingZeros(bb)];
+		for (long bb = pieces[base + KNIGHT]; bb != 0; bb &= bb - 1)
+			attacks |= Attacks.KNIGHT[Long.numberOfTrailingZeros(bb)];
+		for (long bb = pieces[base + BISHOP] | pieces[base + QUEEN]; bb != 0; bb &= bb - 1)
+			attacks |= Attacks.bishop(Long.numberOfTrailingZeros(bb), occupied);
+		for (long bb = pieces[base + ROOK] | pieces[base + QUEEN]; bb != 0; bb &= bb - 1)
+			attacks |= Attacks.rook(Long.numberOfTrailingZeros(bb), occupied);
+		if (kingSquares[color] >= 0)
+			attacks |= Attacks.KING[kingSquares[color]];
+		return attacks;
+	}
+
+	// Returns all pieces of byColor attacking sq, with sliders blocked by the given occupancy
+	public long attackersTo(int sq, int byColor, long occ) {
+		int base = byColor * 6;
+		return (Attacks.PAWN[byColor ^ 1][sq] & pieces[base + PAWN])
+				| (Attacks.KNIGHT[sq] & pieces[base + KNIGHT])
+				| (Attacks.KING[sq] & pieces[base + KING])
+				| (Attacks.bishop(sq, occ) & (pieces[base + BISHOP] | pieces[base + QUEEN]))
+				| (Attacks.rook(sq, occ) & (pieces[base + ROOK] | pieces[base + QUEEN]));
+	}
+
+	// True if any piece of byColor attacks sq
+	public boolean isSquareAttacked(int sq, int byColor) {
+		return (attackMap(byColor) & (1L << sq)) != 0;
+	}
+
+	// True if the king of the given color is attacked
+	public boolean isInCheck(int color) {
+		int king = kingSquare(color);
+		return king >= 0 && isSquareAttacked(king, color ^ 1);
+	}
+
+	// True if moving the piece on from to the square to would leave its own king attacked.
+	// Works on copies of the masks only, so the position itself is not touched.
+	public boolean leavesKingInCheck(int from, int to) {
+		int piece = mailbox[from];
+		int color = colorOf(piece);
+		long toBit = 1L << to;
+		long occ = (occupied & ~(1L << from)) | toBit;
+		int king = typeOf(piece) == KING ? to : kingSquare(color);
+		return king >= 0 && (attackersTo(king, color ^ 1, occ) & ~toBit) != 0;
+	}
+
+	// Plays a legal move produced by MoveGenerator, pushing what unmakeMove needs onto the undo stack
+	public void makeMove(int move) {
+		int from = Move.from(move), to = Move.to(move), flags = Move.flags(move);
+		int us = sideToMove;
+		int moved = mailbox[from];
+
+		if (ply == undoMoves.length)
+			growUndoStack();
+		undoMoves[ply] = move;
+		undoStates[ply] = castlingRights | (epSquare + 1) << 4 | halfmoveClock << 11;
+		undoKeys[ply] = key();
+
+		int captured = EMPTY;
+		if (flags == Move.EN_PASSANT)
+			captured = remove(to + (us == WHITE ? 8 : -8));
+		else if (Move.isCapture(move))
+			captured = remove(to);
+		undoCaptured[ply++] = (byte) captured;
+		move(from, to);
+
+		if (Move.isPromotion(move)) {
+			remove(to);
+			put(to, piece(us, Move.promotionType(move)));
+		} else if (flags == Move.KING_CASTLE) {
+			move(to + 1, to - 1);
+		} else if (flags == Move.QUEEN_CASTLE) {
+			move(to - 2, to + 1);
+		}
+
+		halfmoveClock = typeOf(moved) == PAWN || captured != EMPTY ? 0 : halfmoveClock + 1;
+		int rights = castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to];
+		int ep = flags == Move.DOUBLE_PUSH ? (from + to) >> 1 : -1;
+		key ^= Zobrist.castling(castlingRights) ^ Zobrist.castling(rights) ^ Zobrist.BLACK_TO_MOVE;
+		castlingRights = rights;
+		epSquare = ep;
+		if (us == BLACK)
+			fullmoveNumber++;
+		sideToMove = us ^ 1;
+	}
+
+	// Takes back the last move made with makeMove, restoring rights, en passant square and clocks
+	public void unmakeMove() {
+		int move = undoMoves[--ply];
+		int state = undoStates[ply];
+		int captured = undoCaptured[ply];
+		int from = Move.from(move), to = Move.to(move), flags = Move.flags(move);
+		int us = sideToMove ^ 1;
+
+		if (Move.isPromotion(move)) {
+			remove(to);
+			put(to, piece(us, PAWN));
+		} else if (flags == Move.KING_CASTLE) {
+			move(to - 1, to + 1);
+		} else if (flags == Move.QUEEN_CASTLE) {
+			move(to + 1, to - 2);
+		}
+		move(to, from);
+
+		if (flags == Move.EN_PASSANT)
+			put(to + (us == WHITE ? 8 : -8), captured);
+		else if (captured != EMPTY)
+			put(to, captured);
+
+		castlingRights = state & 15;
+		epSquare = ((state >>> 4) & 127) - 1;
+		halfmoveClock = state >>> 11;
+		if (us == BLACK)
+			fullmoveNumber--;
+		sideToMove = us;
+		key = undoKeys[ply] ^ enPassantKey();
+	}
+
+	// Passes the turn without moving (used by null-move pruning); undo with unmakeNullMove
+	public void makeNullMove() {
+		if (ply == undoMoves.length)
+			growUndoStack();
+		undoMoves[ply] = Move.NONE;
+		undoStates[ply] = castlingRights | (epSquare + 1) << 4 | halfmoveClock << 11;
+		undoCaptured[ply] = (byte) EMPTY;
+		undoKeys[ply++] = key();
+		key ^= Zobrist.BLACK_TO_MOVE;
+		epSquare = -1;
+		halfmoveClock++;
+		sideToMove ^= 1;
+	}
+
+	// Takes back a null move made with makeNullMove
+	public void unmakeNullMove() {
+		int state = undoStates[--ply];
+		epSquare = ((state >>> 4) & 127) - 1;
+		halfmoveClock = state >>> 11;
+		sideToMove ^= 1;
+		key = undoKeys[ply] ^ enPassantKey();
+	}
+
+	// Number of moves on the undo stack
+	public int ply() {
+		return ply;
+	}
+
+	// Returns the move made ply plies after the undo stack was last cleared
+	public int moveAt(int ply) {
+		return undoMoves[ply];
+	}
+
+	// Doubles the undo stack; only reached by games longer than the initial capacity
+	private void growUndoStack() {
+		int capacity = undoMoves.length * 2;
+		undoMoves = Arrays.copyOf(undoMoves, capacity);
+		undoStates = Arrays.copyOf(undoStates, capacity);
+		undoCaptured = Arrays.copyOf(undoCaptured, capacity);
+		undoKeys = Arrays.copyOf(undoKeys, capacity);
+	}
+
+}
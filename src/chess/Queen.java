@@ -10,9 +10,9 @@ public class Queen extends Piece {
 	// Determines whether the queen can legally move to the specified destination
 	@Override
 	public boolean isValidMove(int destRow, int destCol, Piece[][] board) {
-		// Reuse Rook and Bishop logic for horizontal/vertical/diagonal movement
-		return new Rook(row, col, isWhite).isValidMove(destRow, destCol, board)
-				|| new Bishop(row, col, isWhite).isValidMove(destRow, destCol, board);
+		// Same sliding rule as the rook and bishop, without creating helper pieces
+		return (isStraightLine(destRow, destCol) || isDiagonalLine(destRow, destCol))
+				&& isSlideClear(row, col, destRow, destCol, isWhite, board);
 	}
 
 	// Returns the Unicode symbol for the queen
@@ -21,4 +21,10 @@ public class Queen extends Piece {
 		return isWhite ? "\u2655" : "\u265B";
 	}
 
+	// Returns the bitboard piece type for the queen
+	@Override
+	public int getType() {
+		return Position.QUEEN;
+	}
+
 }
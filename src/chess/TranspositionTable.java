@@ -0,0 +1,125 @@
+package chess;
+
+import java.util.Arrays;
+
+// Fixed-size transposition table keyed on Zobrist keys.
+// Each entry is two longs: the data word and (key XOR data). Readers accept an entry only if
+// the XOR recombines to the probed key, so an entry torn by two threads writing at once simply
+// reads as a miss and the table can be shared between search threads without any locking.
+// Entries live in buckets of two: the first slot keeps the deepest result (or any result from
+// an older search), the second slot always takes whatever the first slot refused.
+public class TranspositionTable {
+
+	// Bound types
+	public static final int UPPER = 1, LOWER = 2, EXACT = 3;
+
+	private static final int BUCKET_LONGS = 4;     // Two entries of two longs
+	private static final int BYTES_PER_BUCKET = BUCKET_LONGS * 8;
+	private static final long MAX_BUCKETS = 1L << 28;   // Keeps the backing array under the Java array limit
+
+	private long[] table;
+	private int bucketMask;
+	private int generation;                        // Bumped per search so stale entries get replaced
+
+	// Creates a table using at most the given number of megabytes (rounded down to a power of two)
+	public TranspositionTable(int megabytes) {
+		resize(megabytes);
+	}
+
+	// Reallocates the table for a new memory budget, dropping all entries
+	public void resize(int megabytes) {
+		long buckets = Long.highestOneBit(Math.max(1L, (long) megabytes * 1024 * 1024 / BYTES_PER_BUCKET));
+		buckets = Math.min(buckets, MAX_BUCKETS);
+		table = new long[(int) buckets * BUCKET_LONGS];
+		bucketMask = (int) buckets - 1;
+		generation = 0;
+	}
+
+	// Drops all entries
+	public void clear() {
+		Arrays.fill(table, 0L);
+		generation = 0;
+	}
+
+	// Marks the start of a new search; entries from earlier searches become replaceable
+	public void newSearch() {
+		generation = (generation + 1) & 0xFF;
+	}
+
+	// Size of the table in megabytes
+	public int megabytes() {
+		return (int) ((long) table.length * 8 / (1024 * 1024));
+	}
+
+	// Returns the data word stored for key, or 0 if there is none (0 never encodes a real entry)
+	public long probe(long key) {
+		int index = ((int) key & bucketMask) * BUCKET_LONGS;
+		for (int slot = index; slot < index + BUCKET_LONGS; slot += 2) {
+			long data = table[slot];
+			if ((table[slot + 1] ^ data) == key && data != 0)
+				return data;
+		}
+		return 0L;
+	}
+
+	// Stores a search result; depth is clamped to 0..255 and score to the 16-bit range
+	public void store(long key, int move, int score, int depth, int bound) {
+		long data = pack(move, score, depth, bound, generation);
+		int index = ((int) key & bucketMask) * BUCKET_LONGS;
+
+		// Keep the existing move if this result has none for the same position
+		long old = table[index];
+		boolean sameKey = (table[index + 1] ^ old) == key;
+		if (sameKey && move == Move.NONE)
+			data = pack(move(old), score, depth, bound, generation);
+
+		// Depth-preferred slot: replace the same position, a shallower result or a stale entry
+		if (sameKey || depth >= depth(old) || generation(old) != generation) {
+			table[index] = data;
+			table[index + 1] = key ^ data;
+		} else {
+			table[index + 2] = data;
+			table[index + 3] = key ^ data;
+		}
+	}
+
+	// Permille of sampled depth-preferred slots used by the current search (as UCI "hashfull")
+	public int hashfull() {
+		int sample = Math.min(1000, bucketMask + 1), used = 0;
+		for (int i = 0; i < sample; i++) {
+			long data = table[i * BUCKET_LONGS];
+			if (data != 0 && generation(data) == generation)
+				used++;
+		}
+		return used * 1000 / sample;
+	}
+
+	// Data word layout: move (16 bits) | score (16) | depth (8) | bound (2) | generation (8)
+	private static long pack(int move, int score, int depth, int bound, int generation) {
+		score = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, score));
+		depth = Math.max(0, Math.min(255, depth));
+		return (move & 0xFFFFL) | (score & 0xFFFFL) << 16 | (long) depth << 32 | (long) bound << 40
+				| (long) generation << 42;
+	}
+
+	public static int move(long data) {
+		return (int) (data & 0xFFFF);
+	}
+
+	public static int score(long data) {
+		return (short) (data >>> 16);
+	}
+
+	public static int depth(long data) {
+		return (int) (data >>> 32) & 0xFF;
+	}
+
+	public static int bound(long data) {
+		return (int) (data >>> 40) & 3;
+	}
+
+	private static int generation(long data) {
+		return (int) (data >>> 42) & 0xFF;
+	}
+
+}
@@ -0,0 +1,54 @@
+package chess;
+
+// Random 64-bit keys for Zobrist hashing. A position's key is the XOR of the keys of every piece on
+// its square plus side to move, castling rights and en passant file (when a pawn can take there),
+// so a move updates it with a few XORs. The keys come from a fixed seed so they are identical in
+// every run (needed for stored books).
+public final class Zobrist {
+
+	static final long[] PIECE_SQUARE = new long[12 * 64];   // Indexed piece * 64 + square
+	static final long[] CASTLING = new long[16];            // Indexed by the full castling right mask
+	static final long[] EP_FILE = new long[8];
+	static final long BLACK_TO_MOVE;
+
+	static {
+		long seed = 0x9E3779B97F4A7C15L;
+		for (int i = 0; i < PIECE_SQUARE.length; i++)
+			PIECE_SQUARE[i] = seed = next(seed);
+		for (int i = 0; i < CASTLING.length; i++)
+			CASTLING[i] = seed = next(seed);
+		CASTLING[0] = 0;                                      // No rights contributes nothing
+		for (int i = 0; i < EP_FILE.length; i++)
+			EP_FILE[i] = seed = next(seed);
+		BLACK_TO_MOVE = next(seed);
+	}
+
+	private Zobrist() {
+	}
+
+	// SplitMix64 step: returns a well-mixed value derived from the previous one
+	private static long next(long x) {
+		long z = x + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	public static long piece(int piece, int sq) {
+		return PIECE_SQUARE[piece * 64 + sq];
+	}
+
+	public static long castling(int rights) {
+		return CASTLING[rights];
+	}
+
+	// Key for an en passant square, or 0 when there is none
+	public static long enPassant(int sq) {
+		return sq < 0 ? 0L : EP_FILE[sq & 7];
+	}
+
+	public static long sideToMove(int color) {
+		return color == Position.BLACK ? BLACK_TO_MOVE : 0L;
+	}
+
+}
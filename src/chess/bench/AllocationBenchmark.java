@@ -0,0 +1,71 @@
+package chess.bench;
+
+import java.lang.management.ManagementFactory;
+
+import chess.Board;
+import chess.Piece;
+
+// Measures heap bytes allocated per call on the rules hot paths using the per-thread allocation
+// counter of the HotSpot ThreadMXBean. Run with: java chess.bench.AllocationBenchmark
+public class AllocationBenchmark {
+
+	private static final int WARMUP = 200_000;     // Calls before measuring, so the JIT has compiled the path
+	private static final int ITERATIONS = 1_000_000;
+
+	private static volatile boolean sink;          // Keeps results alive so calls are not optimized away
+
+	public static void main(String[] args) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			System.err.println("Per-thread allocation counting is not supported by this JVM");
+			return;
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		// Fool's mate: 1.f3 e5 2.g4 Qh4#
+		Board mated = new Board();
+		mated.movePiece(6, 5, 5, 5);
+		mated.movePiece(1, 4, 3, 4);
+		mated.movePiece(6, 6, 4, 6);
+		mated.movePiece(0, 3, 4, 7);
+
+		// 1.e4 f6 2.Qh5+ is check but g6 blocks it, so every black move gets generated
+		Board checked = new Board();
+		checked.movePiece(6, 4, 4, 4);
+		checked.movePiece(1, 5, 2, 5);
+		checked.movePiece(7, 3, 3, 7);
+
+		report(threads, "isCheckmateFor (mate)", () -> sink = mated.isCheckmateFor(true));
+		report(threads, "isCheckmateFor (check)", () -> sink = checked.isCheckmateFor(false));
+		report(threads, "isStalemate", () -> sink = checked.isStalemate());
+
+		// Queen.isValidMove over every destination, the path that used to build a Rook and a Bishop
+		Piece[][] squares = checked.getBoard();
+		Piece queen = squares[3][7];
+		report(threads, "Queen.isValidMove x64", () -> {
+			boolean any = false;
+			for (int r = 0; r < 8; r++)
+				for (int c = 0; c < 8; c++)
+					any |= queen.isValidMove(r, c, squares);
+			sink = any;
+		});
+	}
+
+	// Runs the call WARMUP times, then reports the allocated bytes per call over ITERATIONS calls
+	private static void report(com.sun.management.ThreadMXBean threads, String name, Runnable call) {
+		long id = Thread.currentThread().getId();
+		for (int i = 0; i < WARMUP; i++)
+			call.run();
+
+		long before = threads.getThreadAllocatedBytes(id);
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++)
+			call.run();
+		long elapsed = System.nanoTime() - start;
+		long allocated = threads.getThreadAllocatedBytes(id) - before;
+
+		System.out.printf("%-26s %8.3f bytes/call %10.1f ns/call%n", name, (double) allocated / ITERATIONS,
+				(double) elapsed / ITERATIONS);
+	}
+
+}
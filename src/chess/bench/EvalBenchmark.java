@@ -0,0 +1,85 @@
+package chess.bench;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import chess.Fen;
+import chess.MoveGenerator;
+import chess.Position;
+import chess.engine.ClassicEvaluator;
+import chess.engine.Engine;
+import chess.engine.Evaluator;
+import chess.engine.SearchInfo;
+import chess.engine.SearchLimits;
+import chess.nnue.Network;
+import chess.nnue.NnueEvaluator;
+import chess.perft.Perft;
+
+// Evaluations per second of the handcrafted evaluation and of the network, the latter both rebuilt
+// from scratch and updated incrementally after a move, plus search speed with each. Without a
+// network file a random one of 256 hidden neurons is used, which costs the same to evaluate as a
+// trained one, and the search comparison is skipped. NnueCheck runs on the network first.
+// Run with: java chess.bench.EvalBenchmark [warmupIterations] [iterations] [iterationMillis] [network file]
+public class EvalBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int warmup = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		long millis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+		Network network = args.length > 3 ? Network.load(Paths.get(args[3])) : Network.random(256, 1);
+		Microbenchmark bench = new Microbenchmark(warmup, iterations, millis);
+
+		// Timing wrong evaluations is pointless
+		if (!NnueCheck.run(network)) {
+			System.out.println("NETWORK CHECK FAILED");
+			System.exit(1);
+		}
+
+		Position start = new Position();
+		Fen.parse(Fen.START, start);
+		Position kiwipete = new Position();
+		Fen.parse(Perft.FENS[1], kiwipete);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = MoveGenerator.generate(kiwipete, moves, 0);
+		Evaluator classic = new ClassicEvaluator();
+		NnueEvaluator nnue = new NnueEvaluator(network);
+
+		System.out.println("network: " + network.getHidden() + " hidden neurons per side");
+		Microbenchmark.printHeader();
+		bench.run("eval.classic", 1, () -> classic.evaluate(kiwipete));
+
+		// Two unrelated positions at the same ply: every call rebuilds the accumulator
+		long[] calls = new long[1];
+		bench.run("eval.nnue.refresh", 1, () -> nnue.evaluate((calls[0]++ & 1) == 0 ? start : kiwipete));
+
+		// A move and its evaluation from the parent's accumulator, as in the search
+		int[] next = new int[1];
+		nnue.evaluate(kiwipete);
+		bench.run("makeMove+unmake", 1, () -> {
+			kiwipete.makeMove(moves[next[0]++ % count]);
+			kiwipete.unmakeMove();
+			return 0;
+		});
+		long refreshes = nnue.getRefreshes();
+		bench.run("makeMove+eval.nnue.incremental+unmake", 1, () -> {
+			kiwipete.makeMove(moves[next[0]++ % count]);
+			int score = nnue.evaluate(kiwipete);
+			kiwipete.unmakeMove();
+			return score;
+		});
+		System.out.printf("incremental run: %,d refreshes, %,d updates%n", nnue.getRefreshes() - refreshes, nnue.getUpdates());
+
+		// A random network's scores send the search down meaningless lines, so only a real one is timed
+		if (args.length <= 3)
+			return;
+		for (Evaluator evaluator : new Evaluator[] { classic, nnue }) {
+			try (Engine engine = new Engine(Engine.DEFAULT_HASH_MB, evaluator, 1)) {
+				engine.search(kiwipete, new SearchLimits().nodes(200_000), null);     // Warm up
+				engine.newGame();
+				SearchInfo info = engine.search(kiwipete, new SearchLimits().nodes(2_000_000), null);
+				System.out.printf("search with %s: %,d nodes/s%n", evaluator.getClass().getSimpleName(), info.getNodesPerSecond());
+			}
+		}
+	}
+
+}
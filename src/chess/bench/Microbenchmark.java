@@ -0,0 +1,63 @@
+package chess.bench;
+
+import java.util.function.LongSupplier;
+
+// Small JMH-style harness: each benchmark runs time-boxed warmup iterations so the JIT settles,
+// then time-boxed measurement iterations whose throughput is reported as mean and standard
+// deviation. Results are folded into a volatile sink so the measured code cannot be eliminated.
+public final class Microbenchmark {
+
+	private static volatile long sink;
+
+	private final int warmupIterations;
+	private final int measurementIterations;
+	private final long iterationMillis;
+
+	public Microbenchmark(int warmupIterations, int measurementIterations, long iterationMillis) {
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+		this.iterationMillis = iterationMillis;
+	}
+
+	// Prints the column headers for report lines
+	public static void printHeader() {
+		System.out.printf("%-32s %16s %12s %14s%n", "Benchmark", "ops/s", "+-", "ns/op");
+	}
+
+	// Measures op and prints one report line; unitsPerOp scales the score (e.g. perft leaves per call)
+	public double run(String name, long unitsPerOp, LongSupplier op) {
+		for (int i = 0; i < warmupIterations; i++)
+			iteration(op);
+
+		double[] scores = new double[measurementIterations];
+		double sum = 0;
+		for (int i = 0; i < measurementIterations; i++) {
+			scores[i] = iteration(op) * unitsPerOp;
+			sum += scores[i];
+		}
+		double mean = sum / measurementIterations, variance = 0;
+		for (double score : scores)
+			variance += (score - mean) * (score - mean);
+		double deviation = measurementIterations > 1 ? Math.sqrt(variance / (measurementIterations - 1)) : 0;
+
+		System.out.printf("%-32s %,16.0f %,12.0f %,14.1f%n", name, mean, deviation, 1e9 * unitsPerOp / mean);
+		return mean;
+	}
+
+	// Runs op repeatedly for one iteration period and returns calls per second
+	private double iteration(LongSupplier op) {
+		long acc = 0, calls = 0;
+		long start = System.nanoTime();
+		long end = start + iterationMillis * 1_000_000;
+		long now;
+		do {
+			for (int i = 0; i < 64; i++)
+				acc += op.getAsLong();
+			calls += 64;
+			now = System.nanoTime();
+		} while (now < end);
+		sink += acc;
+		return calls * 1e9 / (now - start);
+	}
+
+}
@@ -0,0 +1,96 @@
+package chess.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+import chess.Fen;
+import chess.MoveGenerator;
+import chess.Position;
+import chess.nnue.Network;
+import chess.nnue.NnueEvaluator;
+import chess.perft.Perft;
+
+// Correctness checks for the network evaluation, run before the evaluation benchmark times
+// anything. Random games that step back and forth through make/unmake and null moves are evaluated
+// with incrementally updated accumulators and compared with accumulators rebuilt from scratch, and
+// a network written to a file must load back with the same evaluations.
+// Run with: java chess.bench.NnueCheck [network file]   (a random network when none is given);
+// exits with status 1 if a check fails.
+public class NnueCheck {
+
+	private static final int GAMES = 100, STEPS = 2000, MAX_PLY = 200;
+
+	// Runs every check on network; returns true if all pass
+	public static boolean run(Network network) throws IOException {
+		NnueEvaluator incremental = new NnueEvaluator(network), reference = new NnueEvaluator(network);
+		Position pos = new Position();
+		int[][] moves = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+		boolean[] nullMove = new boolean[MAX_PLY];
+		SplittableRandom random = new SplittableRandom(1);
+		long checks = 0, mismatches = 0;
+		int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+		for (int game = 0; game < GAMES; game++) {
+			Fen.parse(Perft.FENS[game % Perft.FENS.length], pos);
+			int ply = 0;
+			for (int step = 0; step < STEPS; step++) {
+				// Go deeper more often than back, so the walk reaches well into the game and revisits plies
+				int count = MoveGenerator.generate(pos, moves[ply], 0);
+				if (ply < MAX_PLY - 1 && count > 0 && (ply < 4 || random.nextInt(10) < 6)) {
+					nullMove[ply] = random.nextInt(15) == 0 && !pos.isInCheck(pos.sideToMove());
+					if (nullMove[ply++])
+						pos.makeNullMove();
+					else
+						pos.makeMove(moves[ply - 1][random.nextInt(count)]);
+				} else if (ply > 0) {
+					if (nullMove[--ply])
+						pos.unmakeNullMove();
+					else
+						pos.unmakeMove();
+				}
+				if (random.nextInt(3) != 0)
+					continue;
+				int score = incremental.evaluate(pos), expected = reference.evaluateFromScratch(pos);
+				checks++;
+				min = Math.min(min, expected);
+				max = Math.max(max, expected);
+				if (score != expected && mismatches++ < 10)
+					System.out.println("FAILED: incremental " + score + ", rebuilt " + expected + ": " + Fen.toFen(pos));
+			}
+		}
+		System.out.printf("incremental vs rebuilt: %,d checks, %,d mismatches (%,d refreshes, %,d updates)%n", checks,
+				mismatches, incremental.getRefreshes(), incremental.getUpdates());
+		boolean ok = mismatches == 0;
+		if (min == max) {
+			System.out.println("FAILED: every position scores " + min);
+			ok = false;
+		}
+
+		Path file = Files.createTempFile("nnue-check", Network.EXTENSION);
+		try {
+			network.write(file);
+			NnueEvaluator loaded = new NnueEvaluator(Network.load(file));
+			int differences = 0;
+			for (String fen : Perft.FENS) {
+				Fen.parse(fen, pos);
+				if (loaded.evaluateFromScratch(pos) != reference.evaluateFromScratch(pos))
+					differences++;
+			}
+			System.out.printf("write/load: %d positions, %d differ%n", Perft.FENS.length, differences);
+			ok &= differences == 0;
+		} finally {
+			Files.delete(file);
+		}
+		return ok;
+	}
+
+	public static void main(String[] args) throws IOException {
+		boolean ok = run(args.length > 0 ? Network.load(Paths.get(args[0])) : Network.random(256, 1));
+		System.out.println(ok ? "All network checks pass" : "NETWORK CHECK FAILED");
+		if (!ok)
+			System.exit(1);
+	}
+
+}
@@ -0,0 +1,91 @@
+package chess.bench;
+
+import chess.Board;
+import chess.Fen;
+import chess.MoveGenerator;
+import chess.Piece;
+import chess.Position;
+import chess.perft.Perft;
+
+// Throughput of the rules layer: move generation, check, checkmate and stalemate detection,
+// Board.movePiece, Piece.isValidMove and full perft. RulesCheck runs first on the cheap perft depths.
+// Run with: java chess.bench.RulesBenchmark [warmupIterations] [iterations] [iterationMillis]
+public class RulesBenchmark {
+
+	private static final String KIWIPETE = Perft.FENS[1];
+
+	public static void main(String[] args) {
+		int warmup = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		long millis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+		Microbenchmark bench = new Microbenchmark(warmup, iterations, millis);
+
+		// Timing broken rules is pointless
+		if (!RulesCheck.run(1_000_000)) {
+			System.out.println("RULES CHECK FAILED");
+			System.exit(1);
+		}
+
+		Position start = new Position();
+		Fen.parse(Fen.START, start);
+		Position kiwipete = new Position();
+		Fen.parse(KIWIPETE, kiwipete);
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+		// Fool's mate: 1.f3 e5 2.g4 Qh4#
+		Board mated = new Board();
+		mated.movePiece(6, 5, 5, 5);
+		mated.movePiece(1, 4, 3, 4);
+		mated.movePiece(6, 6, 4, 6);
+		mated.movePiece(0, 3, 4, 7);
+
+		// 1.e4 f6 2.Qh5+ is check but not mate
+		Board checked = new Board();
+		checked.movePiece(6, 4, 4, 4);
+		checked.movePiece(1, 5, 2, 5);
+		checked.movePiece(7, 3, 3, 7);
+
+		Board opening = new Board();
+		Piece[][] squares = checked.getBoard();
+		Piece queen = squares[3][7];
+		Piece knight = squares[7][6];
+		Perft perft = new Perft();
+
+		Microbenchmark.printHeader();
+		bench.run("movegen.start", 1, () -> MoveGenerator.generate(start, moves));
+		bench.run("movegen.kiwipete", 1, () -> MoveGenerator.generate(kiwipete, moves));
+		bench.run("movegen.captures.kiwipete", 1, () -> MoveGenerator.generateCaptures(kiwipete, moves, 0));
+		bench.run("check.board.isKingInCheck", 1, () -> checked.isKingInCheck(false) ? 1 : 0);
+		int[] kiwipeteMoves = new int[MoveGenerator.MAX_MOVES];
+		MoveGenerator.generate(kiwipete, kiwipeteMoves);
+		bench.run("check.position.afterMove", 1, () -> {
+			kiwipete.makeMove(kiwipeteMoves[0]);
+			boolean check = kiwipete.isInCheck(kiwipete.sideToMove());
+			kiwipete.unmakeMove();
+			return check ? 1 : 0;
+		});
+		bench.run("mate.board.isCheckmateFor.mate", 1, () -> mated.isCheckmateFor(true) ? 1 : 0);
+		bench.run("mate.board.isCheckmateFor.check", 1, () -> checked.isCheckmateFor(false) ? 1 : 0);
+		bench.run("mate.board.isStalemate", 1, () -> opening.isStalemate() ? 1 : 0);
+		bench.run("board.movePiece+unmake", 1, () -> {
+			boolean moved = opening.movePiece(6, 4, 4, 4);
+			opening.unmakeMove();
+			return moved ? 1 : 0;
+		});
+		bench.run("piece.isValidMove.queen x64", 64, () -> sweep(queen, squares));
+		bench.run("piece.isValidMove.knight x64", 64, () -> sweep(knight, squares));
+		bench.run("perft.kiwipete.depth3 (nodes/s)", Perft.COUNTS[1][2], () -> perft.perft(kiwipete, 3));
+		bench.run("perft.start.depth4 (nodes/s)", Perft.COUNTS[0][3], () -> perft.perft(start, 4));
+	}
+
+	// Calls isValidMove for every destination square and counts the valid ones
+	private static long sweep(Piece piece, Piece[][] squares) {
+		long valid = 0;
+		for (int r = 0; r < 8; r++)
+			for (int c = 0; c < 8; c++)
+				if (piece.isValidMove(r, c, squares))
+					valid++;
+		return valid;
+	}
+
+}
@@ -0,0 +1,109 @@
+package chess.bench;
+
+import chess.Fen;
+import chess.MoveGenerator;
+import chess.Position;
+import chess.perft.Perft;
+import chess.pgn.San;
+
+// Correctness checks for the rules layer, run before the rules benchmark times anything: the perft
+// reference suite, then a walk of each reference position's move tree checking that every
+// makeMove / unmakeMove and null move pair restores the position, and that the incrementally
+// updated key matches the key of the same position read from its FEN. Every move on the way must
+// read back from its SAN, and malformed FENs must be rejected.
+// Run with: java chess.bench.RulesCheck [maxPerftNodes]   (default 200,000,000, which includes
+// Kiwipete at depth 5); exits with status 1 if a check fails.
+public class RulesCheck {
+
+	private static final int WALK_DEPTH = 3;
+
+	// Each breaks one rule of the format, so Fen.parse must throw IllegalArgumentException
+	private static final String[] BAD_FENS = {
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBN w KQkq - 0 1",           // Short rank
+			"rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",          // Digit 9
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR/8 w KQkq - 0 1",        // Nine ranks
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",                   // Seven ranks
+			"rnbqkbnP/pppppppp/8/8/8/8/PPPPPPP1/RNBQKBNR w KQkq - 0 1",          // Pawn on the back rank
+			"rnbq1bnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQ - 0 1",            // No black king
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBKKBNR w kq - 0 1",            // Two white kings
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",          // Side to move
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkx - 0 1",          // Castling letter
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e9 0 1",         // En passant off the board
+			"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e4 0 1",       // En passant on rank 4
+			"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e6 0 1" };     // Wrong side's rank
+
+	private final int[][] moves = new int[WALK_DEPTH + 1][MoveGenerator.MAX_MOVES];
+	private final int[] sanMoves = new int[MoveGenerator.MAX_MOVES];
+	private final Position scratch = new Position();
+	private long nodes, failures;
+
+	// Runs every check, perft only up to depths whose count stays under maxPerftNodes; returns true
+	// if all pass
+	public static boolean run(long maxPerftNodes) {
+		boolean ok = new Perft().runSuite(maxPerftNodes);
+		RulesCheck check = new RulesCheck();
+		Position pos = new Position();
+		for (String fen : Perft.FENS) {
+			Fen.parse(fen, pos);
+			check.walk(pos, WALK_DEPTH);
+		}
+		System.out.printf("move tree walk: %,d nodes, %,d failures%n", check.nodes, check.failures);
+		long walkFailures = check.failures;
+
+		for (String fen : BAD_FENS) {
+			try {
+				Fen.parse(fen, pos);
+				check.fail("malformed FEN accepted", fen);
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+		System.out.printf("malformed FENs: %d, %d accepted%n", BAD_FENS.length, check.failures - walkFailures);
+		return ok && check.failures == 0;
+	}
+
+	// Visits every node depth plies below pos, checking each one; pos is restored before returning
+	private void walk(Position pos, int depth) {
+		nodes++;
+		String fen = Fen.toFen(pos);
+		long key = pos.key();
+		Fen.parse(fen, scratch);
+		if (scratch.key() != key)
+			fail("key differs from the key of its FEN", fen);
+		if (depth == 0)
+			return;
+
+		int[] list = moves[depth];
+		int count = MoveGenerator.generate(pos, list, 0);
+		for (int i = 0; i < count; i++) {
+			String san = San.toSan(pos, list[i], sanMoves);
+			if (San.parse(pos, san, sanMoves) != list[i])
+				fail("SAN " + san + " does not read back", fen);
+			pos.makeMove(list[i]);
+			walk(pos, depth - 1);
+			pos.unmakeMove();
+			if (pos.key() != key || !Fen.toFen(pos).equals(fen))
+				fail("unmakeMove did not restore the position", fen);
+		}
+		if (!pos.isInCheck(pos.sideToMove())) {
+			pos.makeNullMove();
+			walk(pos, 0);
+			pos.unmakeNullMove();
+			if (pos.key() != key || !Fen.toFen(pos).equals(fen))
+				fail("unmakeNullMove did not restore the position", fen);
+		}
+	}
+
+	private void fail(String what, String fen) {
+		if (failures++ < 10)
+			System.out.println("FAILED: " + what + ": " + fen);
+	}
+
+	public static void main(String[] args) {
+		boolean ok = run(args.length > 0 ? Long.parseLong(args[0]) : 200_000_000L);
+		System.out.println(ok ? "All rules checks pass" : "RULES CHECK FAILED");
+		if (!ok)
+			System.exit(1);
+	}
+
+}
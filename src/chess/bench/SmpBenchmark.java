@@ -0,0 +1,54 @@
+package chess.bench;
+
+import chess.Board;
+import chess.engine.ClassicEvaluator;
+import chess.engine.Engine;
+import chess.engine.SearchInfo;
+import chess.engine.SearchLimits;
+
+// Measures Lazy SMP scaling: time to reach a fixed depth and nodes per second for 1, 2, 4, ...
+// threads up to the maximum. Each run starts from an empty transposition table.
+// Run with: java chess.bench.SmpBenchmark [maxThreads] [depth] [hashMB]
+public class SmpBenchmark {
+
+	// Test positions as move sequences from the starting position (row, col pairs per move)
+	private static final int[][][] POSITIONS = {
+			{},
+			{ { 6, 4, 4, 4 }, { 1, 4, 3, 4 }, { 7, 6, 5, 5 }, { 0, 1, 2, 2 }, { 7, 5, 4, 2 }, { 0, 5, 3, 2 } },
+			{ { 6, 3, 4, 3 }, { 0, 6, 2, 5 }, { 6, 2, 4, 2 }, { 1, 4, 2, 4 }, { 7, 1, 5, 2 }, { 0, 5, 4, 1 } } };
+
+	public static void main(String[] args) {
+		int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int depth = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int hashMb = args.length > 2 ? Integer.parseInt(args[2]) : 128;
+
+		System.out.printf("%8s %12s %14s %10s %10s%n", "threads", "time ms", "nps", "speedup", "nps ratio");
+		double baseTime = 0, baseNps = 0;
+		for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+			long totalMillis = 0, totalNodes = 0;
+			for (int[][] moves : POSITIONS) {
+				Board board = new Board();
+				for (int[] m : moves)
+					board.movePiece(m[0], m[1], m[2], m[3]);
+				try (Engine engine = new Engine(hashMb, new ClassicEvaluator(), threads)) {
+					SearchInfo info = engine.search(board, new SearchLimits().depth(depth), null);
+					totalMillis += info.getTimeMillis();
+					totalNodes += info.getNodes();
+				}
+			}
+			double nps = totalNodes * 1000.0 / Math.max(1, totalMillis);
+			if (threads == 1) {
+				baseTime = totalMillis;
+				baseNps = nps;
+			}
+			System.out.printf("%8d %12d %14.0f %10.2f %10.2f%n", threads, totalMillis, nps,
+					baseTime / Math.max(1, totalMillis), nps / baseNps);
+		}
+	}
+
+	// Doubles the thread count, finishing exactly on the maximum
+	private static int nextThreadCount(int threads, int maxThreads) {
+		return threads == maxThreads ? maxThreads + 1 : Math.min(threads * 2, maxThreads);
+	}
+
+}
@@ -0,0 +1,49 @@
+package chess.bench;
+
+import chess.tournament.Sprt;
+
+// Checks of the tournament statistics: the Elo and score conversions invert each other, clearly
+// better and clearly worse results settle an SPRT the right way, even results do not, pairs that
+// all scored the same still decide but give no error bound, and even results measure 0 Elo.
+// Run with: java chess.bench.SprtCheck; exits with status 1 if a check fails.
+public class SprtCheck {
+
+	private static int failures;
+
+	// Runs every check; returns true if all pass
+	public static boolean run() {
+		failures = 0;
+		for (double elo : new double[] { -400, -35, 0, 5, 120 })
+			check("elo(expectedScore(" + elo + "))", Math.abs(Sprt.elo(Sprt.expectedScore(elo)) - elo) < 1e-6);
+
+		Sprt sprt = new Sprt(0, 5, 0.05, 0.05);
+		long[] better = { 0, 100, 400, 300, 100 }, worse = { 100, 300, 400, 100, 0 }, even = { 50, 200, 400, 200, 50 };
+		check("clearly better passes", Sprt.PASS.equals(sprt.decide(sprt.llr(better))));
+		check("clearly worse fails", Sprt.FAIL.equals(sprt.decide(sprt.llr(worse))));
+		double llr = sprt.llr(even);
+		check("even results lean to H0 without deciding", llr < 0 && sprt.decide(llr) == null);
+		check("pairs that all win pass", Sprt.PASS.equals(sprt.decide(sprt.llr(new long[] { 0, 0, 0, 0, 100 }))));
+		check("pairs that all split fail", Sprt.FAIL.equals(sprt.decide(sprt.llr(new long[] { 0, 0, 100, 0, 0 }))));
+		check("fewer than two pairs give no LLR", sprt.llr(new long[] { 0, 0, 0, 0, 1 }) == 0);
+
+		double[] elo = Sprt.eloWithError(even);
+		check("even results measure 0 Elo", Math.abs(elo[0]) < 1e-9 && elo[1] > 0 && elo[1] < Double.POSITIVE_INFINITY);
+		check("one pair has no error bound", Sprt.eloWithError(new long[] { 0, 0, 1, 0, 0 })[1] == Double.POSITIVE_INFINITY);
+		check("identical pairs have no error bound", Sprt.eloWithError(new long[] { 0, 0, 3, 0, 0 })[1] == Double.POSITIVE_INFINITY);
+		return failures == 0;
+	}
+
+	private static void check(String what, boolean ok) {
+		System.out.println((ok ? "OK      " : "FAILED  ") + what);
+		if (!ok)
+			failures++;
+	}
+
+	public static void main(String[] args) {
+		boolean ok = run();
+		System.out.println(ok ? "All SPRT checks pass" : "SPRT CHECK FAILED");
+		if (!ok)
+			System.exit(1);
+	}
+
+}
@@ -0,0 +1,186 @@
+package chess.book;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import chess.Board;
+import chess.Fen;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+
+// Opening book read through a memory mapping, so opening it costs nothing however large it is and
+// only the pages a lookup touches are ever read. Lookups binary-search the sorted entries for the
+// position's Zobrist key. Safe to share between threads.
+//
+// File layout (little-endian):
+//   header (16 bytes)   magic "CBK1", version (2), reserved (2), entry count (8)
+//   entries (16 bytes)  Zobrist key (8), move (2, chess.Move encoding), reserved (2), weight (4)
+// Entries are sorted by key (signed) and then by move; every entry of a position is adjacent.
+//
+// Usage: java chess.book.Book <book> [fen]   lists the book moves of a position
+public class Book implements Closeable {
+
+	public static final int MAGIC = 'C' | 'B' << 8 | 'K' << 16 | '1' << 24;
+	public static final int VERSION = 2; // 2: keys count en passant only when a capture is possible
+	public static final int HEADER_SIZE = 16;
+	public static final int ENTRY_SIZE = 16;
+
+	private static final int SEGMENT_BITS = 30;      // Entries never straddle a segment: both sizes are multiples of 16
+
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+	private final long size;
+
+	public Book(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			long length = channel.size();
+			if (length < HEADER_SIZE)
+				throw new IOException(file + " is not an opening book");
+			segments = new MappedByteBuffer[(int) ((length + (1L << SEGMENT_BITS) - 1) >>> SEGMENT_BITS)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = (long) i << SEGMENT_BITS;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(1L << SEGMENT_BITS, length - start));
+				segments[i].order(ByteOrder.LITTLE_ENDIAN);
+			}
+			if (segments[0].getInt(0) != MAGIC || segments[0].getShort(4) != VERSION)
+				throw new IOException(file + " is not a version " + VERSION + " opening book");
+			size = segments[0].getLong(8);
+			if (HEADER_SIZE + size * ENTRY_SIZE > length)
+				throw new IOException(file + " is truncated");
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	// Number of (position, move) entries
+	public long size() {
+		return size;
+	}
+
+	// Index of the first entry for key, or -1 if the position is not in the book
+	public long find(long key) {
+		long lo = 0, hi = size;
+		while (lo < hi) {
+			long mid = (lo + hi) >>> 1;
+			if (key(mid) < key)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo < size && key(lo) == key ? lo : -1;
+	}
+
+	// Writes the book moves and weights stored for key; returns how many were written
+	public int probe(long key, int[] moves, int[] weights) {
+		int n = 0;
+		for (long i = find(key); i >= 0 && i < size && key(i) == key && n < moves.length; i++) {
+			moves[n] = move(i);
+			weights[n++] = weight(i);
+		}
+		return n;
+	}
+
+	// Writes the book moves for the board's position that are legal there (which guards against key
+	// collisions), with their weights; returns how many were written
+	public int probe(Board board, int[] moves, int[] weights) {
+		return probe(board.getPosition(), moves, weights);
+	}
+
+	public int probe(Position pos, int[] moves, int[] weights) {
+		int[] legal = new int[MoveGenerator.MAX_MOVES];
+		int legalCount = MoveGenerator.generate(pos, legal, 0);
+		int n = 0;
+		long key = pos.key();
+		for (long i = find(key); i >= 0 && i < size && key(i) == key && n < moves.length; i++) {
+			int move = move(i), weight = weight(i);
+			for (int j = 0; j < legalCount; j++) {
+				if (legal[j] == move && weight > 0) {
+					moves[n] = move;
+					weights[n++] = weight;
+					break;
+				}
+			}
+		}
+		return n;
+	}
+
+	// Picks a book move with probability proportional to its weight, or Move.NONE if out of book
+	public int pickMove(Board board, Random random) {
+		return pickMove(board.getPosition(), random);
+	}
+
+	public int pickMove(Position pos, Random random) {
+		int[] moves = new int[MoveGenerator.MAX_MOVES], weights = new int[MoveGenerator.MAX_MOVES];
+		int n = probe(pos, moves, weights);
+		long total = 0;
+		for (int i = 0; i < n; i++)
+			total += weights[i];
+		if (total == 0)
+			return Move.NONE;
+		long pick = (long) (random.nextDouble() * total);
+		for (int i = 0; i < n; i++) {
+			pick -= weights[i];
+			if (pick < 0)
+				return moves[i];
+		}
+		return moves[n - 1];
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private long key(long index) {
+		long offset = HEADER_SIZE + index * ENTRY_SIZE;
+		return segments[(int) (offset >>> SEGMENT_BITS)].getLong((int) (offset & ((1L << SEGMENT_BITS) - 1)));
+	}
+
+	private int move(long index) {
+		long offset = HEADER_SIZE + index * ENTRY_SIZE + 8;
+		return segments[(int) (offset >>> SEGMENT_BITS)].getShort((int) (offset & ((1L << SEGMENT_BITS) - 1))) & 0xFFFF;
+	}
+
+	private int weight(long index) {
+		long offset = HEADER_SIZE + index * ENTRY_SIZE + 12;
+		return segments[(int) (offset >>> SEGMENT_BITS)].getInt((int) (offset & ((1L << SEGMENT_BITS) - 1)));
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: java chess.book.Book <book> [fen]");
+			return;
+		}
+		try (Book book = new Book(Paths.get(args[0]))) {
+			Position pos = new Position();
+			Fen.parse(args.length > 1 ? String.join(" ", Arrays.copyOfRange(args, 1, args.length)) : Fen.START, pos);
+			int[] moves = new int[MoveGenerator.MAX_MOVES], weights = new int[MoveGenerator.MAX_MOVES];
+			int n = book.probe(pos, moves, weights);
+			long total = 0;
+			for (int i = 0; i < n; i++)
+				total += weights[i];
+			System.out.printf("%,d entries; %d book moves%n", book.size(), n);
+			for (int i = 0; i < n; i++)
+				System.out.printf("%-6s weight %,d (%.1f%%)%n", Move.toUci(moves[i]), weights[i], 100.0 * weights[i] / total);
+
+			// Lookup latency
+			int lookups = 1_000_000;
+			long start = System.nanoTime(), found = 0;
+			for (int i = 0; i < lookups; i++)
+				found += book.find(pos.key() + (i & 1)) >= 0 ? 1 : 0;
+			System.out.printf("%.2f us per lookup (%d hits)%n", (System.nanoTime() - start) / 1000.0 / lookups, found);
+		}
+	}
+
+}
@@ -0,0 +1,246 @@
+package chess.book;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import chess.Board;
+import chess.pgn.PgnReader;
+import chess.record.GameFile;
+import chess.record.GameReader;
+
+// Builds an opening book file (see Book) from game records or PGN.
+// Every position of the first maxPly plies of each game credits the move played from it with 2
+// for a win of the side that played it, 1 for a draw or an unknown result and 0 for a loss, so
+// book moves are picked in proportion to how well they scored. Entries are aggregated in a
+// primitive open-addressing table on the heap, then sorted and written in one pass.
+//
+// Usage: java chess.book.BookBuilder <output> <maxPly> <minWeight> <games.cgr|games.pgn>...
+public class BookBuilder {
+
+	private final int maxPly;
+	private long[] keys = new long[1 << 16];
+	private int[] moves = new int[1 << 16];          // Move + 1, so 0 marks an empty slot
+	private int[] weights = new int[1 << 16];
+	private int size;
+	private long games;
+
+	public BookBuilder(int maxPly) {
+		this.maxPly = maxPly;
+	}
+
+	// Adds the opening of one game played from board's current position; the board is left at the
+	// last ply used. result is a GameFile result code.
+	public void addGame(Board board, int[] gameMoves, int count, int result) {
+		games++;
+		for (int ply = 0; ply < Math.min(count, maxPly); ply++) {
+			add(board.getZobristKey(), gameMoves[ply], score(board.isWhiteTurn(), result));
+			board.makeMove(gameMoves[ply]);
+		}
+	}
+
+	// Adds every game of a game record file
+	public void addGames(GameReader reader) {
+		Board board = new Board();
+		for (long game = 0; game < reader.getGameCount(); game++) {
+			int count = Math.min(reader.getPlyCount(game), maxPly);
+			int result = reader.getResult(game);
+			reader.replay(game, board, 0);
+			games++;
+			// GameReader.play checks each move, so a corrupt record fails with its game number
+			for (int ply = 0; ply < count; ply++) {
+				long key = board.getZobristKey();
+				boolean white = board.isWhiteTurn();
+				add(key, reader.play(game, ply, board), score(white, result));
+			}
+		}
+	}
+
+	// Adds every game of a PGN file; games stop counting at their first illegal move
+	public void addPgn(Path pgn) throws IOException {
+		Board replay = new Board();
+		PgnReader.replay(pgn, (game, board) -> {
+			replay.loadFen(game.getStartFen());
+			addGame(replay, game.getMoves(), game.getMoveCount(), GameFile.resultCode(game.getResult()));
+		});
+	}
+
+	// Distinct (position, move) entries so far
+	public int size() {
+		return size;
+	}
+
+	public long getGameCount() {
+		return games;
+	}
+
+	// Writes the entries whose weight is at least minWeight to file, sorted; returns how many
+	public long write(Path file, int minWeight) throws IOException {
+		// Pack the kept entries to the front of the arrays, then sort them by key and move
+		int n = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (moves[i] != 0 && weights[i] >= minWeight) {
+				keys[n] = keys[i];
+				moves[n] = moves[i];
+				weights[n++] = weights[i];
+			}
+		}
+		size = 0;
+		sort(0, n);
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(Book.MAGIC).putShort((short) Book.VERSION).putShort((short) 0).putLong(n);
+			for (int i = 0; i < n; i++) {
+				if (buffer.remaining() < Book.ENTRY_SIZE)
+					flush(channel, buffer);
+				buffer.putLong(keys[i]).putShort((short) (moves[i] - 1)).putShort((short) 0).putInt(weights[i]);
+			}
+			flush(channel, buffer);
+		}
+		Arrays.fill(moves, 0);
+		return n;
+	}
+
+	// 2 for a win, 1 for a draw or unknown result, 0 for a loss, from the mover's side
+	private static int score(boolean whiteToMove, int result) {
+		switch (result) {
+		case GameFile.WHITE_WINS:
+			return whiteToMove ? 2 : 0;
+		case GameFile.BLACK_WINS:
+			return whiteToMove ? 0 : 2;
+		default:
+			return 1;
+		}
+	}
+
+	private void add(long key, int move, int weight) {
+		if (size * 2 >= keys.length)
+			grow();
+		int mask = keys.length - 1;
+		for (int i = slot(key, move, mask);; i = (i + 1) & mask) {
+			if (moves[i] == 0) {
+				keys[i] = key;
+				moves[i] = move + 1;
+				weights[i] = weight;
+				size++;
+				return;
+			}
+			if (keys[i] == key && moves[i] == move + 1) {
+				weights[i] += weight;
+				return;
+			}
+		}
+	}
+
+	private static int slot(long key, int move, int mask) {
+		long h = (key ^ move * 0x9E3779B97F4A7C15L) * 0xC2B2AE3D27D4EB4FL;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	// Doubles the table and reinserts every entry
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldMoves = moves, oldWeights = weights;
+		keys = new long[oldKeys.length * 2];
+		moves = new int[oldKeys.length * 2];
+		weights = new int[oldKeys.length * 2];
+		int mask = keys.length - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldMoves[j] == 0)
+				continue;
+			int i = slot(oldKeys[j], oldMoves[j] - 1, mask);
+			while (moves[i] != 0)
+				i = (i + 1) & mask;
+			keys[i] = oldKeys[j];
+			moves[i] = oldMoves[j];
+			weights[i] = oldWeights[j];
+		}
+	}
+
+	// Quicksort of entries [lo, hi) by key, then move
+	private void sort(int lo, int hi) {
+		while (hi - lo > 16) {
+			int mid = (lo + hi) >>> 1;
+			long pivotKey = keys[mid];
+			int pivotMove = moves[mid];
+			int i = lo - 1, j = hi;
+			while (true) {
+				do
+					i++;
+				while (compare(i, pivotKey, pivotMove) < 0);
+				do
+					j--;
+				while (compare(j, pivotKey, pivotMove) > 0);
+				if (i >= j)
+					break;
+				swap(i, j);
+			}
+			if (j + 1 - lo < hi - j - 1) {
+				sort(lo, j + 1);
+				lo = j + 1;
+			} else {
+				sort(j + 1, hi);
+				hi = j + 1;
+			}
+		}
+		for (int i = lo + 1; i < hi; i++) {
+			for (int j = i; j > lo && compare(j, keys[j - 1], moves[j - 1]) < 0; j--)
+				swap(j, j - 1);
+		}
+	}
+
+	private int compare(int i, long key, int move) {
+		int c = Long.compare(keys[i], key);
+		return c != 0 ? c : Integer.compare(moves[i], move);
+	}
+
+	private void swap(int i, int j) {
+		long key = keys[i];
+		keys[i] = keys[j];
+		keys[j] = key;
+		int t = moves[i];
+		moves[i] = moves[j];
+		moves[j] = t;
+		t = weights[i];
+		weights[i] = weights[j];
+		weights[j] = t;
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 4) {
+			System.out.println("Usage: java chess.book.BookBuilder <output> <maxPly> <minWeight> <games.cgr|games.pgn>...");
+			return;
+		}
+		BookBuilder builder = new BookBuilder(Integer.parseInt(args[1]));
+		long start = System.nanoTime();
+		for (int i = 3; i < args.length; i++) {
+			Path input = Paths.get(args[i]);
+			if (args[i].toLowerCase().endsWith(".pgn")) {
+				builder.addPgn(input);
+			} else {
+				try (GameReader reader = new GameReader(input)) {
+					builder.addGames(reader);
+				}
+			}
+		}
+		int distinct = builder.size();
+		long written = builder.write(Paths.get(args[0]), Integer.parseInt(args[2]));
+		System.out.printf("%,d games, %,d entries, %,d written in %d ms%n", builder.getGameCount(), distinct, written,
+				(System.nanoTime() - start) / 1_000_000);
+	}
+
+}
@@ -0,0 +1,9 @@
+package chess.engine;
+
+// Receives the progress and result of one AnalysisWorker job, on the worker's callback executor
+public interface AnalysisListener extends SearchListener {
+
+	// Called once when the job finishes by itself (not when it is cancelled)
+	void onComplete(SearchInfo info);
+
+}
@@ -0,0 +1,89 @@
+package chess.engine;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import chess.Position;
+
+// Runs engine searches on one background thread so the caller's thread (typically the Swing event
+// dispatch thread) never waits for the engine. Each analyze call takes a snapshot of the position,
+// cancels whatever was running and starts a new job; progress and the final result are handed to
+// the listener through the callback executor (SwingUtilities::invokeLater for a GUI), and results
+// of a job that has been superseded are dropped before they reach it.
+//
+// The worker thread runs at minimum priority, so input handling on other threads keeps the CPU
+// it needs even while the search uses everything else.
+public class AnalysisWorker {
+
+	private final Engine engine;
+	private final Executor callbacks;
+	private final ExecutorService worker;
+	private volatile long generation;               // Bumped by every analyze and cancel
+
+	public AnalysisWorker(Engine engine, Executor callbacks) {
+		this.engine = engine;
+		this.callbacks = callbacks;
+		worker = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "analysis-worker");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+	}
+
+	// Cancels any running job and searches a copy of position within limits; returns the new job's
+	// id at once
+	public long analyze(Position position, SearchLimits limits, AnalysisListener listener) {
+		Position snapshot = new Position();
+		snapshot.copyFrom(position);
+		long job = cancel();
+		worker.execute(() -> run(job, snapshot, limits, listener));
+		return job;
+	}
+
+	// Stops the running job, if any. Called on the callback thread, it guarantees that none of the
+	// job's results are delivered afterwards. Returns the id the next job will get.
+	public synchronized long cancel() {
+		long job = ++generation;
+		engine.stop();
+		return job;
+	}
+
+	// True until the job is superseded by a later analyze or cancel
+	public boolean isCurrent(long job) {
+		return job == generation;
+	}
+
+	public Engine getEngine() {
+		return engine;
+	}
+
+	// Stops the worker thread; the worker cannot be used afterwards
+	public void shutdown() {
+		cancel();
+		worker.shutdownNow();
+	}
+
+	private void run(long job, Position position, SearchLimits limits, AnalysisListener listener) {
+		if (job != generation)
+			return;
+
+		// A cancel that lands between the check above and the search clearing its stop flag is caught
+		// at the first iteration report, which takes well under a millisecond
+		SearchInfo result = engine.search(position, limits, info -> {
+			if (job != generation)
+				engine.stop();
+			else
+				callbacks.execute(() -> {
+					if (job == generation)
+						listener.onIteration(info);
+				});
+		});
+		callbacks.execute(() -> {
+			if (job == generation)
+				listener.onComplete(result);
+		});
+	}
+
+}
@@ -0,0 +1,111 @@
+package chess.engine;
+
+import chess.Position;
+
+// Handcrafted evaluation: material plus piece-square tables, with the king table blended between
+// middlegame and endgame by the remaining non-pawn material
+public class ClassicEvaluator implements Evaluator {
+
+	// Piece values in centipawns, indexed by piece type
+	public static final int[] VALUE = { 100, 320, 330, 500, 900, 0 };
+
+	// Game phase weight of each piece type; 24 is the full starting set
+	private static final int[] PHASE = { 0, 1, 1, 2, 4, 0 };
+	private static final int MAX_PHASE = 24;
+
+	// Piece-square tables from white's point of view, indexed by square (row 0 is the 8th rank)
+	private static final int[][] TABLES = {
+			{ // Pawn
+				0, 0, 0, 0, 0, 0, 0, 0,
+				50, 50, 50, 50, 50, 50, 50, 50,
+				10, 10, 20, 30, 30, 20, 10, 10,
+				5, 5, 10, 25, 25, 10, 5, 5,
+				0, 0, 0, 20, 20, 0, 0, 0,
+				5, -5, -10, 0, 0, -10, -5, 5,
+				5, 10, 10, -20, -20, 10, 10, 5,
+				0, 0, 0, 0, 0, 0, 0, 0 },
+			{ // Knight
+				-50, -40, -30, -30, -30, -30, -40, -50,
+				-40, -20, 0, 0, 0, 0, -20, -40,
+				-30, 0, 10, 15, 15, 10, 0, -30,
+				-30, 5, 15, 20, 20, 15, 5, -30,
+				-30, 0, 15, 20, 20, 15, 0, -30,
+				-30, 5, 10, 15, 15, 10, 5, -30,
+				-40, -20, 0, 5, 5, 0, -20, -40,
+				-50, -40, -30, -30, -30, -30, -40, -50 },
+			{ // Bishop
+				-20, -10, -10, -10, -10, -10, -10, -20,
+				-10, 0, 0, 0, 0, 0, 0, -10,
+				-10, 0, 5, 10, 10, 5, 0, -10,
+				-10, 5, 5, 10, 10, 5, 5, -10,
+				-10, 0, 10, 10, 10, 10, 0, -10,
+				-10, 10, 10, 10, 10, 10, 10, -10,
+				-10, 5, 0, 0, 0, 0, 5, -10,
+				-20, -10, -10, -10, -10, -10, -10, -20 },
+			{ // Rook
+				0, 0, 0, 0, 0, 0, 0, 0,
+				5, 10, 10, 10, 10, 10, 10, 5,
+				-5, 0, 0, 0, 0, 0, 0, -5,
+				-5, 0, 0, 0, 0, 0, 0, -5,
+				-5, 0, 0, 0, 0, 0, 0, -5,
+				-5, 0, 0, 0, 0, 0, 0, -5,
+				-5, 0, 0, 0, 0, 0, 0, -5,
+				0, 0, 0, 5, 5, 0, 0, 0 },
+			{ // Queen
+				-20, -10, -10, -5, -5, -10, -10, -20,
+				-10, 0, 0, 0, 0, 0, 0, -10,
+				-10, 0, 5, 5, 5, 5, 0, -10,
+				-5, 0, 5, 5, 5, 5, 0, -5,
+				0, 0, 5, 5, 5, 5, 0, -5,
+				-10, 5, 5, 5, 5, 5, 0, -10,
+				-10, 0, 5, 0, 0, 0, 0, -10,
+				-20, -10, -10, -5, -5, -10, -10, -20 },
+			{ // King, middlegame
+				-30, -40, -40, -50, -50, -40, -40, -30,
+				-30, -40, -40, -50, -50, -40, -40, -30,
+				-30, -40, -40, -50, -50, -40, -40, -30,
+				-30, -40, -40, -50, -50, -40, -40, -30,
+				-20, -30, -30, -40, -40, -30, -30, -20,
+				-10, -20, -20, -20, -20, -20, -20, -10,
+				20, 20, 0, 0, 0, 0, 20, 20,
+				20, 30, 10, 0, 0, 10, 30, 20 } };
+
+	private static final int[] KING_ENDGAME = {
+			-50, -40, -30, -20, -20, -30, -40, -50,
+			-30, -20, -10, 0, 0, -10, -20, -30,
+			-30, -10, 20, 30, 30, 20, -10, -30,
+			-30, -10, 30, 40, 40, 30, -10, -30,
+			-30, -10, 30, 40, 40, 30, -10, -30,
+			-30, -10, 20, 30, 30, 20, -10, -30,
+			-30, -30, 0, 0, 0, 0, -30, -30,
+			-50, -30, -30, -30, -30, -30, -30, -50 };
+
+	@Override
+	public int evaluate(Position pos) {
+		int score = 0, phase = 0;
+		for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+			int sign = color == Position.WHITE ? 1 : -1;
+			int mirror = color == Position.WHITE ? 0 : 56;      // Flips the row for black
+			for (int type = Position.PAWN; type < Position.KING; type++) {
+				for (long bb = pos.pieces(color, type); bb != 0; bb &= bb - 1) {
+					int sq = Long.numberOfTrailingZeros(bb) ^ mirror;
+					score += sign * (VALUE[type] + TABLES[type][sq]);
+					phase += PHASE[type];
+				}
+			}
+		}
+
+		// King placement: shelter while pieces remain, centralization once they are traded
+		phase = Math.min(phase, MAX_PHASE);
+		for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+			int king = pos.kingSquare(color);
+			if (king < 0)
+				continue;
+			int sq = color == Position.WHITE ? king : king ^ 56;
+			int kingScore = (TABLES[Position.KING][sq] * phase + KING_ENDGAME[sq] * (MAX_PHASE - phase)) / MAX_PHASE;
+			score += color == Position.WHITE ? kingScore : -kingScore;
+		}
+		return pos.sideToMove() == Position.WHITE ? score : -score;
+	}
+
+}
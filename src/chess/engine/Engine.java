@@ -0,0 +1,111 @@
+package chess.engine;
+
+import java.io.Closeable;
+import java.util.Random;
+
+import chess.Board;
+import chess.Move;
+import chess.Position;
+import chess.TranspositionTable;
+import chess.book.Book;
+import chess.tablebase.Tablebases;
+
+// Entry point for computer play and position scoring: owns the transposition table and a search.
+// Close an engine searching with more than one thread to end its helper threads.
+public class Engine implements Closeable {
+
+	public static final int DEFAULT_HASH_MB = 64;
+
+	private final TranspositionTable tt;
+	private final ParallelSearch search;
+	private Book book;                          // null when not playing from a book
+	private final Random bookRandom = new Random();
+	private Tablebases tablebases;              // null when not probing endgame tables
+
+	// Creates a single-threaded engine with the default hash size and the handcrafted evaluation
+	public Engine() {
+		this(DEFAULT_HASH_MB, new ClassicEvaluator(), 1);
+	}
+
+	// Creates an engine searching with the given number of threads (Lazy SMP when more than one)
+	public Engine(int hashMegabytes, Evaluator evaluator, int threads) {
+		tt = new TranspositionTable(hashMegabytes);
+		search = new ParallelSearch(tt, evaluator, threads);
+	}
+
+	// Changes the number of search threads; must not be called while searching
+	public void setThreads(int threads) {
+		search.setThreads(threads);
+	}
+
+	public int getThreads() {
+		return search.getThreads();
+	}
+
+	// Replaces the evaluation, e.g. with a network loaded from a file; must not be called while
+	// searching. Move ordering statistics start over.
+	public void setEvaluator(Evaluator evaluator) {
+		search.setEvaluator(evaluator);
+	}
+
+	// Searches the board's current position; the board itself is not modified
+	public SearchInfo search(Board board, SearchLimits limits, SearchListener listener) {
+		return search(board.getPosition(), limits, listener);
+	}
+
+	// Searches a position; the position itself is not modified. A position in the opening book is
+	// answered with a weighted book move and no search (depth 0, no nodes).
+	public SearchInfo search(Position position, SearchLimits limits, SearchListener listener) {
+		if (book != null) {
+			int move = book.pickMove(position, bookRandom);
+			if (move != Move.NONE) {
+				SearchInfo info = new SearchInfo(0, 0, 0, 0, new int[] { move });
+				if (listener != null)
+					listener.onIteration(info);
+				return info;
+			}
+		}
+		return search.search(position, limits, listener);
+	}
+
+	// Plays from the given opening book while the position is in it (null to turn the book off)
+	public void setBook(Book book) {
+		this.book = book;
+	}
+
+	public Book getBook() {
+		return book;
+	}
+
+	// Probes the given endgame tables during search (null to turn them off); not while searching
+	public void setTablebases(Tablebases tablebases) {
+		this.tablebases = tablebases;
+		search.setTablebases(tablebases);
+	}
+
+	public Tablebases getTablebases() {
+		return tablebases;
+	}
+
+	// Stops a running search from another thread; the search returns its last completed iteration
+	public void stop() {
+		search.stop();
+	}
+
+	// Forgets everything learned in earlier searches
+	public void newGame() {
+		tt.clear();
+		search.clearHistory();
+	}
+
+	public TranspositionTable getTranspositionTable() {
+		return tt;
+	}
+
+	// Ends the search helper threads; the book and tablebases belong to the caller and stay open
+	@Override
+	public void close() {
+		search.close();
+	}
+
+}
@@ -0,0 +1,17 @@
+package chess.engine;
+
+import chess.Position;
+
+// Static evaluation used at the leaves of the search
+public interface Evaluator {
+
+	// Returns the score of the position in centipawns from the side to move's point of view
+	int evaluate(Position pos);
+
+	// Returns an evaluator for one search thread. Stateless evaluators share themselves; ones that
+	// keep incremental state between calls return a fresh instance.
+	default Evaluator forThread() {
+		return this;
+	}
+
+}
@@ -0,0 +1,138 @@
+package chess.engine;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import chess.Position;
+import chess.TranspositionTable;
+import chess.tablebase.Tablebases;
+
+// Lazy SMP: every thread searches the same root position with its own Search (and so its own
+// Position copy, killers and history) while sharing one lock-free transposition table. Helpers
+// skip different iterations so they run ahead of the main search and fill the table with results
+// it can reuse. The calling thread runs the main search, whose iterations are reported and
+// returned; helpers are stopped as soon as it finishes.
+public class ParallelSearch implements Closeable {
+
+	private final TranspositionTable tt;
+	private Evaluator evaluator;
+	private final List<Search> searches = new ArrayList<>();
+	private Tablebases tablebases;
+	private ExecutorService helpers;
+
+	public ParallelSearch(TranspositionTable tt, Evaluator evaluator, int threads) {
+		this.tt = tt;
+		this.evaluator = evaluator;
+		setThreads(threads);
+	}
+
+	// Changes the number of search threads (at least 1); must not be called while searching
+	public void setThreads(int threads) {
+		threads = Math.max(1, threads);
+		close();
+		while (searches.size() > threads)
+			searches.remove(searches.size() - 1);
+		while (searches.size() < threads) {
+			Search search = new Search(tt, evaluator);
+			search.setHelperIndex(searches.size());
+			search.setTablebases(tablebases);
+			searches.add(search);
+		}
+		if (threads > 1) {
+			helpers = Executors.newFixedThreadPool(threads - 1, r -> {
+				Thread thread = new Thread(r, "search-helper");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	// Evaluates with the given evaluator from the next search on; must not be called while searching
+	public void setEvaluator(Evaluator evaluator) {
+		this.evaluator = evaluator;
+		int threads = searches.size();
+		searches.clear();
+		setThreads(threads);
+	}
+
+	public int getThreads() {
+		return searches.size();
+	}
+
+	// Ends the helper threads; the search must not be used afterwards
+	@Override
+	public void close() {
+		if (helpers != null) {
+			helpers.shutdownNow();
+			helpers = null;
+		}
+	}
+
+	// Lets every thread probe the given endgame tables (null to turn off); not while searching
+	public void setTablebases(Tablebases tablebases) {
+		this.tablebases = tablebases;
+		for (Search search : searches)
+			search.setTablebases(tablebases);
+	}
+
+	// Searches root on all threads; iteration reports carry the node count summed over all threads
+	public SearchInfo search(Position root, SearchLimits limits, SearchListener listener) {
+		tt.newSearch();
+		int threads = searches.size();
+
+		// All stop flags are cleared before any thread starts, so the final stop() reaches every helper
+		for (Search search : searches)
+			search.prepare();
+
+		// Helpers get no node or time budget; the main search's limits decide when everybody stops
+		List<Future<?>> running = new ArrayList<>(threads - 1);
+		SearchLimits helperLimits = new SearchLimits().depth(limits.getDepth());
+		for (int i = 1; i < threads; i++) {
+			Search helper = searches.get(i);
+			running.add(helpers.submit(() -> helper.iterate(root, helperLimits, null)));
+		}
+
+		SearchListener totals = listener == null ? null
+				: info -> listener.onIteration(new SearchInfo(info.getDepth(), info.getScore(), getNodes(),
+						info.getTimeMillis(), info.getPv(), info.getMultiPv()));
+		SearchInfo result = searches.get(0).iterate(root, limits, totals);
+
+		stop();
+		for (Future<?> future : running) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Search helper failed", e.getCause());
+			}
+		}
+		return new SearchInfo(result.getDepth(), result.getScore(), getNodes(), result.getTimeMillis(), result.getPv());
+	}
+
+	// Stops every thread; the main search returns its last completed iteration
+	public void stop() {
+		for (Search search : searches)
+			search.stop();
+	}
+
+	// Nodes searched by all threads in the current (or last) search
+	public long getNodes() {
+		long nodes = 0;
+		for (Search search : searches)
+			nodes += search.getNodes();
+		return nodes;
+	}
+
+	// Forgets killer and history statistics on every thread
+	public void clearHistory() {
+		for (Search search : searches)
+			search.clearHistory();
+	}
+
+}
@@ -0,0 +1,459 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+import chess.TranspositionTable;
+import chess.metrics.Metrics;
+import chess.tablebase.Tablebases;
+
+// Iterative-deepening principal variation search (alpha-beta with null windows) over a private
+// copy of a Position. Leaves are resolved by a captures-only quiescence search. Moves are ordered
+// by transposition table move, captures by MVV-LVA, killer moves and the history heuristic.
+// One Search instance is single-threaded; several can share one TranspositionTable.
+public class Search {
+
+	public static final int MAX_PLY = 128;
+	public static final int INFINITE = 32000;
+	public static final int MATE = 31000;          // Mate scores are MATE minus the plies to mate
+	private static final int MATE_BOUND = MATE - MAX_PLY;
+
+	// Move ordering bands
+	private static final int TT_MOVE_SCORE = 10_000_000;
+	private static final int CAPTURE_SCORE = 1_000_000;
+	private static final int PROMOTION_SCORE = 900_000;
+	private static final int KILLER_SCORE = 800_000;
+	private static final int HISTORY_LIMIT = 500_000;
+
+	private static final int CHECK_INTERVAL = 2047;  // Nodes between time limit checks
+
+	// Depth skipping for Lazy SMP helper threads: helper i skips the iterations where
+	// ((depth + SKIP_PHASE[i]) / SKIP_SIZE[i]) is odd, so helpers spread over different depths
+	private static final int[] SKIP_SIZE = { 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4 };
+	private static final int[] SKIP_PHASE = { 0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7 };
+
+	private final Position pos = new Position();
+	private final TranspositionTable tt;
+	private final Evaluator evaluator;
+	private Tablebases tablebases;                  // null when not probing endgame tables
+
+	private final int[][] moves = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+	private final int[][] scores = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+	private final int[][] killers = new int[MAX_PLY + 1][2];
+	private final int[][] history = new int[12][64];         // Indexed by moving piece and destination
+	private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+	private final int[] pvLength = new int[MAX_PLY + 1];
+	private final int[] excludedRoot = new int[MoveGenerator.MAX_MOVES];   // Root moves of better multi-PV lines
+	private int excludedCount;
+
+	private volatile boolean stopped;
+	private int helperIndex;                        // 0 for the main search, 1.. for Lazy SMP helpers
+	private long nodes;
+	private long nodeLimit;
+	private long startNanos;
+	private long deadlineNanos;                     // Long.MAX_VALUE when there is no time limit
+	private long ttProbes, ttHits;                  // Statistics for Metrics, counted only when it is enabled
+	private long cutoffs, firstMoveCutoffs;
+
+	// Evaluators that keep state between calls are copied, so each search has its own
+	public Search(TranspositionTable tt, Evaluator evaluator) {
+		this.tt = tt;
+		this.evaluator = evaluator.forThread();
+	}
+
+	// Asks a running search to return as soon as possible; safe to call from any thread
+	public void stop() {
+		stopped = true;
+	}
+
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	// Makes this search a Lazy SMP helper (index >= 1) that skips some iterations, or the main search (0)
+	public void setHelperIndex(int index) {
+		helperIndex = index;
+	}
+
+	// Probes the endgame tables below the root once few enough pieces are left (null to turn off)
+	public void setTablebases(Tablebases tablebases) {
+		this.tablebases = tablebases;
+	}
+
+	// Nodes searched so far by the current (or last) search
+	public long getNodes() {
+		return nodes;
+	}
+
+	// Forgets killer and history statistics, e.g. when a new game starts
+	public void clearHistory() {
+		for (int[] row : history)
+			Arrays.fill(row, 0);
+	}
+
+	// Searches the root position within the limits, reporting each completed iteration to listener
+	// (which may be null). Returns the last completed iteration.
+	public SearchInfo search(Position root, SearchLimits limits, SearchListener listener) {
+		prepare();
+		return iterate(root, limits, listener);
+	}
+
+	// Clears the stop flag ahead of iterate, so a stop() issued after this point is never lost
+	void prepare() {
+		stopped = false;
+		nodes = 0;
+		ttProbes = ttHits = cutoffs = firstMoveCutoffs = 0;
+	}
+
+	// Iterative deepening loop; callers must call prepare() first
+	SearchInfo iterate(Position root, SearchLimits limits, SearchListener listener) {
+		pos.copyFrom(root);
+		nodeLimit = limits.getNodes();
+		startNanos = System.nanoTime();
+		deadlineNanos = limits.getMoveTime() > 0 ? startNanos + limits.getMoveTime() * 1_000_000 : Long.MAX_VALUE;
+		for (int[] k : killers)
+			k[0] = k[1] = Move.NONE;
+		ageHistory();
+
+		// Multi-PV: each further line searches the root again without the moves of the lines above it
+		int lines = Math.min(limits.getMultiPv(), Math.max(1, MoveGenerator.generate(pos, moves[0], 0)));
+
+		SearchInfo best = null;
+		for (int depth = 1; depth <= limits.getDepth(); depth++) {
+			if (skipDepth(depth))
+				continue;
+			SearchInfo first = null;
+			excludedCount = 0;
+			for (int line = 1; line <= lines; line++) {
+				int score = pvs(depth, -INFINITE, INFINITE, 0);
+
+				// An interrupted line is incomplete; keep the previous one unless there is none
+				if (stopped && (best != null || first != null))
+					break;
+				SearchInfo info = new SearchInfo(depth, score, nodes, elapsedMillis(), Arrays.copyOf(pv[0], pvLength[0]), line);
+				if (first == null)
+					first = info;
+				if (listener != null)
+					listener.onIteration(info);
+				if (stopped || pvLength[0] == 0)
+					break;
+				excludedRoot[excludedCount++] = pv[0][0];
+			}
+			excludedCount = 0;
+			if (first == null)
+				break;
+			best = first;
+			int score = best.getScore();
+			if (stopped || Math.abs(score) >= MATE_BOUND && MATE - Math.abs(score) <= depth && lines == 1)
+				break;
+		}
+
+		// Stopped before even one move was scored: fall back to any legal move
+		if (best.getPv().length == 0 && MoveGenerator.generate(pos, moves[0], 0) > 0)
+			best = new SearchInfo(best.getDepth(), best.getScore(), nodes, elapsedMillis(), new int[] { moves[0][0] });
+		if (Metrics.ENABLED)
+			Metrics.recordSearch(nodes, helperIndex == 0 ? System.nanoTime() - startNanos : 0, ttProbes, ttHits, cutoffs,
+					firstMoveCutoffs);
+		return best;
+	}
+
+	// True if this helper leaves the given iteration to the other threads
+	private boolean skipDepth(int depth) {
+		if (helperIndex == 0 || depth == 1)
+			return false;
+		int i = (helperIndex - 1) % SKIP_SIZE.length;
+		return ((depth + SKIP_PHASE[i]) / SKIP_SIZE[i]) % 2 != 0;
+	}
+
+	// Principal variation search; returns the score of the position from the side to move's view
+	private int pvs(int depth, int alpha, int beta, int ply) {
+		pvLength[ply] = ply;
+		boolean root = ply == 0;
+		boolean pvNode = beta - alpha > 1;
+
+		if (!root) {
+			if (isDraw())
+				return 0;
+
+			// Mate distance pruning: no line from here can beat a shorter mate already found
+			alpha = Math.max(alpha, -MATE + ply);
+			beta = Math.min(beta, MATE - ply - 1);
+			if (alpha >= beta)
+				return alpha;
+
+			// Endgame tables: an exact result, with mates scored by their distance from the root
+			if (tablebases != null && Long.bitCount(pos.occupied()) <= tablebases.getMaxPieces()) {
+				int wdl = tablebases.probeWdl(pos);
+				if (wdl != Tablebases.UNKNOWN) {
+					countNode();
+					int plies = Math.min(ply + tablebases.probeDtm(pos), MAX_PLY - 1);
+					return wdl == Tablebases.DRAW ? 0 : wdl == Tablebases.WIN ? MATE - plies : -MATE + plies;
+				}
+			}
+		}
+
+		boolean inCheck = inCheck();
+		if (inCheck)
+			depth++;                                // Check extension
+		if (depth <= 0)
+			return quiesce(alpha, beta, ply);
+		if (ply >= MAX_PLY)
+			return evaluator.evaluate(pos);
+		countNode();
+		if (stopped)
+			return 0;
+
+		// Transposition table: reuse the stored move for ordering, and the score where its bound allows
+		long entry = tt.probe(pos.key());
+		int ttMove = Move.NONE;
+		if (Metrics.ENABLED) {
+			ttProbes++;
+			if (entry != 0)
+				ttHits++;
+		}
+		if (entry != 0) {
+			ttMove = TranspositionTable.move(entry);
+			if (!pvNode && TranspositionTable.depth(entry) >= depth) {
+				int score = fromTable(TranspositionTable.score(entry), ply);
+				int bound = TranspositionTable.bound(entry);
+				if (bound == TranspositionTable.EXACT || bound == TranspositionTable.LOWER && score >= beta
+						|| bound == TranspositionTable.UPPER && score <= alpha)
+					return score;
+			}
+		}
+
+		// Null move pruning: if passing still fails high, a real move will too
+		if (!pvNode && !inCheck && depth >= 3 && hasPieces(pos.sideToMove()) && evaluator.evaluate(pos) >= beta) {
+			pos.makeNullMove();
+			int score = -pvs(depth - 3, -beta, -beta + 1, ply + 1);
+			pos.unmakeNullMove();
+			if (stopped)
+				return 0;
+			if (score >= beta)
+				return score >= MATE_BOUND ? beta : score;
+		}
+
+		int count = MoveGenerator.generate(pos, moves[ply], 0);
+		if (count == 0)
+			return inCheck ? -MATE + ply : 0;
+		scoreMoves(ply, count, ttMove);
+
+		int bestScore = -INFINITE, bestMove = Move.NONE;
+		int bound = TranspositionTable.UPPER;
+		int searched = 0;
+		for (int i = 0; i < count; i++) {
+			int move = pickNext(ply, i, count);
+			if (root && isExcluded(move))
+				continue;
+			boolean quiet = !Move.isCapture(move) && !Move.isPromotion(move);
+			int piece = pos.pieceAt(Move.from(move));
+
+			pos.makeMove(move);
+			int score;
+			if (searched++ == 0) {
+				score = -pvs(depth - 1, -beta, -alpha, ply + 1);
+			} else {
+				// Late move reduction for quiet moves ordered far down the list
+				int reduction = depth >= 3 && i >= 3 && quiet && !inCheck ? (i >= 8 && depth >= 6 ? 2 : 1) : 0;
+				score = -pvs(depth - 1 - reduction, -alpha - 1, -alpha, ply + 1);
+				if (score > alpha && reduction > 0)
+					score = -pvs(depth - 1, -alpha - 1, -alpha, ply + 1);
+				if (score > alpha && score < beta)
+					score = -pvs(depth - 1, -beta, -alpha, ply + 1);
+			}
+			pos.unmakeMove();
+			if (stopped)
+				return 0;
+
+			if (score > bestScore) {
+				bestScore = score;
+				bestMove = move;
+				if (score > alpha) {
+					alpha = score;
+					bound = TranspositionTable.EXACT;
+					updatePv(ply, move);
+					if (score >= beta) {
+						bound = TranspositionTable.LOWER;
+						if (Metrics.ENABLED) {
+							cutoffs++;
+							if (searched == 1)
+								firstMoveCutoffs++;
+						}
+						if (quiet)
+							rewardQuiet(ply, move, piece, depth);
+						break;
+					}
+				}
+			}
+		}
+
+		// A fail-low has no reliable best move, so the table keeps whatever move it already had. A root
+		// with excluded moves was not fully searched, so it is not stored.
+		if (!root || excludedCount == 0)
+			tt.store(pos.key(), bound == TranspositionTable.UPPER ? Move.NONE : bestMove, toTable(bestScore, ply), depth, bound);
+		return bestScore;
+	}
+
+	// True if a better multi-PV line already starts with move
+	private boolean isExcluded(int move) {
+		for (int i = 0; i < excludedCount; i++) {
+			if (excludedRoot[i] == move)
+				return true;
+		}
+		return false;
+	}
+
+	// Quiescence search: only captures and queen promotions (all evasions when in check) until quiet
+	private int quiesce(int alpha, int beta, int ply) {
+		pvLength[ply] = ply;
+		countNode();
+		if (stopped)
+			return 0;
+		if (ply >= MAX_PLY)
+			return evaluator.evaluate(pos);
+
+		boolean inCheck = inCheck();
+		int bestScore;
+		int count;
+		if (inCheck) {
+			count = MoveGenerator.generate(pos, moves[ply], 0);
+			if (count == 0)
+				return -MATE + ply;
+			bestScore = -INFINITE;
+		} else {
+			// Stand pat: the side to move can usually do at least as well as the static score
+			bestScore = evaluator.evaluate(pos);
+			if (bestScore >= beta)
+				return bestScore;
+			alpha = Math.max(alpha, bestScore);
+			count = MoveGenerator.generateCaptures(pos, moves[ply], 0);
+		}
+		scoreMoves(ply, count, Move.NONE);
+
+		for (int i = 0; i < count; i++) {
+			int move = pickNext(ply, i, count);
+			pos.makeMove(move);
+			int score = -quiesce(-beta, -alpha, ply + 1);
+			pos.unmakeMove();
+			if (stopped)
+				return 0;
+			if (score > bestScore) {
+				bestScore = score;
+				if (score > alpha) {
+					alpha = score;
+					updatePv(ply, move);
+					if (score >= beta)
+						break;
+				}
+			}
+		}
+		return bestScore;
+	}
+
+	// Assigns an ordering score to each generated move at this ply
+	private void scoreMoves(int ply, int count, int ttMove) {
+		int[] list = moves[ply], values = scores[ply];
+		for (int i = 0; i < count; i++) {
+			int move = list[i];
+			int attacker = pos.pieceAt(Move.from(move));
+			if (move == ttMove) {
+				values[i] = TT_MOVE_SCORE;
+			} else if (Move.isCapture(move)) {
+				int victim = Move.flags(move) == Move.EN_PASSANT ? Position.PAWN : Position.typeOf(pos.pieceAt(Move.to(move)));
+				values[i] = CAPTURE_SCORE + ClassicEvaluator.VALUE[victim] * 8 - Position.typeOf(attacker);
+			} else if (Move.isPromotion(move)) {
+				values[i] = PROMOTION_SCORE + Move.promotionType(move);
+			} else if (move == killers[ply][0]) {
+				values[i] = KILLER_SCORE + 1;
+			} else if (move == killers[ply][1]) {
+				values[i] = KILLER_SCORE;
+			} else {
+				values[i] = history[attacker][Move.to(move)];
+			}
+		}
+	}
+
+	// Moves the best-scored remaining move to index i and returns it (selection sort, one step)
+	private int pickNext(int ply, int i, int count) {
+		int[] list = moves[ply], values = scores[ply];
+		int best = i;
+		for (int j = i + 1; j < count; j++) {
+			if (values[j] > values[best])
+				best = j;
+		}
+		int move = list[best], value = values[best];
+		list[best] = list[i];
+		values[best] = values[i];
+		list[i] = move;
+		values[i] = value;
+		return move;
+	}
+
+	// A quiet move caused a cutoff: remember it as a killer and raise its history score
+	private void rewardQuiet(int ply, int move, int piece, int depth) {
+		if (killers[ply][0] != move) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
+		}
+		int[] row = history[piece];
+		row[Move.to(move)] += depth * depth;
+		if (row[Move.to(move)] > HISTORY_LIMIT)
+			ageHistory();
+	}
+
+	// Halves all history scores so recent cutoffs outweigh old ones
+	private void ageHistory() {
+		for (int[] row : history)
+			for (int i = 0; i < row.length; i++)
+				row[i] >>= 1;
+	}
+
+	// Best line at this ply is move followed by the best line found one ply deeper
+	private void updatePv(int ply, int move) {
+		pv[ply][ply] = move;
+		System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+		pvLength[ply] = Math.max(pvLength[ply + 1], ply + 1);
+	}
+
+	private boolean inCheck() {
+		int us = pos.sideToMove();
+		return pos.attackersTo(pos.kingSquare(us), us ^ 1, pos.occupied()) != 0;
+	}
+
+	// True if the color has anything besides king and pawns (null move is unsafe in pawn endings)
+	private boolean hasPieces(int color) {
+		return (pos.occupancy(color) & ~pos.pieces(color, Position.PAWN) & ~pos.pieces(color, Position.KING)) != 0;
+	}
+
+	// Fifty-move rule, repetition of an earlier position, or too little material to mate
+	private boolean isDraw() {
+		if (pos.halfmoveClock() >= 100 || pos.repetitions() > 0)
+			return true;
+		long heavy = pos.pieces(Position.WHITE, Position.PAWN) | pos.pieces(Position.BLACK, Position.PAWN)
+				| pos.pieces(Position.WHITE, Position.ROOK) | pos.pieces(Position.BLACK, Position.ROOK)
+				| pos.pieces(Position.WHITE, Position.QUEEN) | pos.pieces(Position.BLACK, Position.QUEEN);
+		return heavy == 0 && Long.bitCount(pos.occupied()) <= 3;
+	}
+
+	// Counts a node and checks the node budget on every node, the clock every few thousand nodes
+	private void countNode() {
+		if (++nodes >= nodeLimit || (nodes & CHECK_INTERVAL) == 0 && System.nanoTime() >= deadlineNanos)
+			stopped = true;
+	}
+
+	private long elapsedMillis() {
+		return (System.nanoTime() - startNanos) / 1_000_000;
+	}
+
+	// Mate scores are stored relative to the node, not the root, so they stay valid at other plies
+	private static int toTable(int score, int ply) {
+		return score >= MATE_BOUND ? score + ply : score <= -MATE_BOUND ? score - ply : score;
+	}
+
+	private static int fromTable(int score, int ply) {
+		return score >= MATE_BOUND ? score - ply : score <= -MATE_BOUND ? score + ply : score;
+	}
+
+}
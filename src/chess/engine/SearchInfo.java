@@ -0,0 +1,96 @@
+package chess.engine;
+
+import chess.Move;
+
+// Result of one completed search iteration: depth, score, principal variation and throughput
+public class SearchInfo {
+
+	private final int depth;
+	private final int score;          // Centipawns from the side to move's view, or a mate score
+	private final long nodes;
+	private final long timeMillis;
+	private final int[] pv;           // Principal variation, best move first
+	private final int multiPv;        // 1 for the best line, 2 for the second best, ...
+
+	public SearchInfo(int depth, int score, long nodes, long timeMillis, int[] pv) {
+		this(depth, score, nodes, timeMillis, pv, 1);
+	}
+
+	public SearchInfo(int depth, int score, long nodes, long timeMillis, int[] pv, int multiPv) {
+		this.depth = depth;
+		this.score = score;
+		this.nodes = nodes;
+		this.timeMillis = timeMillis;
+		this.pv = pv;
+		this.multiPv = multiPv;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public long getTimeMillis() {
+		return timeMillis;
+	}
+
+	// Nodes searched per second
+	public long getNodesPerSecond() {
+		return nodes * 1000 / Math.max(1, timeMillis);
+	}
+
+	public int[] getPv() {
+		return pv;
+	}
+
+	// Rank of this line in a multi-PV search (1 is the best)
+	public int getMultiPv() {
+		return multiPv;
+	}
+
+	// Best move found, or Move.NONE if the side to move has no legal move
+	public int getBestMove() {
+		return pv.length > 0 ? pv[0] : Move.NONE;
+	}
+
+	// Expected reply to the best move, or Move.NONE if the variation ends there
+	public int getPonderMove() {
+		return pv.length > 1 ? pv[1] : Move.NONE;
+	}
+
+	// True if the score is a forced mate for either side
+	public boolean isMate() {
+		return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+	}
+
+	// Moves (not plies) to mate: positive if the side to move mates, negative if it gets mated
+	public int getMateIn() {
+		int plies = Search.MATE - Math.abs(score);
+		return score > 0 ? (plies + 1) / 2 : -(plies / 2);
+	}
+
+	// Principal variation in UCI notation
+	public String getPvString() {
+		StringBuilder sb = new StringBuilder();
+		for (int move : pv) {
+			if (sb.length() > 0)
+				sb.append(' ');
+			sb.append(Move.toUci(move));
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return "depth " + depth + " score " + (isMate() ? "mate " + getMateIn() : "cp " + score) + " nodes " + nodes
+				+ " nps " + getNodesPerSecond() + " time " + timeMillis + " pv " + getPvString();
+	}
+
+}
@@ -0,0 +1,51 @@
+package chess.engine;
+
+// Budget for one search: maximum depth, node count and thinking time. Unset limits do not apply.
+public class SearchLimits {
+
+	private int depth = Search.MAX_PLY;
+	private long nodes = Long.MAX_VALUE;
+	private long moveTimeMillis;      // 0 means no time limit
+	private int multiPv = 1;
+
+	// Limits the search to the given number of plies
+	public SearchLimits depth(int depth) {
+		this.depth = Math.max(1, Math.min(Search.MAX_PLY, depth));
+		return this;
+	}
+
+	// Stops the search once it has visited the given number of nodes
+	public SearchLimits nodes(long nodes) {
+		this.nodes = nodes;
+		return this;
+	}
+
+	// Stops the search after the given number of milliseconds
+	public SearchLimits moveTime(long millis) {
+		this.moveTimeMillis = millis;
+		return this;
+	}
+
+	// Searches the best lines lines instead of only the best one; each is reported separately
+	public SearchLimits multiPv(int lines) {
+		this.multiPv = Math.max(1, lines);
+		return this;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public long getMoveTime() {
+		return moveTimeMillis;
+	}
+
+	public int getMultiPv() {
+		return multiPv;
+	}
+
+}
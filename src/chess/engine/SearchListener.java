@@ -0,0 +1,8 @@
+package chess.engine;
+
+// Receives a report after every completed iteration of the search
+public interface SearchListener {
+
+	void onIteration(SearchInfo info);
+
+}
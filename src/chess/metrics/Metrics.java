@@ -0,0 +1,197 @@
+package chess.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import chess.Position;
+
+// Counters and latency histograms for the rules code and the search. Off unless the JVM is
+// started with -Dchess.metrics=true; ENABLED is a static final constant, so the JIT folds every
+// "if (Metrics.ENABLED)" guard away and instrumented code runs exactly as if it had none.
+// When enabled, the numbers are published over JMX as chess:type=Metrics and printed to stderr
+// every -Dchess.metrics.dumpSeconds (default 60, 0 for never).
+//
+// Counters are LongAdders, striped per thread under contention. Searches keep their statistics in
+// plain fields and add them here once per search, so the node loop never touches shared memory.
+public final class Metrics {
+
+	public static final boolean ENABLED = Boolean.getBoolean("chess.metrics");
+
+	private static final String[] PIECE_NAMES = { "pawn", "knight", "bishop", "rook", "queen", "king" };
+
+	// Board legality checks (findMove, isPromotionMove, getLegalMoves), indexed by the moving
+	// piece's Position type. Piece.isValidMove is not counted: the rules no longer call it.
+	private static final LongAdder[] LEGALITY_CHECKS = new LongAdder[6];
+
+	public static final LatencyHistogram MOVE_PIECE = new LatencyHistogram("Board.movePiece");
+	public static final LatencyHistogram KING_IN_CHECK = new LatencyHistogram("Board.isKingInCheck");
+	public static final LatencyHistogram CHECKMATE = new LatencyHistogram("Board.isCheckmateFor");
+	public static final LatencyHistogram STALEMATE = new LatencyHistogram("Board.isStalemate");
+	public static final LatencyHistogram LEGAL_MOVES = new LatencyHistogram("Board.getLegalTargets");
+	private static final LatencyHistogram[] HISTOGRAMS = { MOVE_PIECE, KING_IN_CHECK, CHECKMATE, STALEMATE, LEGAL_MOVES };
+
+	private static final LongAdder searchNodes = new LongAdder();
+	private static final LongAdder searchNanos = new LongAdder();
+	private static final LongAdder ttProbes = new LongAdder();
+	private static final LongAdder ttHits = new LongAdder();
+	private static final LongAdder cutoffs = new LongAdder();
+	private static final LongAdder firstMoveCutoffs = new LongAdder();
+
+	static {
+		for (int type = 0; type < LEGALITY_CHECKS.length; type++)
+			LEGALITY_CHECKS[type] = new LongAdder();
+		if (ENABLED) {
+			register();
+			long seconds = Long.getLong("chess.metrics.dumpSeconds", 60);
+			if (seconds > 0)
+				startDump(seconds);
+		}
+	}
+
+	private Metrics() {
+	}
+
+	// Counts one Board legality check for the moving piece type; callers guard with ENABLED
+	public static void countLegalityCheck(int type) {
+		LEGALITY_CHECKS[type].increment();
+	}
+
+	// Adds the statistics of one finished search. Only the main search of a parallel search reports
+	// its time, so nodes per second counts all threads' nodes against wall-clock time.
+	public static void recordSearch(long nodes, long nanos, long probes, long hits, long failHighs, long firstMoveFailHighs) {
+		searchNodes.add(nodes);
+		searchNanos.add(nanos);
+		ttProbes.add(probes);
+		ttHits.add(hits);
+		cutoffs.add(failHighs);
+		firstMoveCutoffs.add(firstMoveFailHighs);
+	}
+
+	public static String report() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("legality checks:");
+		for (int type = 0; type < LEGALITY_CHECKS.length; type++)
+			sb.append(' ').append(PIECE_NAMES[type]).append('=').append(LEGALITY_CHECKS[type].sum());
+		sb.append('\n');
+		for (LatencyHistogram histogram : HISTOGRAMS)
+			sb.append(histogram).append('\n');
+		sb.append(String.format("search: nodes=%d nps=%.0f tt-hit=%.1f%% cutoff=%.1f%% first-move-cutoff=%.1f%%",
+				searchNodes.sum(), nodesPerSecond(), 100 * ratio(ttHits, ttProbes), 100 * ratio(cutoffs, searchNodes),
+				100 * ratio(firstMoveCutoffs, cutoffs)));
+		return sb.toString();
+	}
+
+	public static void reset() {
+		for (LongAdder counter : LEGALITY_CHECKS)
+			counter.reset();
+		for (LatencyHistogram histogram : HISTOGRAMS)
+			histogram.reset();
+		for (LongAdder counter : new LongAdder[] { searchNodes, searchNanos, ttProbes, ttHits, cutoffs, firstMoveCutoffs })
+			counter.reset();
+	}
+
+	private static double nodesPerSecond() {
+		long nanos = searchNanos.sum();
+		return nanos == 0 ? 0 : searchNodes.sum() * 1e9 / nanos;
+	}
+
+	private static double ratio(LongAdder part, LongAdder whole) {
+		long total = whole.sum();
+		return total == 0 ? 0 : (double) part.sum() / total;
+	}
+
+	private static void register() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName("chess:type=Metrics"));
+		} catch (JMException e) {
+			System.err.println("metrics: JMX registration failed: " + e);
+		}
+	}
+
+	private static void startDump(long seconds) {
+		ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "metrics-dump");
+			thread.setDaemon(true);
+			return thread;
+		});
+		dumper.scheduleAtFixedRate(() -> System.err.println("[metrics " + LocalTime.now().truncatedTo(ChronoUnit.SECONDS)
+				+ "]\n" + report()), seconds, seconds, TimeUnit.SECONDS);
+	}
+
+	private static final class Bean implements MetricsMXBean {
+
+		@Override
+		public boolean isEnabled() {
+			return ENABLED;
+		}
+
+		@Override
+		public Map<String, Long> getLegalityChecks() {
+			Map<String, Long> checks = new LinkedHashMap<>();
+			for (int type = Position.PAWN; type <= Position.KING; type++)
+				checks.put(PIECE_NAMES[type], LEGALITY_CHECKS[type].sum());
+			return checks;
+		}
+
+		@Override
+		public Map<String, Double> getLatencies() {
+			Map<String, Double> latencies = new LinkedHashMap<>();
+			for (LatencyHistogram histogram : HISTOGRAMS) {
+				String name = histogram.getName();
+				latencies.put(name + ".count", (double) histogram.getCount());
+				latencies.put(name + ".p50", histogram.percentile(0.5) / 1000.0);
+				latencies.put(name + ".p90", histogram.percentile(0.9) / 1000.0);
+				latencies.put(name + ".p99", histogram.percentile(0.99) / 1000.0);
+				latencies.put(name + ".max", histogram.getMaxNanos() / 1000.0);
+			}
+			return latencies;
+		}
+
+		@Override
+		public long getSearchNodes() {
+			return searchNodes.sum();
+		}
+
+		@Override
+		public double getNodesPerSecond() {
+			return nodesPerSecond();
+		}
+
+		@Override
+		public double getTtHitRate() {
+			return ratio(ttHits, ttProbes);
+		}
+
+		@Override
+		public double getCutoffRate() {
+			return ratio(cutoffs, searchNodes);
+		}
+
+		@Override
+		public double getFirstMoveCutoffRate() {
+			return ratio(firstMoveCutoffs, cutoffs);
+		}
+
+		@Override
+		public String getReport() {
+			return report();
+		}
+
+		@Override
+		public void reset() {
+			Metrics.reset();
+		}
+
+	}
+
+}
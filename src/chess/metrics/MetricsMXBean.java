@@ -0,0 +1,34 @@
+package chess.metrics;
+
+import java.util.Map;
+
+// JMX view of Metrics, registered as "chess:type=Metrics" when metrics are enabled
+public interface MetricsMXBean {
+
+	boolean isEnabled();
+
+	// Board legality checks by moving piece name
+	Map<String, Long> getLegalityChecks();
+
+	// Latency percentiles in microseconds, keyed "<histogram>.<p50|p90|p99|max|count>"
+	Map<String, Double> getLatencies();
+
+	long getSearchNodes();
+
+	double getNodesPerSecond();
+
+	// Share of transposition table probes that found an entry
+	double getTtHitRate();
+
+	// Share of searched nodes that failed high
+	double getCutoffRate();
+
+	// Share of fail-highs caused by the first move tried (move ordering quality)
+	double getFirstMoveCutoffRate();
+
+	// Everything above as printable text
+	String getReport();
+
+	void reset();
+
+}
@@ -0,0 +1,151 @@
+package chess.nnue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+import chess.Position;
+
+// Quantized weights of a two-layer evaluation network: 768 piece-square inputs seen from each
+// side, a hidden layer of clipped ReLUs per perspective, and one output over both halves with the
+// side to move's half first. Weights are immutable once loaded and shared by every evaluator.
+//
+// The file stores 16-bit weights; in memory they are widened to ints, one array per feature row
+// and per output half, which is the shape the evaluator's loops need to be compiled to SIMD code
+// (HotSpot's superword pass handles neither 16-bit clamping nor rows at an offset into one array).
+//
+// File layout (little-endian):
+//   header (32 bytes)  magic "CNN1", version (2), reserved (2), inputs (4), hidden (4), output bias (4), reserved (12)
+//   feature weights    inputs * hidden shorts, one row of hidden values per input feature
+//   feature biases     hidden shorts
+//   output weights     2 * hidden shorts, side to move's half first
+// Feature weights and biases are scaled by QA, output weights by QB and the output bias by QA * QB.
+public final class Network {
+
+	public static final String EXTENSION = ".cnn";
+
+	static final int MAGIC = 'C' | 'N' << 8 | 'N' << 16 | '1' << 24;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+
+	public static final int INPUTS = 768;   // Own and opposing pieces: 2 sides * 6 types * 64 squares
+	public static final int QA = 255;       // Hidden activations are clipped to [0, QA]
+	public static final int QB = 64;
+	public static final int SCALE = 400;    // Network output units per centipawn * QA * QB
+
+	final int hidden;
+	final int[][] featureWeights;       // One row of hidden values per input feature
+	final int[] featureBiases;
+	final int[][] outputWeights;        // Side to move's half, then the other side's
+	final int outputBias;
+
+	// Takes the weights in file order
+	Network(int hidden, short[] featureWeights, short[] featureBiases, short[] outputWeights, int outputBias) {
+		this.hidden = hidden;
+		this.featureWeights = new int[INPUTS][];
+		for (int feature = 0; feature < INPUTS; feature++)
+			this.featureWeights[feature] = widen(featureWeights, feature * hidden, hidden);
+		this.featureBiases = widen(featureBiases, 0, hidden);
+		this.outputWeights = new int[][] { widen(outputWeights, 0, hidden), widen(outputWeights, hidden, hidden) };
+		this.outputBias = outputBias;
+		long worst = Math.abs((long) outputBias);
+		for (short weight : outputWeights)
+			worst += (long) QA * Math.abs(weight);
+		if (worst > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Output weights too large for 32-bit sums");
+	}
+
+	private static int[] widen(short[] values, int from, int length) {
+		int[] wide = new int[length];
+		for (int i = 0; i < length; i++)
+			wide[i] = values[from + i];
+		return wide;
+	}
+
+	private static short[] narrow(int[] values) {
+		short[] narrow = new short[values.length];
+		for (int i = 0; i < values.length; i++)
+			narrow[i] = (short) values[i];
+		return narrow;
+	}
+
+	// Maps a network file and reads its weights. The mapping is released with the buffer once the
+	// weights are copied, so the file is not held open.
+	public static Network load(Path file) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE)
+				throw new IOException(file + " is not a network file");
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION || buffer.getInt(8) != INPUTS)
+			throw new IOException(file + " is not a version " + VERSION + " network with " + INPUTS + " inputs");
+		int hidden = buffer.getInt(12);
+		if (hidden <= 0 || buffer.capacity() != HEADER_SIZE + 2L * (INPUTS + 3L) * hidden)
+			throw new IOException(file + " has the wrong size for " + hidden + " hidden neurons");
+
+		short[] featureWeights = new short[INPUTS * hidden];
+		short[] featureBiases = new short[hidden];
+		short[] outputWeights = new short[2 * hidden];
+		buffer.position(HEADER_SIZE);
+		buffer.asShortBuffer().get(featureWeights).get(featureBiases).get(outputWeights);
+		try {
+			return new Network(hidden, featureWeights, featureBiases, outputWeights, buffer.getInt(16));
+		} catch (IllegalArgumentException e) {
+			throw new IOException(file + ": " + e.getMessage());
+		}
+	}
+
+	// Writes the network in the format load reads
+	public void write(Path file) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 2 * (INPUTS + 3) * hidden).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0);
+		buffer.putInt(INPUTS).putInt(hidden).putInt(outputBias);
+		buffer.position(HEADER_SIZE);
+		ShortBuffer shorts = buffer.asShortBuffer();
+		for (int[] row : featureWeights)
+			shorts.put(narrow(row));
+		shorts.put(narrow(featureBiases)).put(narrow(outputWeights[0])).put(narrow(outputWeights[1]));
+		buffer.position(0);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+		}
+	}
+
+	// A network of small random weights: plays nonsense, but costs the same to evaluate as a trained
+	// one, which is all benchmarks need
+	public static Network random(int hidden, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		short[] featureWeights = new short[INPUTS * hidden];
+		short[] featureBiases = new short[hidden];
+		short[] outputWeights = new short[2 * hidden];
+		for (int i = 0; i < featureWeights.length; i++)
+			featureWeights[i] = (short) random.nextInt(-64, 65);
+		for (int i = 0; i < hidden; i++)
+			featureBiases[i] = (short) random.nextInt(0, QA / 2);
+		for (int i = 0; i < outputWeights.length; i++)
+			outputWeights[i] = (short) random.nextInt(-QB, QB + 1);
+		return new Network(hidden, featureWeights, featureBiases, outputWeights, 0);
+	}
+
+	public int getHidden() {
+		return hidden;
+	}
+
+	// Input feature of a piece on a square as seen by one side: its own pieces first, and the board
+	// flipped for black so both sides see their pieces moving up the board
+	public static int feature(int perspective, int piece, int sq) {
+		int side = Position.colorOf(piece) == perspective ? 0 : 1;
+		return side * 384 + Position.typeOf(piece) * 64 + (perspective == Position.WHITE ? sq ^ 56 : sq);
+	}
+
+}
@@ -0,0 +1,281 @@
+package chess.nnue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import chess.Fen;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+import chess.engine.ClassicEvaluator;
+import chess.engine.Evaluator;
+
+// Fits a Network to the scores of another evaluator (the handcrafted one by default) over
+// positions from random games, then quantizes it and writes it. No trained network ships with the
+// game; this one reproduces the classic evaluation closely enough to exercise the whole pipeline,
+// and better labels (e.g. search scores) give a stronger one from the same code.
+//
+// Training runs in floating point with Adam, one position at a time, on the difference between
+// win probabilities (a logistic of the score over WDL_SCALE centipawns). Only the weight rows of
+// the pieces present are touched, so a step costs a few dozen rows. Weights are clipped so the
+// quantized network cannot overflow its 16-bit sums.
+//
+// Usage: java chess.nnue.NetworkTrainer <output file> [positions] [hidden] [epochs] [seed]
+public class NetworkTrainer {
+
+	private static final float WDL_SCALE = 400;     // Centipawns per logistic unit
+	private static final float CLIP = 1.98f;        // Largest weight magnitude, about 127 / QB
+	private static final float BETA1 = 0.9f, BETA2 = 0.999f, EPSILON = 1e-8f;
+	private static final float FLUSH = 1e-30f;
+	private static final int SAMPLE_EVERY = 4;      // Keep one position in this many from each game
+	private static final int MAX_GAME_PLIES = 200;
+
+	private final int hidden;
+	private final float[] w1, b1, w2;
+	private float b2;
+	private final float[] w1m, w1v, b1m, b1v, w2m, w2v;
+	private float b2m, b2v;
+	private int step;
+
+	// Training positions: each is a run of (piece << 6 | square) entries, the side to move and a target
+	private short[] entries = new short[1 << 16];
+	private int[] starts = new int[1025];
+	private byte[] sides = new byte[1024];
+	private float[] targets = new float[1024];
+	private int size;
+
+	// Scratch for one step
+	private final float[][] sums;
+	private final int[][] features = new int[2][32];
+
+	public NetworkTrainer(int hidden, long seed) {
+		this.hidden = hidden;
+		w1 = new float[Network.INPUTS * hidden];
+		b1 = new float[hidden];
+		w2 = new float[2 * hidden];
+		w1m = new float[w1.length];
+		w1v = new float[w1.length];
+		b1m = new float[hidden];
+		b1v = new float[hidden];
+		w2m = new float[w2.length];
+		w2v = new float[w2.length];
+		sums = new float[2][hidden];
+
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int i = 0; i < w1.length; i++)
+			w1[i] = (float) (random.nextGaussian() * 0.05);
+		for (int i = 0; i < hidden; i++)
+			b1[i] = 0.25f;
+		for (int i = 0; i < w2.length; i++)
+			w2[i] = (float) (random.nextGaussian() * 0.1);
+	}
+
+	// Plays random games (captures preferred half of the time) and adds count of their quiet
+	// positions, scored by labeller from the side to move's point of view
+	public void generate(int count, Evaluator labeller, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		Position pos = new Position();
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int[] captures = new int[MoveGenerator.MAX_MOVES];
+		int target = size + count;
+		while (size < target) {
+			Fen.parse(Fen.START, pos);
+			boolean quiet = true;
+			for (int ply = 0; ply < MAX_GAME_PLIES && size < target; ply++) {
+				int n = MoveGenerator.generate(pos, moves, 0);
+				if (n == 0 || pos.halfmoveClock() >= 100)
+					break;
+				if (ply >= 8 && quiet && !pos.isInCheck(pos.sideToMove()) && random.nextInt(SAMPLE_EVERY) == 0)
+					add(pos, labeller.evaluate(pos));
+
+				int c = 0;
+				for (int i = 0; i < n; i++) {
+					if (Move.isCapture(moves[i]))
+						captures[c++] = moves[i];
+				}
+				int move = c > 0 && random.nextBoolean() ? captures[random.nextInt(c)] : moves[random.nextInt(n)];
+				quiet = !Move.isCapture(move) && !Move.isPromotion(move);
+				pos.makeMove(move);
+			}
+		}
+	}
+
+	private void add(Position pos, int score) {
+		if (size == sides.length) {
+			starts = Arrays.copyOf(starts, size * 2 + 1);
+			sides = Arrays.copyOf(sides, size * 2);
+			targets = Arrays.copyOf(targets, size * 2);
+		}
+		int at = starts[size];
+		if (at + 32 > entries.length)
+			entries = Arrays.copyOf(entries, entries.length * 2);
+		for (long bb = pos.occupied(); bb != 0; bb &= bb - 1) {
+			int sq = Long.numberOfTrailingZeros(bb);
+			entries[at++] = (short) (pos.pieceAt(sq) << 6 | sq);
+		}
+		sides[size] = (byte) pos.sideToMove();
+		targets[size] = sigmoid(score / WDL_SCALE);
+		starts[++size] = at;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	// One pass over the positions in random order; returns the mean squared error before each step
+	public double epoch(float learningRate, SplittableRandom random) {
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++) {
+			int j = random.nextInt(i + 1);
+			order[i] = order[j];
+			order[j] = i;
+		}
+		double loss = 0;
+		for (int i : order)
+			loss += train(i, learningRate);
+		return loss / size;
+	}
+
+	private float train(int sample, float learningRate) {
+		int from = starts[sample], count = starts[sample + 1] - from;
+		int us = sides[sample], them = us ^ 1;
+
+		// Forward: first layer sums per perspective, then the output over the clipped activations
+		for (int side = Position.WHITE; side <= Position.BLACK; side++) {
+			float[] sum = sums[side];
+			System.arraycopy(b1, 0, sum, 0, hidden);
+			for (int k = 0; k < count; k++) {
+				int entry = entries[from + k];
+				int row = Network.feature(side, entry >>> 6, entry & 63) * hidden;
+				features[side][k] = row;
+				for (int h = 0; h < hidden; h++)
+					sum[h] += w1[row + h];
+			}
+		}
+		float out = b2;
+		for (int h = 0; h < hidden; h++)
+			out += clip(sums[us][h]) * w2[h] + clip(sums[them][h]) * w2[hidden + h];
+		float prediction = sigmoid(out);
+		float error = prediction - targets[sample];
+		float gradient = 2 * error * prediction * (1 - prediction);
+
+		// Backward, updating as it goes: each first layer gradient uses the output weight before its update
+		step++;
+		float c1 = 1 / (1 - (float) Math.pow(BETA1, step)), c2 = 1 / (1 - (float) Math.pow(BETA2, step));
+		for (int side = 0; side < 2; side++) {
+			float[] sum = sums[side];
+			int offset = side == us ? 0 : hidden;
+			for (int h = 0; h < hidden; h++) {
+				float activation = clip(sum[h]);
+				float weight = w2[offset + h];
+				w2[offset + h] = adam(w2, w2m, w2v, offset + h, gradient * activation, learningRate, c1, c2);
+				sum[h] = sum[h] > 0 && sum[h] < 1 ? gradient * weight : 0;     // Now the gradient of the sum
+			}
+		}
+		b2 -= learningRate * c1 * (b2m = BETA1 * b2m + (1 - BETA1) * gradient)
+				/ ((float) Math.sqrt(c2 * (b2v = BETA2 * b2v + (1 - BETA2) * gradient * gradient)) + EPSILON);
+		for (int h = 0; h < hidden; h++)
+			b1[h] = adam(b1, b1m, b1v, h, sums[0][h] + sums[1][h], learningRate, c1, c2);
+		for (int side = 0; side < 2; side++) {
+			float[] sum = sums[side];
+			for (int k = 0; k < count; k++) {
+				int row = features[side][k];
+				for (int h = 0; h < hidden; h++)
+					w1[row + h] = adam(w1, w1m, w1v, row + h, sum[h], learningRate, c1, c2);
+			}
+		}
+		return error * error;
+	}
+
+	// Returns param[i] after one clipped Adam step with the given gradient
+	private static float adam(float[] param, float[] m, float[] v, int i, float gradient, float learningRate, float c1, float c2) {
+		m[i] = BETA1 * m[i] + (1 - BETA1) * gradient;
+		v[i] = BETA2 * v[i] + (1 - BETA2) * gradient * gradient;
+
+		// Moments of weights whose gradient stays zero (inactive neurons) decay toward subnormal floats,
+		// which are many times slower to compute with; flush them
+		if (Math.abs(m[i]) < FLUSH)
+			m[i] = 0;
+		if (v[i] < FLUSH)
+			v[i] = 0;
+		float value = param[i] - learningRate * c1 * m[i] / ((float) Math.sqrt(c2 * v[i]) + EPSILON);
+		return Math.max(-CLIP, Math.min(CLIP, value));
+	}
+
+	private static float clip(float x) {
+		return Math.max(0, Math.min(1, x));
+	}
+
+	private static float sigmoid(float x) {
+		return 1 / (1 + (float) Math.exp(-x));
+	}
+
+	// Rounds the weights to the network's fixed-point scales
+	public Network quantize() {
+		short[] featureWeights = new short[w1.length];
+		short[] featureBiases = new short[hidden];
+		short[] outputWeights = new short[w2.length];
+		for (int i = 0; i < w1.length; i++)
+			featureWeights[i] = (short) Math.round(w1[i] * Network.QA);
+		for (int i = 0; i < hidden; i++)
+			featureBiases[i] = (short) Math.round(b1[i] * Network.QA);
+		for (int i = 0; i < w2.length; i++)
+			outputWeights[i] = (short) Math.round(w2[i] * Network.QB);
+		return new Network(hidden, featureWeights, featureBiases, outputWeights, Math.round(b2 * Network.QA * Network.QB));
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: java chess.nnue.NetworkTrainer <output file> [positions] [hidden] [epochs] [seed]");
+			System.exit(2);
+		}
+		Path output = Paths.get(args[0]);
+		int positions = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+		int hidden = args.length > 2 ? Integer.parseInt(args[2]) : 128;
+		int epochs = args.length > 3 ? Integer.parseInt(args[3]) : 6;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+
+		NetworkTrainer trainer = new NetworkTrainer(hidden, seed);
+		Evaluator labeller = new ClassicEvaluator();
+		long start = System.nanoTime();
+		trainer.generate(positions, labeller, seed);
+		System.out.printf("%,d positions in %.1f s%n", trainer.getSize(), (System.nanoTime() - start) / 1e9);
+
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int epoch = 1; epoch <= epochs; epoch++) {
+			// Anneal the step size over the last third of the epochs
+			float learningRate = epoch <= epochs * 2 / 3 ? 1e-3f : 2e-4f;
+			start = System.nanoTime();
+			double loss = trainer.epoch(learningRate, random);
+			System.out.printf("epoch %d: loss %.6f (%.1f s)%n", epoch, loss, (System.nanoTime() - start) / 1e9);
+		}
+
+		Network network = trainer.quantize();
+		network.write(output);
+
+		// Check the quantized network against the labels on fresh positions
+		NetworkTrainer check = new NetworkTrainer(1, seed);
+		check.generate(5_000, labeller, seed + 1);
+		NnueEvaluator evaluator = new NnueEvaluator(Network.load(output));
+		Position pos = new Position();
+		check.validate(evaluator, labeller, pos);
+		System.out.println("wrote " + output);
+	}
+
+	// Prints the mean absolute difference between evaluator and labeller over this trainer's positions
+	private void validate(Evaluator evaluator, Evaluator labeller, Position pos) {
+		double total = 0;
+		for (int i = 0; i < size; i++) {
+			pos.clear();
+			for (int k = starts[i]; k < starts[i + 1]; k++)
+				pos.put(entries[k] & 63, entries[k] >>> 6);
+			pos.setSideToMove(sides[i]);
+			total += Math.abs(evaluator.evaluate(pos) - labeller.evaluate(pos));
+		}
+		System.out.printf("mean |network - labels| over %,d new positions: %.1f cp%n", size, total / size);
+	}
+
+}
@@ -0,0 +1,168 @@
+package chess.nnue;
+
+import java.util.Arrays;
+
+import chess.Position;
+import chess.engine.Evaluator;
+
+// Evaluation by a Network. The first layer's sums (the accumulator) are kept per ply and brought
+// up to date from the squares that changed since an earlier ply's accumulator, so a move costs a
+// few weight rows (two for a quiet move, three for a capture or promotion, four for castling)
+// instead of one per piece on the board. The changed squares come from comparing the piece masks
+// the accumulator was computed for with the position's, which covers castling, en passant and
+// promotion without knowing the rules, stays correct whichever position each ply last held, and
+// makes a null move a plain copy. When too many squares differ the accumulator is rebuilt.
+//
+// The loops over hidden neurons are plain int array code in the shape HotSpot's superword pass
+// turns into SIMD instructions: whole arrays from index 0, no branches, and the clipped ReLU done
+// with shifts and masks, since Math.min and Math.max are compiled to scalar conditional moves.
+//
+// An evaluator holds per-search state: each search thread needs its own (see forThread).
+public class NnueEvaluator implements Evaluator {
+
+	// Beyond this the score could be mistaken for a mate
+	public static final int MAX_SCORE = 10_000;
+
+	private static final int SLOTS = 256;           // Accumulators kept, indexed by ply modulo SLOTS
+
+	private final Network network;
+	private final int hidden;
+	private final int[][][] accumulators = new int[SLOTS][][];   // White's and black's sums
+	private final long[][] pieces = new long[SLOTS][12];         // Piece masks each accumulator was computed for
+	private final boolean[] computed = new boolean[SLOTS];
+	private long refreshes, updates;
+
+	public NnueEvaluator(Network network) {
+		this.network = network;
+		hidden = network.hidden;
+		for (int i = 0; i < SLOTS; i++)
+			accumulators[i] = new int[2][hidden];
+	}
+
+	@Override
+	public Evaluator forThread() {
+		return new NnueEvaluator(network);
+	}
+
+	public Network getNetwork() {
+		return network;
+	}
+
+	// Accumulators rebuilt from scratch and brought up to date incrementally, for benchmarks
+	public long getRefreshes() {
+		return refreshes;
+	}
+
+	public long getUpdates() {
+		return updates;
+	}
+
+	// Evaluates pos from a rebuilt accumulator, ignoring every earlier call; for checking the
+	// incremental updates against
+	public int evaluateFromScratch(Position pos) {
+		Arrays.fill(computed, false);
+		return evaluate(pos);
+	}
+
+	@Override
+	public int evaluate(Position pos) {
+		int slot = pos.ply() & (SLOTS - 1);
+		int parent = (slot - 1) & (SLOTS - 1);
+
+		// Start from whichever of the parent's and this ply's last accumulators is closer to pos; an
+		// update costs a row per piece added or removed, a rebuild one per piece on the board
+		int fromParent = computed[parent] ? countChanges(pieces[parent], pos) : 64;
+		int fromSlot = computed[slot] ? countChanges(pieces[slot], pos) : 64;
+		int changes = Math.min(fromParent, fromSlot);
+		if (changes >= Long.bitCount(pos.occupied())) {
+			refresh(slot, pos);
+		} else {
+			if (fromParent < fromSlot) {
+				for (int side = Position.WHITE; side <= Position.BLACK; side++)
+					System.arraycopy(accumulators[parent][side], 0, accumulators[slot][side], 0, hidden);
+				System.arraycopy(pieces[parent], 0, pieces[slot], 0, 12);
+			}
+			if (changes > 0)
+				update(slot, pos);
+		}
+		computed[slot] = true;
+
+		int[][] acc = accumulators[slot];
+		int us = pos.sideToMove();
+		long sum = network.outputBias + (long) output(acc[us], network.outputWeights[0])
+				+ output(acc[us ^ 1], network.outputWeights[1]);
+		int score = (int) (sum * Network.SCALE / (Network.QA * Network.QB));
+		return Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score));
+	}
+
+	// Pieces added or removed between the masks and pos
+	private static int countChanges(long[] masks, Position pos) {
+		int changes = 0;
+		for (int piece = 0; piece < 12; piece++)
+			changes += Long.bitCount(masks[piece] ^ pos.pieces(Position.colorOf(piece), Position.typeOf(piece)));
+		return changes;
+	}
+
+	// Subtracts the rows of pieces that left a square and adds those of pieces that arrived
+	private void update(int slot, Position pos) {
+		int[][] acc = accumulators[slot];
+		long[] masks = pieces[slot];
+		int[][] rows = network.featureWeights;
+		for (int piece = 0; piece < 12; piece++) {
+			long now = pos.pieces(Position.colorOf(piece), Position.typeOf(piece));
+			for (long removed = masks[piece] & ~now; removed != 0; removed &= removed - 1) {
+				int sq = Long.numberOfTrailingZeros(removed);
+				subtract(acc[Position.WHITE], rows[Network.feature(Position.WHITE, piece, sq)]);
+				subtract(acc[Position.BLACK], rows[Network.feature(Position.BLACK, piece, sq)]);
+			}
+			for (long added = now & ~masks[piece]; added != 0; added &= added - 1) {
+				int sq = Long.numberOfTrailingZeros(added);
+				add(acc[Position.WHITE], rows[Network.feature(Position.WHITE, piece, sq)]);
+				add(acc[Position.BLACK], rows[Network.feature(Position.BLACK, piece, sq)]);
+			}
+			masks[piece] = now;
+		}
+		updates++;
+	}
+
+	// Recomputes an accumulator from the biases and every piece on the board
+	private void refresh(int slot, Position pos) {
+		int[][] acc = accumulators[slot];
+		long[] masks = pieces[slot];
+		int[][] rows = network.featureWeights;
+		for (int side = Position.WHITE; side <= Position.BLACK; side++)
+			System.arraycopy(network.featureBiases, 0, acc[side], 0, hidden);
+		for (int piece = 0; piece < 12; piece++) {
+			masks[piece] = pos.pieces(Position.colorOf(piece), Position.typeOf(piece));
+			for (long bb = masks[piece]; bb != 0; bb &= bb - 1) {
+				int sq = Long.numberOfTrailingZeros(bb);
+				add(acc[Position.WHITE], rows[Network.feature(Position.WHITE, piece, sq)]);
+				add(acc[Position.BLACK], rows[Network.feature(Position.BLACK, piece, sq)]);
+			}
+		}
+		refreshes++;
+	}
+
+	private static void add(int[] acc, int[] row) {
+		for (int i = 0; i < acc.length; i++)
+			acc[i] += row[i];
+	}
+
+	private static void subtract(int[] acc, int[] row) {
+		for (int i = 0; i < acc.length; i++)
+			acc[i] -= row[i];
+	}
+
+	// Dot product of one side's sums, clipped to [0, QA], with half of the output weights
+	private static int output(int[] acc, int[] weights) {
+		int sum = 0;
+		for (int i = 0; i < acc.length; i++) {
+			int activation = acc[i] & ~(acc[i] >> 31);             // max(x, 0)
+			int excess = activation - Network.QA;
+			activation = Network.QA + (excess & (excess >> 31));   // min(x, QA)
+			sum += activation * weights[i];
+		}
+		return sum;
+	}
+
+}
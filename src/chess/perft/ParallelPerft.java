@@ -0,0 +1,137 @@
+package chess.perft;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import chess.Board;
+import chess.Fen;
+import chess.MoveGenerator;
+import chess.Position;
+
+// Multi-threaded perft: the tree is split into one fork-join task per move for the first
+// splitPlies plies, and each task counts its subtree serially on its own Position copy. An
+// optional PerftCache shared by all threads skips subtrees that were already counted through a
+// transposition.
+//
+// Usage: java chess.perft.ParallelPerft <depth> [threads] [cacheMB] [splitPlies] [fen]
+// Prints the serial count and time, then the parallel count, time and wall-clock speedup.
+public class ParallelPerft {
+
+	private final ForkJoinPool pool;
+	private final PerftCache cache;      // null when caching is off
+	private final int splitPlies;
+
+	// Move lists per ply, one set per worker thread
+	private final ThreadLocal<int[][]> moveLists = ThreadLocal
+			.withInitial(() -> new int[64][MoveGenerator.MAX_MOVES]);
+
+	// threads worker threads, cache may be null, splitPlies >= 1 (1 splits only the root moves)
+	public ParallelPerft(int threads, PerftCache cache, int splitPlies) {
+		this.pool = new ForkJoinPool(Math.max(1, threads));
+		this.cache = cache;
+		this.splitPlies = Math.max(1, splitPlies);
+	}
+
+	// Counts leaf nodes depth plies below the board's current position
+	public long perft(Board board, int depth) {
+		return perft(board.getPosition(), depth);
+	}
+
+	// Counts leaf nodes depth plies below root; root itself is not modified
+	public long perft(Position root, int depth) {
+		Position copy = new Position();
+		copy.copyFrom(root);
+		return pool.invoke(new Subtree(copy, depth, splitPlies));
+	}
+
+	// Stops the worker threads
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	// One node of the split part of the tree
+	@SuppressWarnings("serial")
+	private class Subtree extends RecursiveTask<Long> {
+		private final Position pos;
+		private final int depth;
+		private final int splitsLeft;
+
+		Subtree(Position pos, int depth, int splitsLeft) {
+			this.pos = pos;
+			this.depth = depth;
+			this.splitsLeft = splitsLeft;
+		}
+
+		@Override
+		protected Long compute() {
+			if (splitsLeft == 0 || depth <= 2)
+				return count(pos, depth, 0, moveLists.get());
+
+			int[] moves = new int[MoveGenerator.MAX_MOVES];
+			int n = MoveGenerator.generate(pos, moves, 0);
+			List<Subtree> children = new ArrayList<>(n);
+			for (int i = 0; i < n; i++) {
+				Position child = new Position();
+				child.copyFrom(pos);
+				child.makeMove(moves[i]);
+				children.add(new Subtree(child, depth - 1, splitsLeft - 1));
+			}
+			long nodes = 0;
+			for (Subtree child : invokeAll(children))
+				nodes += child.join();
+			return nodes;
+		}
+	}
+
+	// Serial perft with bulk counting at the last ply and optional cache lookups above it
+	private long count(Position pos, int depth, int ply, int[][] lists) {
+		int[] moves = lists[ply];
+		int n = MoveGenerator.generate(pos, moves, 0);
+		if (depth <= 1)
+			return depth == 1 ? n : 1;
+		if (cache != null) {
+			long cached = cache.get(pos.key(), depth);
+			if (cached >= 0)
+				return cached;
+		}
+		long nodes = 0;
+		for (int i = 0; i < n; i++) {
+			pos.makeMove(moves[i]);
+			nodes += count(pos, depth - 1, ply + 1, lists);
+			pos.unmakeMove();
+		}
+		if (cache != null)
+			cache.put(pos.key(), depth, nodes);
+		return nodes;
+	}
+
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.out.println("Usage: java chess.perft.ParallelPerft <depth> [threads] [cacheMB] [splitPlies] [fen]");
+			return;
+		}
+		int depth = Integer.parseInt(args[0]);
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int cacheMb = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+		int split = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+		Position pos = new Position();
+		Fen.parse(args.length > 4 ? String.join(" ", java.util.Arrays.copyOfRange(args, 4, args.length)) : Fen.START, pos);
+
+		long start = System.nanoTime();
+		long serialNodes = new Perft().perft(pos, depth);
+		long serialMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+		System.out.printf("serial:   %,d nodes in %d ms%n", serialNodes, serialMillis);
+
+		ParallelPerft perft = new ParallelPerft(threads, cacheMb > 0 ? new PerftCache(cacheMb) : null, split);
+		start = System.nanoTime();
+		long nodes = perft.perft(pos, depth);
+		long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+		perft.shutdown();
+		System.out.printf("parallel: %,d nodes in %d ms (%d threads, split %d plies, cache %d MB)%n", nodes, millis,
+				threads, split, cacheMb);
+		System.out.printf("speedup:  %.2fx%s%n", (double) serialMillis / millis, nodes == serialNodes ? "" : "  COUNT MISMATCH");
+	}
+
+}
@@ -0,0 +1,109 @@
+package chess.perft;
+
+import chess.Fen;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+
+// Perft: counts the leaf nodes of the legal move tree to a fixed depth. Comparing the counts with
+// published reference values checks the move generator and make/unmake; timing them measures
+// raw move generation speed.
+//
+// Usage:
+//   java chess.perft.Perft                  runs the reference suite
+//   java chess.perft.Perft <depth> [fen]    counts one position, with a per-move breakdown
+public class Perft {
+
+	// Reference positions and their published counts for depth 1, 2, 3, ...
+	public static final String[] FENS = {
+			Fen.START,
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+			"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+			"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+			"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10" };
+	public static final long[][] COUNTS = {
+			{ 20, 400, 8902, 197281, 4865609, 119060324 },
+			{ 48, 2039, 97862, 4085603, 193690690 },
+			{ 14, 191, 2812, 43238, 674624, 11030083 },
+			{ 6, 264, 9467, 422333, 15833292 },
+			{ 44, 1486, 62379, 2103487, 89941194 },
+			{ 46, 2079, 89890, 3894594, 164075551 } };
+
+	private final int[][] moves = new int[64][MoveGenerator.MAX_MOVES];   // One move list per ply
+
+	// Counts leaf nodes depth plies below pos; pos is restored before returning
+	public long perft(Position pos, int depth) {
+		return perft(pos, depth, 0);
+	}
+
+	private long perft(Position pos, int depth, int ply) {
+		int[] list = moves[ply];
+		int count = MoveGenerator.generate(pos, list, 0);
+		if (depth <= 1)
+			return depth == 1 ? count : 1;      // Bulk counting: the legal moves are the leaves
+		long nodes = 0;
+		for (int i = 0; i < count; i++) {
+			pos.makeMove(list[i]);
+			nodes += perft(pos, depth - 1, ply + 1);
+			pos.unmakeMove();
+		}
+		return nodes;
+	}
+
+	// Prints the leaf count below each root move, then the total ("divide"), for tracking down bugs
+	public long divide(Position pos, int depth) {
+		int[] root = new int[MoveGenerator.MAX_MOVES];
+		int count = MoveGenerator.generate(pos, root, 0);
+		long total = 0;
+		for (int i = 0; i < count; i++) {
+			pos.makeMove(root[i]);
+			long nodes = depth > 1 ? perft(pos, depth - 1, 1) : 1;
+			pos.unmakeMove();
+			System.out.println(Move.toUci(root[i]) + ": " + nodes);
+			total += nodes;
+		}
+		System.out.println("Nodes: " + total);
+		return total;
+	}
+
+	// Runs every reference position up to the deepest depth whose count stays under maxNodes.
+	// Returns true if all counts match.
+	public boolean runSuite(long maxNodes) {
+		boolean ok = true;
+		Position pos = new Position();
+		for (int p = 0; p < FENS.length; p++) {
+			Fen.parse(FENS[p], pos);
+			for (int depth = 1; depth <= COUNTS[p].length && COUNTS[p][depth - 1] <= maxNodes; depth++) {
+				long start = System.nanoTime();
+				long nodes = perft(pos, depth);
+				long micros = Math.max(1, (System.nanoTime() - start) / 1000);
+				boolean match = nodes == COUNTS[p][depth - 1];
+				ok &= match;
+				System.out.printf("position %d depth %d: %,d nodes %s (%,d nodes/s)%n", p + 1, depth, nodes,
+						match ? "OK" : "EXPECTED " + COUNTS[p][depth - 1], nodes * 1_000_000 / micros);
+			}
+		}
+		return ok;
+	}
+
+	public static void main(String[] args) {
+		Perft perft = new Perft();
+		if (args.length == 0) {
+			boolean ok = perft.runSuite(200_000_000L);
+			System.out.println(ok ? "All perft counts match" : "PERFT MISMATCH");
+			if (!ok)
+				System.exit(1);
+			return;
+		}
+
+		int depth = Integer.parseInt(args[0]);
+		Position pos = new Position();
+		Fen.parse(args.length > 1 ? String.join(" ", java.util.Arrays.copyOfRange(args, 1, args.length)) : Fen.START, pos);
+		long start = System.nanoTime();
+		long nodes = perft.divide(pos, depth);
+		long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+		System.out.printf("Time: %d ms, %,d nodes/s%n", millis, nodes * 1000 / millis);
+	}
+
+}
@@ -0,0 +1,38 @@
+package chess.perft;
+
+// Hash table of subtree counts keyed on Zobrist key and remaining depth, shared by all perft
+// threads. Each entry is two longs: (count | depth << 56) and key XOR that word, so a torn write
+// from two threads reads back as a miss and no locking is needed. New results always replace.
+// Like any hashed perft this trusts 64-bit keys; a collision would go unnoticed.
+public class PerftCache {
+
+	private static final long COUNT_MASK = (1L << 56) - 1;
+
+	private final long[] table;
+	private final int mask;
+
+	// Creates a cache using at most the given number of megabytes (rounded down to a power of two)
+	public PerftCache(int megabytes) {
+		long entries = Long.highestOneBit(Math.max(1L, (long) megabytes * 1024 * 1024 / 16));
+		entries = Math.min(entries, 1L << 28);
+		table = new long[(int) entries * 2];
+		mask = (int) entries - 1;
+	}
+
+	// Returns the stored count for the position and depth, or -1 if it is not cached
+	public long get(long key, int depth) {
+		int index = ((int) key & mask) * 2;
+		long data = table[index];
+		if ((table[index + 1] ^ data) == key && (data >>> 56) == depth)
+			return data & COUNT_MASK;
+		return -1;
+	}
+
+	public void put(long key, int depth, long count) {
+		int index = ((int) key & mask) * 2;
+		long data = (count & COUNT_MASK) | (long) depth << 56;
+		table[index] = data;
+		table[index + 1] = key ^ data;
+	}
+
+}
@@ -0,0 +1,12 @@
+package chess.pgn;
+
+import chess.Board;
+
+// Receives every game read from a PGN file, with the board left at the game's final position (or
+// at the last legal move if replaying stopped early). When games are replayed on several worker
+// threads this is called concurrently, each thread passing its own game and board.
+public interface GameHandler {
+
+	void onGame(PgnGame game, Board board);
+
+}
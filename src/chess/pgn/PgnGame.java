@@ -0,0 +1,101 @@
+package chess.pgn;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import chess.Fen;
+
+// One game read from a PGN file: its tags, the moves that replayed legally and how it ended.
+// A PgnReplayer reuses the same instance for every game, so handlers must copy anything they keep.
+public class PgnGame {
+
+	private long number;              // 1-based index of the game in the file
+	private long offset;              // Byte offset of the game's first line in the file
+	private final Map<String, String> tags = new LinkedHashMap<>();
+	private int[] moves = new int[256];
+	private int moveCount;
+	private String result = "*";
+	private String error;             // null if every move replayed
+
+	// Forgets the previous game
+	void reset(long number, long offset) {
+		this.number = number;
+		this.offset = offset;
+		tags.clear();
+		moveCount = 0;
+		result = "*";
+		error = null;
+	}
+
+	void addMove(int move) {
+		if (moveCount == moves.length)
+			moves = Arrays.copyOf(moves, moveCount * 2);
+		moves[moveCount++] = move;
+	}
+
+	void setResult(String result) {
+		this.result = result;
+	}
+
+	void setError(String error) {
+		this.error = error;
+	}
+
+	Map<String, String> tagMap() {
+		return tags;
+	}
+
+	public long getNumber() {
+		return number;
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+
+	// Value of a tag pair such as "White" or "Result", or null if the game has none
+	public String getTag(String name) {
+		return tags.get(name);
+	}
+
+	public Map<String, String> getTags() {
+		return tags;
+	}
+
+	// FEN the game starts from: the FEN tag if present, else the standard start position
+	public String getStartFen() {
+		String fen = tags.get("FEN");
+		return fen != null ? fen : Fen.START;
+	}
+
+	// Number of moves that replayed legally (all of them unless hasError)
+	public int getMoveCount() {
+		return moveCount;
+	}
+
+	// Encoded move (see chess.Move) at the given ply
+	public int getMove(int ply) {
+		return moves[ply];
+	}
+
+	// Copy of the replayed moves
+	public int[] getMoves() {
+		return Arrays.copyOf(moves, moveCount);
+	}
+
+	// "1-0", "0-1", "1/2-1/2" or "*": the movetext termination, else the Result tag
+	public String getResult() {
+		return result;
+	}
+
+	public boolean hasError() {
+		return error != null;
+	}
+
+	// Why replaying stopped early (e.g. an illegal move), or null
+	public String getError() {
+		return error;
+	}
+
+}
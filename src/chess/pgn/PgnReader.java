@@ -0,0 +1,243 @@
+package chess.pgn;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Streams games out of a PGN file of any size and replays each one on a reused Board.
+// The file is read through one direct buffer and split into games in place: a game ends where a
+// tag line ('[' at the start of a line, outside a comment) follows movetext. Only the game being
+// split is ever held in memory. With more than one thread the reading thread copies batches of
+// game text onto a bounded queue and worker threads, each with its own PgnReplayer, replay them.
+//
+// Usage: java chess.pgn.PgnReader <file> [threads]   replays every game and reports games per second
+public class PgnReader {
+
+	private static final int BUFFER_SIZE = 4 << 20;       // Grown if a single game is larger
+	private static final int BATCH_GAMES = 256;
+	private static final int BATCH_BYTES = 1 << 20;
+
+	// Receives the text of each game as it is split out of the read buffer
+	private interface GameSink {
+		void game(ByteBuffer text, int start, int end, long number, long offset) throws IOException;
+	}
+
+	// A run of consecutive games copied out of the read buffer for a worker thread
+	private static final class Batch {
+		byte[] bytes = new byte[BATCH_BYTES];
+		int[] starts = new int[BATCH_GAMES + 1];     // Game i is bytes[starts[i], starts[i + 1])
+		long[] offsets = new long[BATCH_GAMES];
+		long firstNumber;
+		int games, length;
+	}
+
+	private static final Batch END = new Batch();
+
+	private PgnReader() {
+	}
+
+	// Replays every game on the calling thread; returns the number of games
+	public static long replay(Path file, GameHandler handler) throws IOException {
+		PgnReplayer replayer = new PgnReplayer();
+		return split(file, (text, start, end, number, offset) -> handler
+				.onGame(replayer.replay(text, start, end, number, offset), replayer.getBoard()));
+	}
+
+	// Replays every game on the given number of worker threads; handler must be thread-safe.
+	// Games reach the handler roughly, but not exactly, in file order. Returns the number of games.
+	public static long replay(Path file, int threads, GameHandler handler) throws IOException {
+		if (threads <= 1)
+			return replay(file, handler);
+
+		BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(threads * 4);
+		ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "pgn-worker");
+			thread.setDaemon(true);
+			return thread;
+		});
+		List<Future<?>> running = new ArrayList<>(threads);
+		for (int t = 0; t < threads; t++) {
+			running.add(workers.submit(() -> {
+				PgnReplayer replayer = new PgnReplayer();
+				for (Batch batch = queue.take(); batch != END; batch = queue.take()) {
+					ByteBuffer text = ByteBuffer.wrap(batch.bytes);
+					for (int g = 0; g < batch.games; g++) {
+						handler.onGame(replayer.replay(text, batch.starts[g], batch.starts[g + 1], batch.firstNumber + g,
+								batch.offsets[g]), replayer.getBoard());
+					}
+				}
+				return null;
+			}));
+		}
+
+		try {
+			Batch[] current = { new Batch() };
+			long games = split(file, (text, start, end, number, offset) -> {
+				Batch batch = current[0];
+				int length = end - start;
+				if (batch.games == BATCH_GAMES || batch.games > 0 && batch.length + length > batch.bytes.length) {
+					hand(queue, batch, running);
+					batch = current[0] = new Batch();
+				}
+				if (length > batch.bytes.length)
+					batch.bytes = new byte[length];
+				if (batch.games == 0)
+					batch.firstNumber = number;
+				text.get(start, batch.bytes, batch.length, length);
+				batch.offsets[batch.games] = offset;
+				batch.length += length;
+				batch.starts[++batch.games] = batch.length;
+			});
+			if (current[0].games > 0)
+				hand(queue, current[0], running);
+			for (int t = 0; t < threads; t++)
+				hand(queue, END, running);
+			for (Future<?> future : running)
+				future.get();
+			return games;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while replaying " + file);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IllegalStateException("PGN worker failed", e.getCause());
+		} finally {
+			workers.shutdownNow();
+		}
+	}
+
+	// Queues a batch, giving up if a worker has died (nobody would ever take it)
+	private static void hand(BlockingQueue<Batch> queue, Batch batch, List<Future<?>> running) throws IOException {
+		try {
+			while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+				for (Future<?> future : running) {
+					if (future.isDone())
+						future.get();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while queueing games");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IllegalStateException("PGN worker failed", e.getCause());
+		}
+	}
+
+	// Splits the file into games and passes each one to sink; returns the number of games
+	private static long split(Path file, GameSink sink) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		long bufferOffset = 0;               // File offset of buffer index 0
+		long games = 0;
+		int gameStart = 0, scan = 0;
+		boolean lineStart = true, tagLine = false, inMoves = false, inComment = false, hasContent = false;
+		boolean lineComment = false;         // Inside a ';' comment, which runs to the end of the line
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			boolean eof = false;
+			while (!eof) {
+				eof = channel.read(buffer) < 0;
+				int limit = buffer.position();
+
+				for (; scan < limit; scan++) {
+					byte c = buffer.get(scan);
+					if (c == '\n') {
+						lineStart = true;
+						lineComment = false;
+						continue;
+					}
+					if (lineStart) {
+						lineStart = false;
+						tagLine = c == '[' && !inComment;
+						if (tagLine && inMoves) {
+							sink.game(buffer, gameStart, scan, ++games, bufferOffset + gameStart);
+							gameStart = scan;
+							inMoves = false;
+						}
+					}
+					if (c > ' ' || c < 0) {
+						hasContent = true;
+						if (!tagLine) {
+							inMoves = true;
+							if (lineComment)
+								continue;
+							if (c == '{')
+								inComment = true;
+							else if (c == '}')
+								inComment = false;
+							else if (c == ';' && !inComment)
+								lineComment = true;
+						}
+					}
+				}
+
+				if (eof) {
+					if (hasContent && gameStart < limit)
+						sink.game(buffer, gameStart, limit, ++games, bufferOffset + gameStart);
+				} else if (gameStart == 0 && limit == buffer.capacity()) {
+					// One game fills the whole buffer
+					ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+					buffer.flip();
+					larger.put(buffer);
+					buffer = larger;
+				} else {
+					// Move the unfinished game to the front of the buffer
+					buffer.flip();
+					buffer.position(gameStart);
+					buffer.compact();
+					scan -= gameStart;
+					bufferOffset += gameStart;
+					gameStart = 0;
+				}
+			}
+		}
+		return games;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: java chess.pgn.PgnReader <file> [threads]");
+			return;
+		}
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+		LongAdder plies = new LongAdder(), errors = new LongAdder();
+		LongAdder[] results = { new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder() };
+		List<String> resultNames = Arrays.asList("1-0", "0-1", "1/2-1/2", "*");
+
+		long start = System.nanoTime();
+		long games = replay(Paths.get(args[0]), threads, (game, board) -> {
+			plies.add(game.getMoveCount());
+			if (game.hasError()) {
+				errors.increment();
+				if (errors.sum() <= 10)
+					System.out.println("game " + game.getNumber() + " at byte " + game.getOffset() + ": " + game.getError());
+			}
+			int result = resultNames.indexOf(game.getResult());
+			results[result < 0 ? 3 : result].increment();        // Unknown results count as unfinished
+		});
+		long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+		System.out.printf("%,d games, %,d plies in %d ms on %d thread(s): %,d games/s, %,d plies/s%n", games,
+				plies.sum(), millis, threads, games * 1000 / millis, plies.sum() * 1000 / millis);
+		System.out.printf("white %,d, black %,d, draw %,d, unfinished %,d, errors %,d%n", results[0].sum(),
+				results[1].sum(), results[2].sum(), results[3].sum(), errors.sum());
+	}
+
+}
@@ -0,0 +1,196 @@
+package chess.pgn;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import chess.AsciiView;
+import chess.Board;
+import chess.Move;
+import chess.MoveGenerator;
+
+// Replays the text of one PGN game on a reused Board: reads the tag pairs, loads the start
+// position, then resolves each SAN move against the legal moves and plays it. Comments,
+// variations, move numbers and NAGs are skipped. Replaying stops at the first move that does not
+// resolve, and the game records why. One replayer (and its Board) per thread.
+public class PgnReplayer {
+
+	private static final List<String> RESULTS = Arrays.asList("1-0", "0-1", "1/2-1/2", "*");
+
+	private final Board board;
+	private final PgnGame game = new PgnGame();
+	private final AsciiView token = new AsciiView();
+	private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+	private byte[] tagBytes = new byte[256];     // Tag values are UTF-8
+
+	public PgnReplayer() {
+		this(new Board());
+	}
+
+	public PgnReplayer(Board board) {
+		this.board = board;
+	}
+
+	// Board holding the final position of the last game replayed
+	public Board getBoard() {
+		return board;
+	}
+
+	// Replays the game held in text[start, end); the returned game is reused by the next call
+	public PgnGame replay(ByteBuffer text, int start, int end, long number, long offset) {
+		game.reset(number, offset);
+		int i = readTags(text, start, end);
+		// Only the four PGN results are taken from the tag; anything else ("?", misspellings) stays "*"
+		String resultTag = game.getTag("Result");
+		if (resultTag != null && RESULTS.contains(resultTag))
+			game.setResult(resultTag);
+
+		try {
+			board.loadFen(game.getStartFen());
+		} catch (IllegalArgumentException e) {
+			game.setError(e.getMessage());
+			return game;
+		}
+		readMoves(text, i, end);
+		return game;
+	}
+
+	// Reads the [Name "value"] lines; returns where the movetext starts
+	private int readTags(ByteBuffer text, int i, int end) {
+		while (true) {
+			i = skipWhitespace(text, i, end);
+			if (i >= end || text.get(i) != '[')
+				return i;
+			int nameStart = ++i;
+			while (i < end && text.get(i) > ' ' && text.get(i) != '"')
+				i++;
+			String name = token.set(text, nameStart, i).toString();
+			while (i < end && text.get(i) != '"' && text.get(i) != '\n')
+				i++;
+			int length = 0;
+			if (i < end && text.get(i) == '"') {
+				for (i++; i < end && text.get(i) != '"' && text.get(i) != '\n'; i++) {
+					if (text.get(i) == '\\' && i + 1 < end)
+						i++;
+					if (length == tagBytes.length)
+						tagBytes = Arrays.copyOf(tagBytes, length * 2);
+					tagBytes[length++] = text.get(i);
+				}
+			}
+			while (i < end && text.get(i) != '\n')
+				i++;
+			game.tagMap().put(name, new String(tagBytes, 0, length, StandardCharsets.UTF_8));
+		}
+	}
+
+	// Plays the movetext until its result token or the end of the game text
+	private void readMoves(ByteBuffer text, int i, int end) {
+		while (true) {
+			i = skipWhitespace(text, i, end);
+			if (i >= end)
+				return;
+			int c = text.get(i);
+
+			// Comments, variations, NAGs and escape lines
+			if (c == '{') {
+				i = skipPast(text, i, end, '}');
+				continue;
+			}
+			if (c == ';' || c == '%') {
+				i = skipPast(text, i, end, '\n');
+				continue;
+			}
+			if (c == '(') {
+				i = skipVariation(text, i, end);
+				continue;
+			}
+			if (c == '$') {
+				for (i++; i < end && text.get(i) >= '0' && text.get(i) <= '9'; i++)
+					;
+				continue;
+			}
+			if (c == ')') {
+				i++;
+				continue;
+			}
+
+			int tokenStart = i;
+			while (i < end && text.get(i) > ' ' && "{(;)".indexOf(text.get(i)) < 0)
+				i++;
+			int tokenEnd = i;
+
+			// Results end the game
+			String result = result(text, tokenStart, tokenEnd);
+			if (result != null) {
+				game.setResult(result);
+				return;
+			}
+
+			// Move numbers ("12." or "12...") may be glued to the move that follows them
+			if (c >= '1' && c <= '9') {
+				while (tokenStart < tokenEnd && text.get(tokenStart) >= '0' && text.get(tokenStart) <= '9')
+					tokenStart++;
+				while (tokenStart < tokenEnd && text.get(tokenStart) == '.')
+					tokenStart++;
+				if (tokenStart == tokenEnd)
+					continue;
+			}
+
+			if (game.hasError())
+				continue;
+			token.set(text, tokenStart, tokenEnd);
+			int move = San.parse(board.getPosition(), token, moves);
+			if (move == Move.NONE) {
+				game.setError("Illegal or ambiguous move " + token + " at ply " + (game.getMoveCount() + 1));
+				continue;      // Keep scanning so the result token is still picked up
+			}
+			board.makeMove(move);
+			game.addMove(move);
+		}
+	}
+
+	// Returns the result a token spells, or null
+	private static String result(ByteBuffer text, int start, int end) {
+		int length = end - start;
+		if (length == 1 && text.get(start) == '*')
+			return "*";
+		if (length == 3 && text.get(start + 1) == '-') {
+			if (text.get(start) == '1' && text.get(start + 2) == '0')
+				return "1-0";
+			if (text.get(start) == '0' && text.get(start + 2) == '1')
+				return "0-1";
+		}
+		if (length == 7 && text.get(start) == '1' && text.get(start + 1) == '/' && text.get(start + 3) == '-')
+			return "1/2-1/2";
+		return null;
+	}
+
+	private static int skipWhitespace(ByteBuffer text, int i, int end) {
+		while (i < end && text.get(i) <= ' ' && text.get(i) >= 0)
+			i++;
+		return i;
+	}
+
+	private static int skipPast(ByteBuffer text, int i, int end, char terminator) {
+		while (i < end && text.get(i) != terminator)
+			i++;
+		return Math.min(end, i + 1);
+	}
+
+	// Skips a (possibly nested) variation, including any comments inside it
+	private static int skipVariation(ByteBuffer text, int i, int end) {
+		int depth = 0;
+		for (; i < end; i++) {
+			int c = text.get(i);
+			if (c == '{')
+				i = skipPast(text, i, end, '}') - 1;
+			else if (c == '(')
+				depth++;
+			else if (c == ')' && --depth == 0)
+				return i + 1;
+		}
+		return end;
+	}
+
+}
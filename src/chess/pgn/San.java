@@ -0,0 +1,180 @@
+package chess.pgn;
+
+import chess.Attacks;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+
+// Standard Algebraic Notation (e.g. "Nbd7", "exd8=Q+", "O-O"). Moves are resolved by matching the
+// text against the legal moves of the position, so anything that parses is legal by construction.
+public final class San {
+
+	private static final String PIECE_LETTERS = "PNBRQK";   // Indexed by piece type
+
+	private San() {
+	}
+
+	// Returns the legal move in pos written as san, or Move.NONE if it is illegal, ambiguous or
+	// not SAN. Check, mate and annotation suffixes are ignored. moves is scratch space for the
+	// generator (at least MoveGenerator.MAX_MOVES long).
+	public static int parse(Position pos, CharSequence san, int[] moves) {
+		int end = san.length();
+		while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0)
+			end--;
+		if (end < 2)
+			return Move.NONE;
+
+		// Castling, also written with zeros by some programs
+		if (isCastle(san, end, 3) || isCastle(san, end, 5)) {
+			int flags = end == 3 ? Move.KING_CASTLE : Move.QUEEN_CASTLE;
+			int count = MoveGenerator.generate(pos, moves, 0);
+			for (int i = 0; i < count; i++) {
+				if (Move.flags(moves[i]) == flags)
+					return moves[i];
+			}
+			return Move.NONE;
+		}
+
+		int start = 0;
+		int type = PIECE_LETTERS.indexOf(san.charAt(0));
+		if (type >= 0)
+			start = 1;
+		else
+			type = Position.PAWN;
+
+		// Promotion piece, with or without '='
+		int promotion = -1;
+		if (type == Position.PAWN) {
+			int letter = PIECE_LETTERS.indexOf(san.charAt(end - 1));
+			if (letter >= Position.KNIGHT && letter <= Position.QUEEN) {
+				promotion = letter;
+				end--;
+				if (end > 0 && san.charAt(end - 1) == '=')
+					end--;
+			}
+		}
+
+		// Destination square is the last two characters
+		if (end - start < 2)
+			return Move.NONE;
+		int toCol = san.charAt(end - 2) - 'a', toRow = '8' - san.charAt(end - 1);
+		if (toCol < 0 || toCol > 7 || toRow < 0 || toRow > 7)
+			return Move.NONE;
+		int to = Position.square(toRow, toCol);
+
+		// Whatever is left is disambiguation (a file, a rank or both) and an optional 'x'
+		int fromCol = -1, fromRow = -1;
+		for (int i = start; i < end - 2; i++) {
+			char c = san.charAt(i);
+			if (c >= 'a' && c <= 'h')
+				fromCol = c - 'a';
+			else if (c >= '1' && c <= '8')
+				fromRow = '8' - c;
+			else if (c != 'x' && c != ':' && c != '-')
+				return Move.NONE;
+		}
+
+		// Only pieces of the right type that could reach the destination need their moves generated
+		int count = 0;
+		long candidates = pos.pieces(pos.sideToMove(), type) & reach(type, to, pos.occupied());
+		while (candidates != 0) {
+			count = MoveGenerator.generatePiece(pos, Long.numberOfTrailingZeros(candidates), moves, count);
+			candidates &= candidates - 1;
+		}
+
+		int match = Move.NONE;
+		for (int i = 0; i < count; i++) {
+			int move = moves[i], from = Move.from(move);
+			if (Move.to(move) != to || Position.typeOf(pos.pieceAt(from)) != type || Move.isCastle(move))
+				continue;
+			if (fromCol >= 0 && (from & 7) != fromCol || fromRow >= 0 && (from >> 3) != fromRow)
+				continue;
+			if (Move.isPromotion(move) ? Move.promotionType(move) != promotion : promotion >= 0)
+				continue;
+			if (match != Move.NONE)
+				return Move.NONE;      // Ambiguous
+			match = move;
+		}
+		return match;
+	}
+
+	// Squares a piece of the given type could move to sq from (for pawns, the three nearest files)
+	private static long reach(int type, int sq, long occupied) {
+		switch (type) {
+		case Position.KNIGHT:
+			return Attacks.KNIGHT[sq];
+		case Position.BISHOP:
+			return Attacks.bishop(sq, occupied);
+		case Position.ROOK:
+			return Attacks.rook(sq, occupied);
+		case Position.QUEEN:
+			return Attacks.queen(sq, occupied);
+		case Position.KING:
+			return Attacks.KING[sq];
+		default:
+			long file = 0x0101010101010101L << (sq & 7);
+			return file | (file << 1 & ~0x0101010101010101L) | (file >>> 1 & ~0x8080808080808080L);
+		}
+	}
+
+	// True if san[0, end) is "O-O" (length 3) or "O-O-O" (length 5), with letter O or digit 0
+	private static boolean isCastle(CharSequence san, int end, int length) {
+		if (end != length)
+			return false;
+		char o = san.charAt(0);
+		if (o != 'O' && o != '0')
+			return false;
+		for (int i = 1; i < length; i++) {
+			if (san.charAt(i) != (i % 2 == 1 ? '-' : o))
+				return false;
+		}
+		return true;
+	}
+
+	// Writes move (legal in pos) in SAN, including the check or mate suffix; pos is left unchanged
+	public static String toSan(Position pos, int move, int[] moves) {
+		StringBuilder san = new StringBuilder(8);
+		int from = Move.from(move), to = Move.to(move), flags = Move.flags(move);
+		int type = Position.typeOf(pos.pieceAt(from));
+
+		if (flags == Move.KING_CASTLE) {
+			san.append("O-O");
+		} else if (flags == Move.QUEEN_CASTLE) {
+			san.append("O-O-O");
+		} else if (type == Position.PAWN) {
+			if (Move.isCapture(move))
+				san.append((char) ('a' + (from & 7))).append('x');
+			san.append(Move.squareName(to));
+			if (Move.isPromotion(move))
+				san.append('=').append(PIECE_LETTERS.charAt(Move.promotionType(move)));
+		} else {
+			san.append(PIECE_LETTERS.charAt(type));
+
+			// Disambiguate by file if that is enough, else by rank, else by both
+			boolean sameFile = false, sameRank = false, ambiguous = false;
+			int count = MoveGenerator.generate(pos, moves, 0);
+			for (int i = 0; i < count; i++) {
+				int other = Move.from(moves[i]);
+				if (other == from || Move.to(moves[i]) != to || Position.typeOf(pos.pieceAt(other)) != type)
+					continue;
+				ambiguous = true;
+				sameFile |= (other & 7) == (from & 7);
+				sameRank |= (other >> 3) == (from >> 3);
+			}
+			if (ambiguous && (!sameFile || sameRank))
+				san.append((char) ('a' + (from & 7)));
+			if (ambiguous && sameFile)
+				san.append((char) ('8' - (from >> 3)));
+			if (Move.isCapture(move))
+				san.append('x');
+			san.append(Move.squareName(to));
+		}
+
+		pos.makeMove(move);
+		if (pos.isInCheck(pos.sideToMove()))
+			san.append(MoveGenerator.generate(pos, moves, 0) == 0 ? '#' : '+');
+		pos.unmakeMove();
+		return san.toString();
+	}
+
+}
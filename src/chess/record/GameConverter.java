@@ -0,0 +1,124 @@
+package chess.record;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import chess.Fen;
+import chess.FenReader;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+import chess.pgn.PgnReader;
+
+// Converts PGN files and move list files into game record files.
+// A move list file has one game per line in the form of a UCI "position" command, with an
+// optional result at the end:
+//   startpos moves e2e4 e7e5 g1f3 1-0
+//   fen 8/8/8/8/8/8/P6k/K7 w - - 0 1 moves a2a4
+//   e2e4 c7c5                                (bare moves start from the standard position)
+// Games with an illegal move keep their legal prefix and are counted as errors.
+//
+// Usage: java chess.record.GameConverter <input.pgn|input.txt> <output> [threads]
+public final class GameConverter {
+
+	private GameConverter() {
+	}
+
+	// Replays every game of a PGN file (on several threads if asked, which does not keep file order)
+	// and writes it to writer; returns the number of games that had an illegal move
+	public static long convertPgn(Path pgn, GameWriter writer, int threads) throws IOException {
+		long[] errors = new long[1];
+		PgnReader.replay(pgn, threads, (game, board) -> {
+			synchronized (writer) {
+				if (game.hasError())
+					errors[0]++;
+				try {
+					writer.write(game);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		});
+		return errors[0];
+	}
+
+	// Writes every game of a move list file to writer; returns the number of games with an illegal move
+	public static long convertMoveLists(Path file, GameWriter writer) throws IOException {
+		Position pos = new Position();
+		int[] scratch = new int[MoveGenerator.MAX_MOVES];
+		int[][] moves = { new int[256] };
+		long[] errors = new long[1];
+		try {
+			FenReader.forEachLine(file, line -> {
+				String[] tokens = line.toString().trim().split("\\s+");
+				int i = 0;
+				String fen = null;
+				if (tokens[i].equals("startpos")) {
+					i++;
+				} else if (tokens[i].equals("fen")) {
+					StringBuilder s = new StringBuilder();
+					for (i++; i < tokens.length && !tokens[i].equals("moves"); i++)
+						s.append(s.length() > 0 ? " " : "").append(tokens[i]);
+					fen = s.toString();
+				}
+				if (i < tokens.length && tokens[i].equals("moves"))
+					i++;
+
+				Fen.parse(fen != null ? fen : Fen.START, pos);
+				int count = 0, result = GameFile.UNKNOWN;
+				boolean legal = true;
+				for (; i < tokens.length; i++) {
+					if (tokens[i].indexOf('-') > 0 || tokens[i].equals("*")) {
+						result = GameFile.resultCode(tokens[i]);
+						break;
+					}
+					int move = legal ? Move.fromUci(pos, tokens[i], scratch) : Move.NONE;
+					if (move == Move.NONE) {
+						legal = false;
+						continue;
+					}
+					pos.makeMove(move);
+					if (count == moves[0].length)
+						moves[0] = Arrays.copyOf(moves[0], count * 2);
+					moves[0][count++] = move;
+				}
+				if (!legal)
+					errors[0]++;
+				try {
+					writer.write(fen, moves[0], count, result);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return errors[0];
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: java chess.record.GameConverter <input.pgn|input.txt> <output> [threads]");
+			return;
+		}
+		Path input = Paths.get(args[0]), output = Paths.get(args[1]);
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+		long start = System.nanoTime(), errors;
+		GameWriter writer = new GameWriter(output);
+		try {
+			errors = args[0].toLowerCase().endsWith(".pgn") ? convertPgn(input, writer, threads)
+					: convertMoveLists(input, writer);
+		} finally {
+			writer.close();
+		}
+		long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+		long size = Files.size(output);
+		System.out.printf("%,d games written to %s (%,d bytes, %.1f bytes/game) in %d ms, %,d with illegal moves%n",
+				writer.getGameCount(), output, size, (double) size / Math.max(1, writer.getGameCount()), millis, errors);
+	}
+
+}
@@ -0,0 +1,51 @@
+package chess.record;
+
+// Layout of the binary game record file ("CGR"). All numbers are little-endian.
+//
+//   header (32 bytes)  magic "CGR1", version (2), flags (2), game count (8), index offset (8), reserved (8)
+//   games              one record per game, back to back:
+//                        result (1), flags (1), ply count (2),
+//                        [FEN length (2), FEN bytes] if FLAG_FEN is set,
+//                        ply count moves of 16 bits each, exactly as chess.Move encodes them
+//   index              game count file offsets (8 bytes each) of the game records, in order
+//
+// Moves keep Move's own from/to/flag packing, so a game replays with Board.makeMove without any
+// move generation, and the index lets a reader jump straight to game N.
+public final class GameFile {
+
+	public static final int MAGIC = 'C' | 'G' << 8 | 'R' << 16 | '1' << 24;
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 32;
+
+	// Per-game flags
+	public static final int FLAG_FEN = 1;          // The game starts from a stored FEN, not the standard position
+
+	// Result codes
+	public static final int UNKNOWN = 0, WHITE_WINS = 1, BLACK_WINS = 2, DRAW = 3;
+
+	public static final int MAX_PLIES = 0xFFFF;
+	public static final int MAX_FEN_LENGTH = 255;
+
+	// Largest possible game record in bytes
+	static final int MAX_RECORD_SIZE = 4 + 2 + MAX_FEN_LENGTH + 2 * MAX_PLIES;
+
+	private static final String[] RESULT_NAMES = { "*", "1-0", "0-1", "1/2-1/2" };
+
+	private GameFile() {
+	}
+
+	// Result code for a PGN result string ("1-0", "0-1", "1/2-1/2", anything else is UNKNOWN)
+	public static int resultCode(String result) {
+		for (int code = WHITE_WINS; code <= DRAW; code++) {
+			if (RESULT_NAMES[code].equals(result))
+				return code;
+		}
+		return UNKNOWN;
+	}
+
+	// PGN result string for a result code
+	public static String resultName(int code) {
+		return RESULT_NAMES[code & 3];
+	}
+
+}
@@ -0,0 +1,209 @@
+package chess.record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import chess.Board;
+import chess.Fen;
+import chess.Move;
+import chess.Position;
+
+// Memory-mapped random access to a game record file (see GameFile). Game N is found through the
+// index in constant time and replayed on a Board straight from the mapping, without touching any
+// other game. Records are checked against their length, and every move against the legal moves
+// before it is played, so a corrupt file fails with IllegalStateException naming the game instead
+// of corrupting the Board. Files larger than 2 GB are mapped in 1 GB segments that overlap by the largest
+// possible record, so every record lies wholly inside the segment its offset falls in.
+// Safe for concurrent readers as long as each uses its own Board.
+public class GameReader implements Closeable {
+
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+	private final long gameCount;
+	private final long indexOffset;
+
+	public GameReader(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size < GameFile.HEADER_SIZE)
+				throw new IOException(file + " is not a game record file");
+			segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = (long) i << SEGMENT_BITS;
+				long length = Math.min(SEGMENT_SIZE + GameFile.MAX_RECORD_SIZE, size - start);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+				segments[i].order(ByteOrder.LITTLE_ENDIAN);
+			}
+			if (segments[0].getInt(0) != GameFile.MAGIC || segments[0].getShort(4) != GameFile.VERSION)
+				throw new IOException(file + " is not a version " + GameFile.VERSION + " game record file");
+			gameCount = segments[0].getLong(8);
+			indexOffset = segments[0].getLong(16);
+			if (indexOffset + gameCount * 8 > size)
+				throw new IOException(file + " is truncated");
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public long getGameCount() {
+		return gameCount;
+	}
+
+	// Number of plies in game (0-based)
+	public int getPlyCount(long game) {
+		return plyCount(game, offset(game));
+	}
+
+	// GameFile result code of game
+	public int getResult(long game) {
+		return getByte(offset(game));
+	}
+
+	// FEN game starts from
+	public String getStartFen(long game) {
+		long offset = offset(game);
+		plyCount(game, offset);
+		if ((getByte(offset + 1) & GameFile.FLAG_FEN) == 0)
+			return Fen.START;
+		int length = getShort(offset + 4);
+		char[] fen = new char[length];
+		for (int i = 0; i < length; i++)
+			fen[i] = (char) getByte(offset + 6 + i);
+		return new String(fen);
+	}
+
+	// Encoded move (see chess.Move) at ply of game
+	public int getMove(long game, int ply) {
+		long offset = offset(game);
+		if (ply < 0 || ply >= plyCount(game, offset))
+			throw new IndexOutOfBoundsException("Ply " + ply + " of game " + game);
+		return getShort(movesOffset(offset) + 2L * ply);
+	}
+
+	// Copies the moves of game into moves (which must be long enough); returns the ply count
+	public int getMoves(long game, int[] moves) {
+		long offset = offset(game);
+		int count = plyCount(game, offset);
+		long at = movesOffset(offset);
+		for (int i = 0; i < count; i++)
+			moves[i] = getShort(at + 2L * i);
+		return count;
+	}
+
+	// Loads the start position of game into board and plays all of its moves
+	public void replay(long game, Board board) {
+		replay(game, board, Integer.MAX_VALUE);
+	}
+
+	// Loads the start position of game into board and plays its first plies moves
+	public void replay(long game, Board board, int plies) {
+		int count = Math.min(plies, getPlyCount(game));
+		String fen = getStartFen(game);
+		try {
+			board.loadFen(fen);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalStateException("Game " + game + ": bad start position: " + e.getMessage());
+		}
+		for (int ply = 0; ply < count; ply++)
+			play(game, ply, board);
+	}
+
+	// Plays ply of game on board, which must hold the position before it; returns the move. Throws
+	// IllegalStateException if the stored move is not legal there.
+	public int play(long game, int ply, Board board) {
+		int move = getMove(game, ply);
+		int from = Move.from(move), to = Move.to(move);
+		int promotion = Move.isPromotion(move) ? Move.promotionType(move) : Position.QUEEN;
+		if (board.findMove(from >> 3, from & 7, to >> 3, to & 7, promotion) != move)
+			throw new IllegalStateException("Game " + game + ", ply " + (ply + 1) + ": " + Move.toUci(move)
+					+ " is not a legal move");
+		board.makeMove(move);
+		return move;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	// File offset of game's record
+	private long offset(long game) {
+		if (game < 0 || game >= gameCount)
+			throw new IndexOutOfBoundsException("Game " + game + " of " + gameCount);
+		return getLong(indexOffset + game * 8);
+	}
+
+	// Ply count of game's record at offset, after checking that the record lies between the header
+	// and the next record (or the index) and holds that many moves
+	private int plyCount(long game, long offset) {
+		long end = game + 1 < gameCount ? getLong(indexOffset + (game + 1) * 8) : indexOffset;
+		if (offset < GameFile.HEADER_SIZE || end > indexOffset || offset + 4 > end
+				|| ((getByte(offset + 1) & GameFile.FLAG_FEN) != 0 && offset + 6 > end))
+			throw new IllegalStateException("Game " + game + ": record offset is corrupt");
+		int count = getShort(offset + 2);
+		if (movesOffset(offset) + 2L * count > end)
+			throw new IllegalStateException("Game " + game + ": record is shorter than its " + count + " moves");
+		return count;
+	}
+
+	// File offset of the first move of the record at offset
+	private long movesOffset(long offset) {
+		return (getByte(offset + 1) & GameFile.FLAG_FEN) == 0 ? offset + 4 : offset + 6 + getShort(offset + 4);
+	}
+
+	private int getByte(long offset) {
+		return segments[(int) (offset >>> SEGMENT_BITS)].get((int) (offset & (SEGMENT_SIZE - 1))) & 0xFF;
+	}
+
+	private int getShort(long offset) {
+		return segments[(int) (offset >>> SEGMENT_BITS)].getShort((int) (offset & (SEGMENT_SIZE - 1))) & 0xFFFF;
+	}
+
+	private long getLong(long offset) {
+		return segments[(int) (offset >>> SEGMENT_BITS)].getLong((int) (offset & (SEGMENT_SIZE - 1)));
+	}
+
+	// Usage: java chess.record.GameReader <file> [game]
+	// Prints one game's moves, or replays every game and reports the replay speed
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: java chess.record.GameReader <file> [game]");
+			return;
+		}
+		try (GameReader reader = new GameReader(Paths.get(args[0]))) {
+			Board board = new Board();
+			if (args.length > 1) {
+				long game = Long.parseLong(args[1]);
+				StringBuilder moves = new StringBuilder();
+				for (int ply = 0; ply < reader.getPlyCount(game); ply++)
+					moves.append(Move.toUci(reader.getMove(game, ply))).append(' ');
+				reader.replay(game, board);
+				System.out.println("[FEN \"" + reader.getStartFen(game) + "\"]");
+				System.out.println(moves + GameFile.resultName(reader.getResult(game)));
+				System.out.println("Final position: " + board.toFen());
+				return;
+			}
+
+			long plies = 0, start = System.nanoTime();
+			for (long game = 0; game < reader.getGameCount(); game++) {
+				reader.replay(game, board);
+				plies += board.getPly();
+			}
+			long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+			System.out.printf("%,d games, %,d plies replayed in %d ms: %,d games/s, %,d plies/s%n",
+					reader.getGameCount(), plies, millis, reader.getGameCount() * 1000 / millis, plies * 1000 / millis);
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+package chess.record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import chess.Fen;
+import chess.pgn.PgnGame;
+
+// Writes a game record file (see GameFile). Games are appended through one buffer; the index of
+// game offsets is kept in memory and written, with the final header, by close().
+public class GameWriter implements Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	private long[] offsets = new long[1024];
+	private long games;
+	private long position = GameFile.HEADER_SIZE;       // File offset of the next byte written
+	private boolean closed;
+
+	// Creates (or truncates) file
+	public GameWriter(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		channel.position(GameFile.HEADER_SIZE);
+	}
+
+	// Appends a game from startFen (null for the standard start position) made of the first count
+	// moves, with a GameFile result code
+	public void write(String startFen, int[] moves, int count, int result) throws IOException {
+		if (count > GameFile.MAX_PLIES)
+			throw new IllegalArgumentException("Game has more than " + GameFile.MAX_PLIES + " plies");
+		byte[] fen = startFen == null || startFen.equals(Fen.START) ? null : startFen.getBytes(StandardCharsets.US_ASCII);
+		if (fen != null && fen.length > GameFile.MAX_FEN_LENGTH)
+			throw new IllegalArgumentException("FEN longer than " + GameFile.MAX_FEN_LENGTH + " characters: " + startFen);
+
+		if (games == offsets.length)
+			offsets = Arrays.copyOf(offsets, offsets.length * 2);
+		offsets[(int) games++] = position;
+
+		ensure(4);
+		buffer.put((byte) result).put((byte) (fen != null ? GameFile.FLAG_FEN : 0)).putShort((short) count);
+		if (fen != null) {
+			ensure(2 + fen.length);
+			buffer.putShort((short) fen.length).put(fen);
+		}
+		for (int i = 0; i < count; i++) {
+			ensure(2);
+			buffer.putShort((short) moves[i]);
+		}
+		position += 4 + (fen != null ? 2 + fen.length : 0) + 2L * count;
+	}
+
+	// Appends the moves of a replayed PGN game (only the legal prefix if it had an error)
+	public void write(PgnGame game) throws IOException {
+		write(game.getTag("FEN"), game.getMoves(), game.getMoveCount(), GameFile.resultCode(game.getResult()));
+	}
+
+	public long getGameCount() {
+		return games;
+	}
+
+	// Bytes written so far, including the header
+	public long getSize() {
+		return position;
+	}
+
+	// Writes the index and header and closes the file
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		try {
+			long indexOffset = position;
+			for (int i = 0; i < games; i++) {
+				ensure(8);
+				buffer.putLong(offsets[i]);
+			}
+			flush();
+
+			ByteBuffer header = ByteBuffer.allocate(GameFile.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(GameFile.MAGIC).putShort((short) GameFile.VERSION).putShort((short) 0).putLong(games)
+					.putLong(indexOffset).putLong(0L).flip();
+			channel.position(0);
+			while (header.hasRemaining())
+				channel.write(header);
+		} finally {
+			channel.close();
+		}
+	}
+
+	// Makes room for bytes more bytes in the buffer
+	private void ensure(int bytes) throws IOException {
+		if (buffer.remaining() < bytes)
+			flush();
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+}
@@ -0,0 +1,49 @@
+package chess.server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import chess.Position;
+import chess.engine.ClassicEvaluator;
+import chess.engine.Engine;
+import chess.engine.SearchInfo;
+import chess.engine.SearchLimits;
+
+// A fixed number of single-threaded engines shared by all games. A bot reply borrows an engine
+// for the length of one search; when all are busy, callers queue in the blocking take, which costs
+// nothing but memory for a virtual thread. This bounds the CPU and hash memory bots can use however
+// many games are running.
+final class EnginePool {
+
+	private final Engine[] engines;
+	private final BlockingQueue<Engine> idle;
+	private final SearchLimits limits;
+
+	EnginePool(int size, int hashMegabytes, SearchLimits limits) {
+		engines = new Engine[size];
+		idle = new ArrayBlockingQueue<>(size);
+		for (int i = 0; i < size; i++) {
+			engines[i] = new Engine(hashMegabytes, new ClassicEvaluator(), 1);
+			idle.add(engines[i]);
+		}
+		this.limits = limits;
+	}
+
+	// Best move in pos within the pool's limits; waits for a free engine first
+	int bestMove(Position pos) throws InterruptedException {
+		Engine engine = idle.take();
+		try {
+			SearchInfo info = engine.search(pos, limits, null);
+			return info.getBestMove();
+		} finally {
+			idle.add(engine);
+		}
+	}
+
+	// Stops every search that is running; used on shutdown
+	void stopAll() {
+		for (Engine engine : engines)
+			engine.stop();
+	}
+
+}
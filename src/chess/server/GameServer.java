@@ -0,0 +1,315 @@
+package chess.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import chess.Board;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+import chess.engine.SearchLimits;
+
+// Headless server hosting many games at once over a line-based text protocol on a local socket.
+// Every connection gets its own thread: a virtual thread where the JVM has them (Java 21+, found
+// by reflection so the code still runs on 17), otherwise a thread from a cached pool. Bot replies
+// are computed by a bounded EnginePool. Games left idle are compacted by a sweeper, and once more
+// than maxHotBoards games hold a Board, each game is compacted as soon as its request is answered,
+// which bounds memory however fast games are started.
+//
+// Requests and replies, one line each:
+//   new [white|black]     starts a game, with the engine playing the given color  -> ok <id> [<bot move>]
+//   attach <id>           continues an existing game on this connection             -> ok <id>
+//   move <uci>            plays a move (the engine answers in bot games)            -> ok <bot move|-> <status>
+//   fen | moves           the current position / the moves so far                   -> ok <text>
+//   end                   deletes the current game                                   -> ok
+//   stats                 games hosted and how many are compact                      -> ok <games> <compact>
+//   quit                  closes the connection
+// Failures answer "error <reason>". status is playing, checkmate, stalemate or draw.
+//
+// Usage: java chess.server.GameServer [port] [engines] [bot nodes]
+public class GameServer implements Closeable {
+
+	public static final int DEFAULT_PORT = 7070;
+	public static final long DEFAULT_IDLE_MILLIS = 10_000;
+	public static final int DEFAULT_MAX_HOT_BOARDS = 4096;      // About 100 MB of Boards
+
+	private final ServerSocket socket;
+	private final EnginePool engines;
+	private final ExecutorService connections = newThreadPerTaskExecutor("game-connection");
+	private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "game-sweeper");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+	private final AtomicLong nextId = new AtomicLong(1);
+	private final AtomicInteger hotBoards = new AtomicInteger();
+	private volatile int maxHotBoards = DEFAULT_MAX_HOT_BOARDS;
+	private volatile long idleNanos = DEFAULT_IDLE_MILLIS * 1_000_000;
+	private volatile boolean closed;
+
+	// Listens on the loopback interface (port 0 picks a free one). Bots search with botLimits on at
+	// most engineCount engines at a time.
+	public GameServer(int port, int engineCount, SearchLimits botLimits) throws IOException {
+		socket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+		engines = new EnginePool(engineCount, 16, botLimits);
+	}
+
+	// Starts accepting connections and compacting idle games; returns at once
+	public void start() {
+		Thread acceptor = new Thread(this::acceptLoop, "game-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		sweeper.scheduleWithFixedDelay(this::compactIdle, 1, 1, TimeUnit.SECONDS);
+	}
+
+	public int getPort() {
+		return socket.getLocalPort();
+	}
+
+	// Games left alone this long are compacted to their move lists
+	public void setIdleMillis(long millis) {
+		idleNanos = millis * 1_000_000;
+	}
+
+	// Beyond this many games holding a Board, games are compacted after every request
+	public void setMaxHotBoards(int count) {
+		maxHotBoards = count;
+	}
+
+	public int getGameCount() {
+		return sessions.size();
+	}
+
+	// Compacts every game not used within the idle time; returns how many were compacted
+	public int compactIdle() {
+		long idleSince = System.nanoTime() - idleNanos;
+		int compacted = 0;
+		for (GameSession session : sessions.values()) {
+			// A session in use is not idle; skip it rather than wait
+			if (session.lock.tryLock()) {
+				try {
+					if (session.compactIfIdle(idleSince))
+						compacted++;
+				} finally {
+					session.lock.unlock();
+				}
+			}
+		}
+		return compacted;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		socket.close();
+		engines.stopAll();
+		connections.shutdownNow();
+		sweeper.shutdownNow();
+	}
+
+	// Executor running each task on a new virtual thread when the JVM supports them, else on a cached
+	// pool of daemon platform threads
+	static ExecutorService newThreadPerTaskExecutor(String name) {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(r -> {
+				Thread thread = new Thread(r, name);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	private void acceptLoop() {
+		while (!closed) {
+			try {
+				Socket client = socket.accept();
+				client.setTcpNoDelay(true);
+				connections.execute(() -> serve(client));
+			} catch (IOException e) {
+				if (!closed)
+					System.err.println("accept failed: " + e);
+			}
+		}
+	}
+
+	// Handles one connection until it quits or drops; its game stays on the server
+	private void serve(Socket client) {
+		int[] scratch = new int[MoveGenerator.MAX_MOVES];
+		GameSession session = null;
+		try (Socket c = client;
+				BufferedReader in = new BufferedReader(new InputStreamReader(c.getInputStream(), StandardCharsets.US_ASCII));
+				Writer out = new BufferedWriter(new OutputStreamWriter(c.getOutputStream(), StandardCharsets.US_ASCII))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] tokens = line.trim().split("\\s+");
+				String reply;
+				try {
+					switch (tokens[0]) {
+					case "new":
+						session = newGame(tokens.length > 1 ? tokens[1] : null);
+						reply = "ok " + session.id + botOpening(session, scratch);
+						break;
+					case "attach":
+						session = sessions.get(Long.parseLong(tokens[1]));
+						reply = session == null ? "error no such game" : "ok " + session.id;
+						break;
+					case "move":
+						reply = session == null ? "error no game" : move(session, tokens.length > 1 ? tokens[1] : "", scratch);
+						break;
+					case "fen":
+						reply = session == null ? "error no game" : "ok " + fen(session);
+						break;
+					case "moves":
+						reply = session == null ? "error no game" : "ok " + moveList(session);
+						break;
+					case "end":
+						if (session != null) {
+							sessions.remove(session.id);
+							compact(session);
+						}
+						session = null;
+						reply = "ok";
+						break;
+					case "stats":
+						reply = "ok " + sessions.size() + " " + countCompact();
+						break;
+					case "quit":
+						return;
+					default:
+						reply = "error unknown request";
+					}
+				} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+					reply = "error bad request";
+				}
+				if (session != null && hotBoards.get() > maxHotBoards)
+					compact(session);
+				out.write(reply);
+				out.write('\n');
+				out.flush();
+			}
+		} catch (SocketException e) {
+			// Client went away
+		} catch (IOException e) {
+			if (!closed)
+				System.err.println("connection failed: " + e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void compact(GameSession session) {
+		session.lock.lock();
+		try {
+			session.compact();
+		} finally {
+			session.lock.unlock();
+		}
+	}
+
+	// "new" with the engine's color, or none for a game between clients
+	private GameSession newGame(String botColor) {
+		int color = "white".equals(botColor) ? Position.WHITE : "black".equals(botColor) ? Position.BLACK : -1;
+		GameSession session = new GameSession(nextId.getAndIncrement(), null, color, hotBoards);
+		sessions.put(session.id, session);
+		return session;
+	}
+
+	// The engine's first move when it has White, as a suffix of the "new" reply
+	private String botOpening(GameSession session, int[] scratch) throws InterruptedException {
+		session.lock.lock();
+		try {
+			return session.botToMove() ? " " + botMove(session, scratch) : "";
+		} finally {
+			session.lock.unlock();
+		}
+	}
+
+	private String move(GameSession session, String uci, int[] scratch) throws InterruptedException {
+		session.lock.lock();
+		try {
+			Board board = session.board();
+			if (session.botToMove() || !GameSession.PLAYING.equals(session.status(scratch)))
+				return "error not your move";
+			int move = Move.fromUci(board.getPosition(), uci, scratch);
+			if (move == Move.NONE)
+				return "error illegal move";
+			session.play(move);
+			String status = session.status(scratch);
+			String reply = "-";
+			if (GameSession.PLAYING.equals(status) && session.botToMove()) {
+				reply = botMove(session, scratch);
+				status = session.status(scratch);
+			}
+			return "ok " + reply + " " + status;
+		} finally {
+			session.lock.unlock();
+		}
+	}
+
+	// Lets the engine play for the side to move; returns its move in UCI notation
+	private String botMove(GameSession session, int[] scratch) throws InterruptedException {
+		int move = engines.bestMove(session.board().getPosition());
+		session.play(move);
+		return Move.toUci(move);
+	}
+
+	private static String fen(GameSession session) {
+		session.lock.lock();
+		try {
+			return session.board().toFen();
+		} finally {
+			session.lock.unlock();
+		}
+	}
+
+	private static String moveList(GameSession session) {
+		session.lock.lock();
+		try {
+			return session.moveList();
+		} finally {
+			session.lock.unlock();
+		}
+	}
+
+	// Games currently compact; a racy count, good enough for statistics
+	private int countCompact() {
+		int compact = 0;
+		for (GameSession session : sessions.values()) {
+			if (session.isCompact())
+				compact++;
+		}
+		return compact;
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		int engineCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		long nodes = args.length > 2 ? Long.parseLong(args[2]) : 20_000;
+		GameServer server = new GameServer(port, engineCount, new SearchLimits().nodes(nodes));
+		server.start();
+		System.out.println("Serving games on port " + server.getPort() + " with " + engineCount + " engines");
+		Thread.currentThread().join();
+	}
+
+}
@@ -0,0 +1,114 @@
+package chess.server;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import chess.Board;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+
+// One game hosted by the server. While a client is playing, the game lives in a Board; once it has
+// been idle for a while it is compacted to its move list (two bytes per ply) and the Board is
+// dropped, so an idle game costs about a hundred bytes. The next request rebuilds the Board by
+// replaying the moves, which takes microseconds. Callers hold lock; it is a ReentrantLock rather
+// than a monitor because bot replies wait for an engine while holding it, and a virtual thread
+// blocked inside synchronized would pin its carrier thread.
+final class GameSession {
+
+	// Results reported after every move
+	static final String PLAYING = "playing", CHECKMATE = "checkmate", STALEMATE = "stalemate", DRAW = "draw";
+
+	private static final short[] NO_MOVES = {};
+
+	final long id;
+	final int botColor;                 // Color the engine plays, or -1 for a game between clients
+	final ReentrantLock lock = new ReentrantLock();
+	private final String startFen;      // null for the standard starting position
+	private final AtomicInteger hotBoards;   // Server-wide count of sessions holding a Board
+	private short[] moves = NO_MOVES;
+	private int plies;
+	private volatile Board board;       // null while compact; volatile for the unlocked isCompact
+	private long lastUsedNanos = System.nanoTime();
+
+	GameSession(long id, String startFen, int botColor, AtomicInteger hotBoards) {
+		this.id = id;
+		this.startFen = startFen;
+		this.botColor = botColor;
+		this.hotBoards = hotBoards;
+	}
+
+	// The game's board, rebuilt from the move list if the session was compacted
+	Board board() {
+		lastUsedNanos = System.nanoTime();
+		if (board == null) {
+			board = new Board();
+			if (startFen != null)
+				board.loadFen(startFen);
+			for (int i = 0; i < plies; i++)
+				board.makeMove(moves[i] & 0xFFFF);
+			hotBoards.incrementAndGet();
+		}
+		return board;
+	}
+
+	// Plays a legal move and records it
+	void play(int move) {
+		board().makeMove(move);
+		if (plies == moves.length)
+			moves = Arrays.copyOf(moves, Math.max(16, plies * 2));
+		moves[plies++] = (short) move;
+	}
+
+	// True if it is the engine's turn
+	boolean botToMove() {
+		return botColor >= 0 && board().getPosition().sideToMove() == botColor;
+	}
+
+	// PLAYING, or how the game ended. scratch is space for the move generator.
+	String status(int[] scratch) {
+		Position pos = board().getPosition();
+		if (MoveGenerator.generate(pos, scratch, 0) == 0)
+			return pos.isInCheck(pos.sideToMove()) ? CHECKMATE : STALEMATE;
+		return pos.halfmoveClock() >= 100 || pos.repetitions() >= 2 ? DRAW : PLAYING;
+	}
+
+	// Moves so far in UCI notation, separated by spaces
+	String moveList() {
+		StringBuilder sb = new StringBuilder(plies * 5);
+		for (int i = 0; i < plies; i++) {
+			if (i > 0)
+				sb.append(' ');
+			sb.append(Move.toUci(moves[i] & 0xFFFF));
+		}
+		return sb.toString();
+	}
+
+	int getPlies() {
+		return plies;
+	}
+
+	// Drops the Board if the game has not been used since idleSince (System.nanoTime); returns true
+	// if it did
+	boolean compactIfIdle(long idleSince) {
+		if (board == null || lastUsedNanos - idleSince > 0)
+			return false;
+		compact();
+		return true;
+	}
+
+	// Drops the Board (about 25 KB) and trims the move list to its length
+	void compact() {
+		if (board == null)
+			return;
+		board = null;
+		moves = Arrays.copyOf(moves, plies);
+		hotBoards.decrementAndGet();
+	}
+
+	boolean isCompact() {
+		return board == null;
+	}
+
+}
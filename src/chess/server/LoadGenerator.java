@@ -0,0 +1,194 @@
+package chess.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import chess.Fen;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+import chess.engine.SearchLimits;
+
+// Load test for GameServer: many clients play random legal moves at once, each on its own
+// connection, and the round trip of every "move" request is timed. Prints latency percentiles
+// and throughput. Optionally parks a number of extra games first, idle and compacted, and reports
+// the heap they take.
+//
+// Usage: java chess.server.LoadGenerator <clients> <games per client> <plies per game> <bot nodes> [idle games] [port]
+//   bot nodes 0 plays games between clients (no engine); without a port an in-process server is started
+public class LoadGenerator {
+
+	private final int port;
+	private final int games;
+	private final int plies;
+	private final boolean bot;
+
+	LoadGenerator(int port, int games, int plies, boolean bot) {
+		this.port = port;
+		this.games = games;
+		this.plies = plies;
+		this.bot = bot;
+	}
+
+	// One client: plays its games and returns the latency of each move request in nanoseconds
+	long[] runClient(long seed) throws IOException {
+		SplittableRandom random = new SplittableRandom(seed);
+		Position pos = new Position();
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		long[] latencies = new long[games * plies];
+		int count = 0;
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			socket.setTcpNoDelay(true);
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+			for (int game = 0; game < games; game++) {
+				request(in, out, bot ? "new black" : "new");
+				Fen.parse(Fen.START, pos);
+				for (int ply = 0; ply < plies; ply++) {
+					int n = MoveGenerator.generate(pos, moves, 0);
+					if (n == 0)
+						break;
+					int move = moves[random.nextInt(n)];
+					long start = System.nanoTime();
+					String[] reply = request(in, out, "move " + Move.toUci(move)).split(" ");
+					latencies[count++] = System.nanoTime() - start;
+					if (!reply[0].equals("ok"))
+						throw new IOException("Server refused " + Move.toUci(move) + ": " + String.join(" ", reply));
+					pos.makeMove(move);
+					if (!reply[1].equals("-"))
+						pos.makeMove(Move.fromUci(pos, reply[1], moves));
+					if (!reply[2].equals(GameSession.PLAYING))
+						break;
+				}
+				request(in, out, "end");
+			}
+			request(in, out, "quit", false);
+		}
+		return Arrays.copyOf(latencies, count);
+	}
+
+	// Parks idle games on the server: each gets a few opening moves, then is left alone
+	static void parkGames(int port, int count) throws IOException {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+			for (int i = 0; i < count; i++) {
+				request(in, out, "new");
+				request(in, out, "move e2e4");
+				request(in, out, "move e7e5");
+				request(in, out, "move g1f3");
+			}
+			request(in, out, "quit", false);
+		}
+	}
+
+	private static String request(BufferedReader in, Writer out, String line) throws IOException {
+		return request(in, out, line, true);
+	}
+
+	private static String request(BufferedReader in, Writer out, String line, boolean reply) throws IOException {
+		out.write(line);
+		out.write('\n');
+		out.flush();
+		return reply ? in.readLine() : null;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 4) {
+			System.err.println("Usage: java chess.server.LoadGenerator <clients> <games per client> <plies per game> <bot nodes> [idle games] [port]");
+			System.exit(2);
+		}
+		int clients = Integer.parseInt(args[0]);
+		int games = Integer.parseInt(args[1]);
+		int plies = Integer.parseInt(args[2]);
+		long botNodes = Long.parseLong(args[3]);
+		int idle = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+
+		GameServer server = null;
+		int port;
+		if (args.length > 5) {
+			port = Integer.parseInt(args[5]);
+		} else {
+			server = new GameServer(0, Runtime.getRuntime().availableProcessors(), new SearchLimits().nodes(Math.max(1, botNodes)));
+			server.start();
+			port = server.getPort();
+		}
+
+		if (idle > 0) {
+			long before = server != null ? usedHeap() : 0;
+			parkGames(port, idle);
+			if (server != null) {
+				server.setIdleMillis(0);
+				server.compactIdle();
+				long bytes = usedHeap() - before;
+				System.out.printf("%,d idle games: %,d KB heap, %,d bytes per game%n", idle, bytes / 1024, bytes / idle);
+				server.setIdleMillis(GameServer.DEFAULT_IDLE_MILLIS);
+			}
+		}
+
+		LoadGenerator generator = new LoadGenerator(port, games, plies, botNodes > 0);
+		ExecutorService threads = GameServer.newThreadPerTaskExecutor("load-client");
+		List<Future<long[]>> results = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int i = 0; i < clients; i++) {
+			long seed = i;
+			results.add(threads.submit(() -> generator.runClient(seed)));
+		}
+		long[][] all = new long[clients][];
+		int total = 0;
+		for (int i = 0; i < clients; i++) {
+			try {
+				all[i] = results.get(i).get();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Client " + i + " failed", e.getCause());
+			}
+			total += all[i].length;
+		}
+		long elapsed = System.nanoTime() - start;
+		threads.shutdown();
+
+		long[] latencies = new long[total];
+		int n = 0;
+		for (long[] part : all) {
+			System.arraycopy(part, 0, latencies, n, part.length);
+			n += part.length;
+		}
+		Arrays.sort(latencies);
+		System.out.printf("%d clients, %,d moves in %.1f s (%,.0f moves/s)%n", clients, total, elapsed / 1e9,
+				total * 1e9 / elapsed);
+		if (total > 0) {
+			System.out.printf("move latency: p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+					percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+					percentile(latencies, 0.999), latencies[total - 1] / 1e6);
+		}
+		if (server != null)
+			server.close();
+	}
+
+	// Latency at the given quantile of sorted nanosecond values, in milliseconds
+	private static double percentile(long[] sorted, double quantile) {
+		return sorted[Math.min(sorted.length - 1, (int) (quantile * sorted.length))] / 1e6;
+	}
+
+}
@@ -0,0 +1,124 @@
+package chess.store;
+
+import chess.Attacks;
+import chess.Board;
+import chess.Position;
+
+// Packs a position into 32 bytes (four longs): one nibble per square, squares 0-15 in the low to
+// high nibbles of the first long, and so on. Nibble codes:
+//   0         empty
+//   1-12      piece code + 1 (see Position.piece)
+//   13        pawn that just made a double push and can be taken en passant
+//   14        rook that still has its castling right
+//   15        black king when black is to move
+// Side to move, castling rights and the en passant square therefore cost no extra space. The
+// clocks are not stored, and an en passant square is only kept if a pawn could actually capture
+// there, so positions that play the same encode the same.
+public final class PackedPosition {
+
+	public static final int LONGS = 4;
+	public static final int BYTES = LONGS * 8;
+
+	private static final int EP_PAWN = 13, CASTLING_ROOK = 14, BLACK_KING_TO_MOVE = 15;
+
+	private PackedPosition() {
+	}
+
+	// Writes the encoding of the board's position into words[offset, offset + 4)
+	public static void encode(Board board, long[] words, int offset) {
+		encode(board.getPosition(), words, offset);
+	}
+
+	// Writes the encoding of pos into words[offset, offset + 4)
+	public static void encode(Position pos, long[] words, int offset) {
+		int us = pos.sideToMove();
+		int ep = pos.epSquare();
+		int epPawn = -1;
+		if (ep >= 0 && (Attacks.PAWN[us ^ 1][ep] & pos.pieces(us, Position.PAWN)) != 0)
+			epPawn = ep + (us == Position.WHITE ? 8 : -8);
+		int rights = pos.castlingRights();
+
+		for (int w = 0; w < LONGS; w++) {
+			long word = 0;
+			for (int i = 0; i < 16; i++) {
+				int sq = w * 16 + i;
+				int piece = pos.pieceAt(sq);
+				long code;
+				if (piece == Position.EMPTY)
+					code = 0;
+				else if (sq == epPawn)
+					code = EP_PAWN;
+				else if (Position.typeOf(piece) == Position.ROOK && hasCastlingRight(sq, rights)
+						&& Position.colorOf(piece) == (sq >= 56 ? Position.WHITE : Position.BLACK))
+					code = CASTLING_ROOK;
+				else if (piece == Position.piece(Position.BLACK, Position.KING) && us == Position.BLACK)
+					code = BLACK_KING_TO_MOVE;
+				else
+					code = piece + 1;
+				word |= code << (4 * i);
+			}
+			words[offset + w] = word;
+		}
+	}
+
+	// Replaces the contents of pos with the position encoded at words[offset, offset + 4);
+	// the halfmove clock is 0 and the fullmove number 1
+	public static void decode(long[] words, int offset, Position pos) {
+		pos.clear();
+		int rights = 0, ep = -1, side = Position.WHITE;
+		for (int sq = 0; sq < 64; sq++) {
+			int code = (int) (words[offset + (sq >> 4)] >>> (4 * (sq & 15))) & 15;
+			int row = sq >> 3;
+			switch (code) {
+			case 0:
+				continue;
+			case EP_PAWN:
+				// A white pawn that just double-pushed stands on row 4, a black one on row 3
+				pos.put(sq, Position.piece(row == 4 ? Position.WHITE : Position.BLACK, Position.PAWN));
+				ep = sq + (row == 4 ? 8 : -8);
+				break;
+			case CASTLING_ROOK:
+				pos.put(sq, Position.piece(row == 7 ? Position.WHITE : Position.BLACK, Position.ROOK));
+				rights |= sq == 63 ? Position.WHITE_KINGSIDE : sq == 56 ? Position.WHITE_QUEENSIDE
+						: sq == 7 ? Position.BLACK_KINGSIDE : Position.BLACK_QUEENSIDE;
+				break;
+			case BLACK_KING_TO_MOVE:
+				pos.put(sq, Position.piece(Position.BLACK, Position.KING));
+				side = Position.BLACK;
+				break;
+			default:
+				pos.put(sq, code - 1);
+				break;
+			}
+		}
+		pos.setSideToMove(side);
+		pos.setCastlingRights(rights);
+		pos.setEpSquare(ep);
+	}
+
+	// 64-bit hash of the encoding at words[offset, offset + 4)
+	public static long hash(long[] words, int offset) {
+		long h = words[offset] * 0x9E3779B97F4A7C15L;
+		h = (h ^ Long.rotateLeft(words[offset + 1], 17)) * 0xC2B2AE3D27D4EB4FL;
+		h = (h ^ Long.rotateLeft(words[offset + 2], 31)) * 0x165667B19E3779F9L;
+		h = (h ^ Long.rotateLeft(words[offset + 3], 47)) * 0x9E3779B97F4A7C15L;
+		return h ^ (h >>> 29);
+	}
+
+	// True if the rook on sq stands on a corner whose castling right is still held
+	private static boolean hasCastlingRight(int sq, int rights) {
+		switch (sq) {
+		case 63:
+			return (rights & Position.WHITE_KINGSIDE) != 0;
+		case 56:
+			return (rights & Position.WHITE_QUEENSIDE) != 0;
+		case 7:
+			return (rights & Position.BLACK_KINGSIDE) != 0;
+		case 0:
+			return (rights & Position.BLACK_QUEENSIDE) != 0;
+		default:
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,425 @@
+package chess.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import chess.Board;
+import chess.Position;
+import chess.record.GameReader;
+
+// Counts how often each position occurs, for deduplicating very large position streams.
+// Positions are stored as PackedPosition encodings in an open-addressing hash table that lives in
+// direct (off-heap) buffers sized by a fixed memory budget. When the table is three quarters full
+// its entries are sorted and written to a run file in the spill directory and the table starts
+// over; finish() merges all runs into one sorted file of distinct positions and their total
+// counts. Memory stays bounded however many positions are added; only disk space grows.
+// Direct buffers count against -XX:MaxDirectMemorySize (by default the maximum heap size).
+//
+// Run and output files are arrays of RECORD_BYTES-byte little-endian records: the four encoding
+// longs then the count, sorted by the encoding longs compared as unsigned numbers, word 0 first.
+// Not thread-safe.
+//
+// Usage: java chess.store.PositionCounter <games> <memoryMB> <output>
+// Counts every position of every game in a game record file (see chess.record.GameFile)
+public class PositionCounter implements Closeable {
+
+	public static final int RECORD_BYTES = (PackedPosition.LONGS + 1) * 8;
+
+	private static final int SEGMENT_BITS = 24;               // Slots per direct buffer
+	private static final int IO_BUFFER_SIZE = 1 << 20;
+
+	// Receives the records of a counts file in order
+	public interface RecordHandler {
+		void record(long[] words, long count);
+	}
+
+	private final ByteBuffer[] segments;
+	private final long capacity;
+	private final long maxSize;
+	private long size;
+	private long added;
+	private final Path spillDirectory;
+	private final List<Path> runs = new ArrayList<>();
+	private final long[] scratch = new long[PackedPosition.LONGS];
+	private final long[] pivot = new long[PackedPosition.LONGS + 1];
+
+	// Creates a counter whose table uses at most memoryBytes, spilling into spillDirectory
+	public PositionCounter(long memoryBytes, Path spillDirectory) {
+		capacity = Long.highestOneBit(Math.max(1024, memoryBytes / RECORD_BYTES));
+		maxSize = capacity / 4 * 3;
+		this.spillDirectory = spillDirectory;
+		long slotsPerSegment = Math.min(capacity, 1L << SEGMENT_BITS);
+		segments = new ByteBuffer[(int) (capacity / slotsPerSegment)];
+		for (int i = 0; i < segments.length; i++)
+			segments[i] = ByteBuffer.allocateDirect((int) (slotsPerSegment * RECORD_BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	// Counts one occurrence of the board's position
+	public void add(Board board) {
+		add(board.getPosition());
+	}
+
+	// Counts one occurrence of pos
+	public void add(Position pos) {
+		PackedPosition.encode(pos, scratch, 0);
+		add(scratch, 0, 1);
+	}
+
+	// Adds count occurrences of the encoding at words[offset, offset + 4)
+	public void add(long[] words, int offset, long count) {
+		if (size >= maxSize)
+			spill();
+		added += count;
+		long mask = capacity - 1;
+		for (long slot = PackedPosition.hash(words, offset) & mask;; slot = (slot + 1) & mask) {
+			long w0 = word(slot, 0), w1 = word(slot, 1), w2 = word(slot, 2), w3 = word(slot, 3);
+			if (w0 == words[offset] && w1 == words[offset + 1] && w2 == words[offset + 2] && w3 == words[offset + 3]) {
+				setWord(slot, 4, word(slot, 4) + count);
+				return;
+			}
+			// No real encoding is all zeros: it would have no kings
+			if ((w0 | w1 | w2 | w3) == 0) {
+				for (int w = 0; w < PackedPosition.LONGS; w++)
+					setWord(slot, w, words[offset + w]);
+				setWord(slot, 4, count);
+				size++;
+				return;
+			}
+		}
+	}
+
+	// Distinct positions currently held in memory
+	public long getSize() {
+		return size;
+	}
+
+	// Occurrences added so far, including spilled ones
+	public long getAdded() {
+		return added;
+	}
+
+	// Number of run files spilled so far
+	public int getRunCount() {
+		return runs.size();
+	}
+
+	// Capacity of the in-memory table in positions before it spills
+	public long getMemoryCapacity() {
+		return maxSize;
+	}
+
+	// Writes every distinct position with its total count to output, sorted; returns the number of
+	// distinct positions. The counter is empty afterwards.
+	public long finish(Path output) throws IOException {
+		if (runs.isEmpty()) {
+			long distinct = size;
+			writeSorted(output);
+			return distinct;
+		}
+		spill();
+		long distinct = merge(runs, output);
+		deleteRuns();
+		return distinct;
+	}
+
+	// Deletes any run files that have not been merged
+	@Override
+	public void close() throws IOException {
+		deleteRuns();
+	}
+
+	// Reads a counts file written by finish() (or a run file); returns the number of records
+	public static long read(Path file, RecordHandler handler) throws IOException {
+		long records = 0;
+		long[] words = new long[PackedPosition.LONGS];
+		try (RunReader reader = new RunReader(file)) {
+			while (reader.next()) {
+				System.arraycopy(reader.record, 0, words, 0, PackedPosition.LONGS);
+				handler.record(words, reader.record[PackedPosition.LONGS]);
+				records++;
+			}
+		}
+		return records;
+	}
+
+	// Sorts the table into a new run file
+	private void spill() {
+		try {
+			Path run = Files.createTempFile(spillDirectory, "positions-", ".run");
+			runs.add(run);
+			writeSorted(run);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot spill positions to " + spillDirectory, e);
+		}
+	}
+
+	// Packs the entries to the front of the table, sorts them, writes them to file and empties the table
+	private void writeSorted(Path file) throws IOException {
+		long n = 0;
+		for (long slot = 0; slot < capacity; slot++) {
+			if ((word(slot, 0) | word(slot, 1) | word(slot, 2) | word(slot, 3)) == 0)
+				continue;
+			if (slot != n) {
+				for (int w = 0; w <= PackedPosition.LONGS; w++) {
+					setWord(n, w, word(slot, w));
+					setWord(slot, w, 0L);
+				}
+			}
+			n++;
+		}
+		sort(0, n);
+
+		try (RecordWriter writer = new RecordWriter(file)) {
+			for (long slot = 0; slot < n; slot++) {
+				writer.write(word(slot, 0), word(slot, 1), word(slot, 2), word(slot, 3), word(slot, 4));
+				for (int w = 0; w <= PackedPosition.LONGS; w++)
+					setWord(slot, w, 0L);
+			}
+		}
+		size = 0;
+	}
+
+	// Quicksort of the records in slots [lo, hi), with insertion sort for short ranges
+	private void sort(long lo, long hi) {
+		while (hi - lo > 16) {
+			long mid = lo + (hi - lo) / 2;
+			if (compare(mid, lo) < 0)
+				swap(mid, lo);
+			if (compare(hi - 1, lo) < 0)
+				swap(hi - 1, lo);
+			if (compare(hi - 1, mid) < 0)
+				swap(hi - 1, mid);
+			for (int w = 0; w <= PackedPosition.LONGS; w++)
+				pivot[w] = word(mid, w);
+
+			// Hoare partition: afterwards [lo, j] <= pivot <= [j + 1, hi)
+			long i = lo - 1, j = hi;
+			while (true) {
+				do
+					i++;
+				while (compareToPivot(i) < 0);
+				do
+					j--;
+				while (compareToPivot(j) > 0);
+				if (i >= j)
+					break;
+				swap(i, j);
+			}
+
+			// Recurse into the smaller half so the stack stays shallow
+			if (j + 1 - lo < hi - j - 1) {
+				sort(lo, j + 1);
+				lo = j + 1;
+			} else {
+				sort(j + 1, hi);
+				hi = j + 1;
+			}
+		}
+		for (long i = lo + 1; i < hi; i++) {
+			for (long j = i; j > lo && compare(j, j - 1) < 0; j--)
+				swap(j, j - 1);
+		}
+	}
+
+	private int compare(long a, long b) {
+		for (int w = 0; w < PackedPosition.LONGS; w++) {
+			int c = Long.compareUnsigned(word(a, w), word(b, w));
+			if (c != 0)
+				return c;
+		}
+		return 0;
+	}
+
+	private int compareToPivot(long a) {
+		for (int w = 0; w < PackedPosition.LONGS; w++) {
+			int c = Long.compareUnsigned(word(a, w), pivot[w]);
+			if (c != 0)
+				return c;
+		}
+		return 0;
+	}
+
+	private void swap(long a, long b) {
+		for (int w = 0; w <= PackedPosition.LONGS; w++) {
+			long t = word(a, w);
+			setWord(a, w, word(b, w));
+			setWord(b, w, t);
+		}
+	}
+
+	private long word(long slot, int w) {
+		return segments[(int) (slot >>> SEGMENT_BITS)].getLong(offset(slot, w));
+	}
+
+	private void setWord(long slot, int w, long value) {
+		segments[(int) (slot >>> SEGMENT_BITS)].putLong(offset(slot, w), value);
+	}
+
+	private static int offset(long slot, int w) {
+		return (int) (slot & ((1L << SEGMENT_BITS) - 1)) * RECORD_BYTES + w * 8;
+	}
+
+	private void deleteRuns() throws IOException {
+		for (Path run : runs)
+			Files.deleteIfExists(run);
+		runs.clear();
+	}
+
+	// k-way merge of sorted run files, summing the counts of equal positions; returns the records written
+	private static long merge(List<Path> files, Path output) throws IOException {
+		PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, files.size()), (a, b) -> compareRecords(a.record, b.record));
+		long distinct = 0;
+		try (RecordWriter writer = new RecordWriter(output)) {
+			for (Path file : files) {
+				RunReader reader = new RunReader(file);
+				if (reader.next())
+					queue.add(reader);
+				else
+					reader.close();
+			}
+			long[] pending = new long[PackedPosition.LONGS + 1];
+			boolean hasPending = false;
+			while (!queue.isEmpty()) {
+				RunReader reader = queue.poll();
+				if (hasPending && compareRecords(pending, reader.record) == 0) {
+					pending[PackedPosition.LONGS] += reader.record[PackedPosition.LONGS];
+				} else {
+					if (hasPending) {
+						writer.write(pending[0], pending[1], pending[2], pending[3], pending[4]);
+						distinct++;
+					}
+					System.arraycopy(reader.record, 0, pending, 0, pending.length);
+					hasPending = true;
+				}
+				if (reader.next())
+					queue.add(reader);
+				else
+					reader.close();
+			}
+			if (hasPending) {
+				writer.write(pending[0], pending[1], pending[2], pending[3], pending[4]);
+				distinct++;
+			}
+		} finally {
+			for (RunReader reader : queue)
+				reader.close();
+		}
+		return distinct;
+	}
+
+	private static int compareRecords(long[] a, long[] b) {
+		for (int w = 0; w < PackedPosition.LONGS; w++) {
+			int c = Long.compareUnsigned(a[w], b[w]);
+			if (c != 0)
+				return c;
+		}
+		return 0;
+	}
+
+	// Buffered sequential writer of records
+	private static final class RecordWriter implements Closeable {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+		RecordWriter(Path file) throws IOException {
+			channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		void write(long w0, long w1, long w2, long w3, long count) throws IOException {
+			if (buffer.remaining() < RECORD_BYTES)
+				flush();
+			buffer.putLong(w0).putLong(w1).putLong(w2).putLong(w3).putLong(count);
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				channel.close();
+			}
+		}
+	}
+
+	// Buffered sequential reader of records; record holds the current one after next() returns true
+	private static final class RunReader implements Closeable {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		final long[] record = new long[PackedPosition.LONGS + 1];
+		private boolean eof;
+
+		RunReader(Path file) throws IOException {
+			channel = FileChannel.open(file, StandardOpenOption.READ);
+			buffer.limit(0);
+		}
+
+		boolean next() throws IOException {
+			if (buffer.remaining() < RECORD_BYTES) {
+				buffer.compact();
+				while (!eof && buffer.position() < RECORD_BYTES)
+					eof = channel.read(buffer) < 0;
+				if (!eof)
+					channel.read(buffer);
+				buffer.flip();
+				if (buffer.remaining() < RECORD_BYTES)
+					return false;
+			}
+			for (int w = 0; w < record.length; w++)
+				record[w] = buffer.getLong();
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.out.println("Usage: java chess.store.PositionCounter <games> <memoryMB> <output>");
+			return;
+		}
+		Path output = Paths.get(args[2]);
+		Path spill = output.toAbsolutePath().getParent();
+		long start = System.nanoTime(), distinct;
+		try (GameReader games = new GameReader(Paths.get(args[0]));
+				PositionCounter counter = new PositionCounter(Long.parseLong(args[1]) << 20, spill)) {
+			Board board = new Board();
+			for (long game = 0; game < games.getGameCount(); game++) {
+				games.replay(game, board, 0);
+				counter.add(board);
+				for (int ply = 0, plies = games.getPlyCount(game); ply < plies; ply++) {
+					games.play(game, ply, board);
+					counter.add(board);
+				}
+			}
+			long added = counter.getAdded();
+			int runs = counter.getRunCount();
+			distinct = counter.finish(output);
+			long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+			System.out.printf("%,d positions, %,d distinct, %d spilled runs, %d ms (%,d positions/s)%n", added, distinct,
+					runs, millis, added * 1000 / millis);
+		}
+	}
+
+}
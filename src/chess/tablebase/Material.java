@@ -0,0 +1,101 @@
+package chess.tablebase;
+
+import chess.Position;
+
+// Material signatures of endgames, e.g. "KQvK" or "KRPvKR": white's pieces, 'v', black's pieces,
+// each side starting with its king and listing the others in the order Q R B N P. Counts are
+// held as int[2][5] arrays indexed by color and piece type (PAWN..QUEEN; kings are implied).
+public final class Material {
+
+	private static final String LETTERS = "PNBRQ";              // Indexed by piece type
+	private static final int[] NAME_ORDER = { Position.QUEEN, Position.ROOK, Position.BISHOP, Position.KNIGHT,
+			Position.PAWN };
+	private static final int[] VALUE = { 1, 3, 3, 5, 9 };
+
+	private Material() {
+	}
+
+	// Parses a signature such as "KRvKP"; throws IllegalArgumentException if it is malformed
+	public static int[][] parse(String name) {
+		int v = name.indexOf('v');
+		if (v < 1 || name.charAt(0) != 'K' || v + 1 >= name.length() || name.charAt(v + 1) != 'K')
+			throw new IllegalArgumentException("Bad material signature: " + name);
+		int[][] counts = new int[2][5];
+		for (int i = 1; i < name.length(); i++) {
+			if (i == v || i == v + 1)
+				continue;
+			int type = LETTERS.indexOf(name.charAt(i));
+			if (type < 0)
+				throw new IllegalArgumentException("Bad material signature: " + name);
+			counts[i < v ? Position.WHITE : Position.BLACK][type]++;
+		}
+		return counts;
+	}
+
+	public static String name(int[][] counts) {
+		StringBuilder name = new StringBuilder("K");
+		for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+			if (color == Position.BLACK)
+				name.append("vK");
+			for (int type : NAME_ORDER) {
+				for (int i = 0; i < counts[color][type]; i++)
+					name.append(LETTERS.charAt(type));
+			}
+		}
+		return name.toString();
+	}
+
+	// Packs counts into an int, 3 bits per color and type
+	public static int key(int[][] counts) {
+		int key = 0;
+		for (int color = 0; color < 2; color++) {
+			for (int type = 0; type < 5; type++)
+				key |= Math.min(7, counts[color][type]) << (3 * (color * 5 + type));
+		}
+		return key;
+	}
+
+	// Key of the material on the board, or -1 if some piece type has more than 7 copies
+	public static int key(Position pos) {
+		int key = 0;
+		for (int color = 0; color < 2; color++) {
+			for (int type = 0; type < 5; type++) {
+				int count = Long.bitCount(pos.pieces(color, type));
+				if (count > 7)
+					return -1;
+				key |= count << (3 * (color * 5 + type));
+			}
+		}
+		return key;
+	}
+
+	// Key of the same material with the colors swapped
+	public static int swapColors(int key) {
+		return (key >>> 15) | (key & 0x7FFF) << 15;
+	}
+
+	// Total number of pieces, kings included
+	public static int pieceCount(int[][] counts) {
+		int n = 2;
+		for (int[] side : counts) {
+			for (int count : side)
+				n += count;
+		}
+		return n;
+	}
+
+	// The orientation a table is generated and stored in: the side with more material is white
+	// (ties broken by the name), so "KvKQ" and "KQvK" both become "KQvK"
+	public static int[][] canonical(int[][] counts) {
+		int white = 0, black = 0;
+		for (int type = 0; type < 5; type++) {
+			white += VALUE[type] * counts[Position.WHITE][type];
+			black += VALUE[type] * counts[Position.BLACK][type];
+		}
+		int[][] swapped = { counts[Position.BLACK].clone(), counts[Position.WHITE].clone() };
+		if (white > black || white == black && name(counts).compareTo(name(swapped)) >= 0)
+			return new int[][] { counts[0].clone(), counts[1].clone() };
+		return swapped;
+	}
+
+}
@@ -0,0 +1,144 @@
+package chess.tablebase;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// One memory-mapped tablebase file. Layout (little-endian):
+//   header (32 bytes)  magic "CTB1", version (2), reserved (2), entries (8), DTM bits (4), max DTM (4), reserved (8)
+//   WDL                2 bits per entry, 32 entries per long: 0 draw, 1 win, 2 loss, 3 illegal
+//   DTM                DTM-bits bits per entry, packed across longs: plies to mate (0 for draws)
+// Both sections start on 8-byte boundaries, so no long straddles two mapped segments.
+final class Table implements Closeable {
+
+	static final int MAGIC = 'C' | 'T' << 8 | 'B' << 16 | '1' << 24;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+
+	static final int DRAW = 0, WIN = 1, LOSS = 2, ILLEGAL = 3;
+
+	private static final int SEGMENT_BITS = 30;
+
+	final TableIndex index;
+	final int maxDtm;
+	private final int dtmBits;
+	private final long dtmOffset;
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+
+	Table(Path file, TableIndex index) throws IOException {
+		this.index = index;
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			long length = channel.size();
+			if (length < HEADER_SIZE)
+				throw new IOException(file + " is not a tablebase file");
+			segments = new MappedByteBuffer[(int) ((length + (1L << SEGMENT_BITS) - 1) >>> SEGMENT_BITS)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = (long) i << SEGMENT_BITS;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(1L << SEGMENT_BITS, length - start));
+				segments[i].order(ByteOrder.LITTLE_ENDIAN);
+			}
+			MappedByteBuffer header = segments[0];
+			if (header.getInt(0) != MAGIC || header.getShort(4) != VERSION || header.getLong(8) != index.size)
+				throw new IOException(file + " is not a version " + VERSION + " tablebase for " + Material.name(index.counts));
+			dtmBits = header.getInt(16);
+			maxDtm = header.getInt(20);
+			dtmOffset = HEADER_SIZE + wdlLongs(index.size) * 8L;
+			if (dtmOffset + dtmLongs(index.size, dtmBits) * 8L > length)
+				throw new IOException(file + " is truncated");
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	// WDL code of entry i
+	int wdl(int i) {
+		return (int) (word(HEADER_SIZE + (long) (i >>> 5) * 8) >>> ((i & 31) * 2)) & 3;
+	}
+
+	// Plies to mate of entry i
+	int dtm(int i) {
+		long bit = (long) i * dtmBits;
+		int shift = (int) (bit & 63);
+		long at = dtmOffset + (bit >>> 6) * 8;
+		long value = word(at) >>> shift;
+		if (shift + dtmBits > 64)
+			value |= word(at + 8) << (64 - shift);
+		return (int) (value & ((1L << dtmBits) - 1));
+	}
+
+	private long word(long offset) {
+		return segments[(int) (offset >>> SEGMENT_BITS)].getLong((int) (offset & ((1L << SEGMENT_BITS) - 1)));
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	static long wdlLongs(int entries) {
+		return (entries + 31L) >>> 5;
+	}
+
+	static long dtmLongs(int entries, int bits) {
+		return ((long) entries * bits + 63) >>> 6;
+	}
+
+	// Writes a table file from per-entry WDL codes and plies to mate
+	static void write(Path file, int entries, byte[] wdl, short[] dtm, int maxDtm) throws IOException {
+		int dtmBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(maxDtm));
+		try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0).putLong(entries).putInt(dtmBits)
+					.putInt(maxDtm).putLong(0L);
+
+			for (long w = 0; w < wdlLongs(entries); w++) {
+				long word = 0;
+				for (int j = 0; j < 32; j++) {
+					long i = w * 32 + j;
+					if (i < entries)
+						word |= (long) wdl[(int) i] << (j * 2);
+				}
+				put(out, buffer, word);
+			}
+
+			long word = 0;
+			int filled = 0;
+			for (int i = 0; i < entries; i++) {
+				long value = dtm[i];
+				word |= value << filled;
+				filled += dtmBits;
+				if (filled >= 64) {
+					put(out, buffer, word);
+					filled -= 64;
+					word = filled > 0 ? value >>> (dtmBits - filled) : 0;
+				}
+			}
+			if (filled > 0)
+				put(out, buffer, word);
+
+			buffer.flip();
+			while (buffer.hasRemaining())
+				out.write(buffer);
+		}
+	}
+
+	private static void put(FileChannel out, ByteBuffer buffer, long word) throws IOException {
+		if (buffer.remaining() < 8) {
+			buffer.flip();
+			while (buffer.hasRemaining())
+				out.write(buffer);
+			buffer.clear();
+		}
+		buffer.putLong(word);
+	}
+
+}
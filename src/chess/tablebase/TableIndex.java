@@ -0,0 +1,141 @@
+package chess.tablebase;
+
+import chess.Attacks;
+import chess.Position;
+
+// Maps positions of one material signature to table indices and back.
+// index = ((side to move * kingSquares + white king) * 64 + black king) * 64 + piece ... where
+// the other pieces follow in signature order (white Q R B N P, then black). Board symmetry shrinks
+// the table: without pawns the position is turned so the white king is in the a1-d1-d4 triangle
+// (10 squares), with pawns it is mirrored so the white king is on files a-d (32 squares). Some
+// indices decode to illegal placements; the generator marks those.
+final class TableIndex {
+
+	private static final int[] TRIANGLE = new int[64];            // Square -> triangle index, or -1
+	private static final int[] TRIANGLE_SQUARES = new int[10];
+
+	private static final int[] ORDER = { Position.QUEEN, Position.ROOK, Position.BISHOP, Position.KNIGHT, Position.PAWN };
+
+	static {
+		int n = 0;
+		for (int sq = 0; sq < 64; sq++) {
+			int file = sq & 7, rank = 7 - (sq >> 3);
+			TRIANGLE[sq] = -1;
+			if (file <= 3 && rank <= file) {
+				TRIANGLE[sq] = n;
+				TRIANGLE_SQUARES[n++] = sq;
+			}
+		}
+	}
+
+	final int[][] counts;
+	final boolean pawns;
+	final int kingSquares;
+	final int size;
+	private final int[] pieces;           // Piece codes of the non-king pieces in index order
+
+	TableIndex(int[][] counts) {
+		this.counts = counts;
+		pawns = counts[Position.WHITE][Position.PAWN] + counts[Position.BLACK][Position.PAWN] > 0;
+		kingSquares = pawns ? 32 : 10;
+		int others = Material.pieceCount(counts) - 2;
+		pieces = new int[others];
+		int n = 0;
+		for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+			for (int type : ORDER) {
+				for (int i = 0; i < counts[color][type]; i++)
+					pieces[n++] = Position.piece(color, type);
+			}
+		}
+		long entries = 2L * kingSquares * 64;
+		for (int i = 0; i < others; i++)
+			entries *= 64;
+		if (entries > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Table too large: " + Material.name(counts));
+		size = (int) entries;
+	}
+
+	// Index of pos, read with colors swapped (and the board mirrored top to bottom) if flip is set.
+	// pos must have exactly this material.
+	int index(Position pos, boolean flip) {
+		int white = flip ? Position.BLACK : Position.WHITE;
+		int mirror = flip ? 56 : 0;
+		int wk = pos.kingSquare(white) ^ mirror;
+
+		// Symmetry that brings the white king into its reduced region
+		int transform = 0;
+		if ((wk & 7) > 3) {
+			transform |= 1;
+			wk ^= 7;
+		}
+		if (!pawns) {
+			if (wk >> 3 < 4) {
+				transform |= 2;
+				wk ^= 56;
+			}
+			if (7 - (wk >> 3) > (wk & 7)) {
+				transform |= 4;
+				wk = transpose(wk);
+			}
+		}
+
+		int index = (pos.sideToMove() ^ (flip ? 1 : 0)) * kingSquares + (pawns ? (wk >> 3) * 4 + (wk & 7) : TRIANGLE[wk]);
+		index = index * 64 + apply(pos.kingSquare(white ^ 1) ^ mirror, transform);
+		for (int color = 0; color < 2; color++) {
+			int real = color ^ (flip ? 1 : 0);
+			for (int type : ORDER) {
+				long bits = pos.pieces(real, type);
+				while (bits != 0) {
+					index = index * 64 + apply(Long.numberOfTrailingZeros(bits) ^ mirror, transform);
+					bits &= bits - 1;
+				}
+			}
+		}
+		return index;
+	}
+
+	// Sets up the position for index in pos; returns false if the placement is impossible (two
+	// pieces on one square or a pawn on the first or last rank). Checks are not tested here.
+	boolean decode(int index, Position pos) {
+		pos.clear();
+		long occupied = 0;
+		for (int i = pieces.length - 1; i >= 0; i--) {
+			int sq = index & 63;
+			index >>>= 6;
+			if ((occupied & (1L << sq)) != 0)
+				return false;
+			if (Position.typeOf(pieces[i]) == Position.PAWN && (sq >> 3 == 0 || sq >> 3 == 7))
+				return false;
+			occupied |= 1L << sq;
+			pos.put(sq, pieces[i]);
+		}
+		int bk = index & 63;
+		index >>>= 6;
+		int king = index % kingSquares;
+		int wk = pawns ? (king / 4) * 8 + king % 4 : TRIANGLE_SQUARES[king];
+		if ((occupied & (1L << bk)) != 0 || (occupied & (1L << wk)) != 0 || wk == bk
+				|| (Attacks.KING[wk] & (1L << bk)) != 0)
+			return false;
+		pos.put(wk, Position.piece(Position.WHITE, Position.KING));
+		pos.put(bk, Position.piece(Position.BLACK, Position.KING));
+		pos.setSideToMove(index / kingSquares);
+		return true;
+	}
+
+	private static int apply(int sq, int transform) {
+		if ((transform & 1) != 0)
+			sq ^= 7;
+		if ((transform & 2) != 0)
+			sq ^= 56;
+		if ((transform & 4) != 0)
+			sq = transpose(sq);
+		return sq;
+	}
+
+	// Reflection in the a1-h8 diagonal (file and rank swap places)
+	private static int transpose(int sq) {
+		int row = sq >> 3, col = sq & 7;
+		return (7 - col) * 8 + (7 - row);
+	}
+
+}
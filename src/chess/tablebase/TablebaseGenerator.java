@@ -0,0 +1,281 @@
+package chess.tablebase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+
+// Builds tablebase files by retrograde analysis. Every index of the table is decoded once to find
+// illegal placements, mates and stalemates; then pass d resolves the positions whose outcome is
+// d + 1 plies from mate: a win if some move reaches a loss in d plies, a loss if every move reaches
+// a win in at most d plies. Moves that capture or promote leave the table and are answered by
+// the smaller tables, which are generated first when missing. Passes stop once nothing changes
+// and no smaller table holds a longer mate; whatever is still unresolved is a draw.
+//
+// Each pass is split into chunks run on a thread pool. A pass only reads values resolved in
+// earlier passes (a value written in the current pass is always one ply too deep to count), so the
+// chunks need no locking and the result does not depend on the number of threads.
+//
+// Castling is never possible in a table and en passant captures are ignored while generating.
+// The working set is one short per index plus one byte per index for the WDL codes split from
+// it: about 1 GB for a pawnless five-piece table (335 M indexes) and about 3.2 GB for one with
+// pawns (1.07 G indexes). generate() checks the heap limit before it starts.
+//
+// Usage: java chess.tablebase.TablebaseGenerator <directory> <threads> <material>...
+//   e.g. java chess.tablebase.TablebaseGenerator tb 4 KQvK KRvK KPvK
+public class TablebaseGenerator {
+
+	// Working values: 0 unknown, 1 illegal, 2 draw, else 3 + (plies to mate << 1 | 1 if a win)
+	private static final short UNKNOWN = 0, ILLEGAL = 1, DRAW = 2, RESOLVED = 3;
+
+	private static final int CHUNK = 1 << 14;
+
+	private final Tablebases tablebases;
+	private final int threads;
+	private final ThreadLocal<Position> positions = ThreadLocal.withInitial(Position::new);
+	private final ThreadLocal<int[]> moveLists = ThreadLocal.withInitial(() -> new int[MoveGenerator.MAX_MOVES]);
+
+	// Writes tables into the directory of tablebases (which is refreshed after each one) using the
+	// given number of threads
+	public TablebaseGenerator(Tablebases tablebases, int threads) {
+		this.tablebases = tablebases;
+		this.threads = Math.max(1, threads);
+	}
+
+	// Generates the table for material (e.g. "KRvKP") and every smaller table it depends on, skipping
+	// those already in the directory. Returns the canonical name of the table.
+	public String generate(String material) throws IOException {
+		int[][] counts = Material.canonical(Material.parse(material));
+		String name = Material.name(counts);
+		if (Material.key(counts) == 0 || tablebases.contains(name))
+			return name;
+		TableIndex index = new TableIndex(counts);
+		checkHeap(name, index.size);
+		for (int[][] successor : successors(counts))
+			generate(Material.name(successor));
+
+		long start = System.nanoTime();
+		short[] values = new short[index.size];
+		int maxSubDtm = 0;
+		for (int[][] successor : successors(counts))
+			maxSubDtm = Math.max(maxSubDtm, tablebases.maxDtm(Material.key(successor)));
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "tablebase-generator");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			runPass(pool, index.size, (from, to) -> initialize(index, values, from, to));
+			for (int depth = 0;; depth++) {
+				int d = depth;
+				boolean changed = runPass(pool, index.size, (from, to) -> resolve(index, values, d, from, to));
+				if (!changed && depth > maxSubDtm)
+					break;
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		// Split the working values into the file's WDL codes and plies to mate
+		byte[] wdl = new byte[index.size];
+		int maxDtm = 0;
+		long wins = 0, losses = 0, draws = 0;
+		for (int i = 0; i < values.length; i++) {
+			int value = values[i];
+			if (value == ILLEGAL) {
+				wdl[i] = Table.ILLEGAL;
+				values[i] = 0;
+			} else if (value < RESOLVED) {
+				wdl[i] = Table.DRAW;
+				values[i] = 0;
+				draws++;
+			} else {
+				boolean win = ((value - RESOLVED) & 1) != 0;
+				int plies = (value - RESOLVED) >> 1;
+				wdl[i] = (byte) (win ? Table.WIN : Table.LOSS);
+				values[i] = (short) plies;
+				maxDtm = Math.max(maxDtm, plies);
+				if (win)
+					wins++;
+				else
+					losses++;
+			}
+		}
+		Table.write(tablebases.getDirectory().resolve(name + Tablebases.EXTENSION), index.size, wdl, values, maxDtm);
+		tablebases.refresh();
+		System.out.printf("%s: %,d entries, %,d wins, %,d losses, %,d draws, longest mate %d plies, %d ms%n", name,
+				index.size, wins, losses, draws, maxDtm, (System.nanoTime() - start) / 1_000_000);
+		return name;
+	}
+
+	// Fails before any table is generated if the heap limit cannot hold the working values and WDL
+	// codes of a table with size indexes, rather than running out of memory hours later
+	private static void checkHeap(String name, int size) {
+		long needed = 3L * size;
+		long max = Runtime.getRuntime().maxMemory();
+		if (needed > max)
+			throw new IllegalStateException(String.format(
+					"%s needs about %,d MB of heap but the limit is %,d MB; run with a larger -Xmx", name,
+					needed >> 20, max >> 20));
+	}
+
+	// Marks impossible placements, positions where the side to move can capture the king, mates
+	// and stalemates
+	private boolean initialize(TableIndex index, short[] values, int from, int to) {
+		Position pos = positions.get();
+		int[] moves = moveLists.get();
+		for (int i = from; i < to; i++) {
+			if (!index.decode(i, pos) || pos.isInCheck(pos.sideToMove() ^ 1)) {
+				values[i] = ILLEGAL;
+			} else if (MoveGenerator.generate(pos, moves, 0) == 0) {
+				values[i] = pos.isInCheck(pos.sideToMove()) ? resolved(0, false) : DRAW;
+			}
+		}
+		return true;
+	}
+
+	// One retrograde pass: resolves the unknown positions that are depth + 1 plies from mate
+	private boolean resolve(TableIndex index, short[] values, int depth, int from, int to) {
+		Position pos = positions.get();
+		int[] moves = moveLists.get();
+		boolean changed = false;
+		for (int i = from; i < to; i++) {
+			if (values[i] != UNKNOWN)
+				continue;
+			index.decode(i, pos);
+			int count = MoveGenerator.generate(pos, moves, 0);
+			boolean win = false, allLose = true;
+			for (int m = 0; m < count && !win; m++) {
+				int move = moves[m];
+				pos.makeMove(move);
+				int plies, result;
+				if (Move.isCapture(move) || Move.isPromotion(move)) {
+					long code = tablebases.probe(pos);
+					if (code < 0)
+						throw new IllegalStateException("No table for a successor of " + Material.name(index.counts));
+					result = (int) code & 3;
+					plies = (int) (code >>> 2);
+				} else {
+					int value = values[index.index(pos, false)];
+					result = value < RESOLVED ? Table.DRAW : ((value - RESOLVED) & 1) != 0 ? Table.WIN : Table.LOSS;
+					plies = value < RESOLVED ? 0 : (value - RESOLVED) >> 1;
+					if (value == UNKNOWN)
+						allLose = false;
+				}
+				pos.unmakeMove();
+				if (result == Table.LOSS && plies == depth)
+					win = true;
+				else if (result != Table.WIN || plies > depth)
+					allLose = false;
+			}
+			if (win || allLose) {
+				values[i] = resolved(depth + 1, win);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	private static short resolved(int plies, boolean win) {
+		return (short) (RESOLVED + (plies << 1 | (win ? 1 : 0)));
+	}
+
+	private interface Chunk {
+		boolean run(int from, int to);
+	}
+
+	// Runs chunk over [0, size) in pieces on the pool; returns true if any piece reported a change
+	private boolean runPass(ExecutorService pool, int size, Chunk chunk) throws IOException {
+		List<Future<Boolean>> pending = new ArrayList<>();
+		for (int from = 0; from < size; from += CHUNK) {
+			int start = from, end = Math.min(size, from + CHUNK);
+			pending.add(pool.submit(() -> chunk.run(start, end)));
+		}
+		boolean changed = false;
+		try {
+			for (Future<Boolean> future : pending)
+				changed |= future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Tablebase generation failed", e.getCause());
+		}
+		return changed;
+	}
+
+	// Canonical signatures reachable by one capture, promotion or capturing promotion, bare kings excluded
+	static List<int[][]> successors(int[][] counts) {
+		List<int[][]> result = new ArrayList<>();
+		for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+			for (int type = Position.PAWN; type <= Position.QUEEN; type++) {
+				if (counts[color][type] > 0) {
+					int[][] next = copy(counts);
+					next[color][type]--;
+					add(result, next);
+				}
+			}
+			if (counts[color][Position.PAWN] == 0)
+				continue;
+			for (int promotion = Position.KNIGHT; promotion <= Position.QUEEN; promotion++) {
+				int[][] promoted = copy(counts);
+				promoted[color][Position.PAWN]--;
+				promoted[color][promotion]++;
+				add(result, promoted);
+				for (int type = Position.PAWN; type <= Position.QUEEN; type++) {
+					if (counts[color ^ 1][type] > 0) {
+						int[][] next = copy(promoted);
+						next[color ^ 1][type]--;
+						add(result, next);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private static void add(List<int[][]> list, int[][] counts) {
+		int[][] canonical = Material.canonical(counts);
+		int key = Material.key(canonical);
+		if (key == 0)
+			return;
+		for (int[][] other : list) {
+			if (Material.key(other) == key)
+				return;
+		}
+		list.add(canonical);
+	}
+
+	private static int[][] copy(int[][] counts) {
+		return new int[][] { counts[0].clone(), counts[1].clone() };
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.err.println("Usage: java chess.tablebase.TablebaseGenerator <directory> <threads> <material>...");
+			System.exit(2);
+		}
+		Path directory = Paths.get(args[0]);
+		Files.createDirectories(directory);
+		try (Tablebases tablebases = new Tablebases(directory)) {
+			TablebaseGenerator generator = new TablebaseGenerator(tablebases, Integer.parseInt(args[1]));
+			for (int i = 2; i < args.length; i++)
+				generator.generate(args[i]);
+		} catch (IllegalStateException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+}
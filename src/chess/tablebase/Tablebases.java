@@ -0,0 +1,152 @@
+package chess.tablebase;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import chess.Attacks;
+import chess.Board;
+import chess.Position;
+
+// Probes the endgame tables (".ctb" files written by TablebaseGenerator) in one directory.
+// Every table in the directory is memory-mapped when it is opened, so a probe is a material
+// lookup, an index computation and one or two reads from the mapping: constant time and no
+// allocation. Positions with castling rights or a possible en passant capture are not covered
+// (the tables assume neither) and probe as UNKNOWN, as does any material without a table.
+// Safe to share between threads.
+public class Tablebases implements Closeable {
+
+	public static final String EXTENSION = ".ctb";
+
+	// probeWdl results, from the side to move's view
+	public static final int LOSS = -1, DRAW = 0, WIN = 1, UNKNOWN = -2;
+
+	private final Path directory;
+	private volatile Map<Integer, Table> tables = new HashMap<>();
+	private volatile int maxPieces;
+
+	// Opens every table in directory
+	public Tablebases(Path directory) throws IOException {
+		this.directory = directory;
+		refresh();
+	}
+
+	// Rescans the directory, picking up tables written since it was opened
+	public synchronized void refresh() throws IOException {
+		Map<Integer, Table> found = new HashMap<>(tables);
+		int pieces = maxPieces;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				int[][] counts;
+				try {
+					counts = Material.parse(name.substring(0, name.length() - EXTENSION.length()));
+				} catch (IllegalArgumentException e) {
+					continue;
+				}
+				int key = Material.key(counts);
+				if (!found.containsKey(key)) {
+					found.put(key, new Table(file, new TableIndex(counts)));
+					pieces = Math.max(pieces, Material.pieceCount(counts));
+				}
+			}
+		}
+		tables = found;
+		maxPieces = pieces;
+	}
+
+	// Largest number of pieces (kings included) of any table
+	public int getMaxPieces() {
+		return maxPieces;
+	}
+
+	// True if a table for the signature (in either color orientation) is available
+	public boolean contains(String material) {
+		int key = Material.key(Material.parse(material));
+		return isBareKings(key) || tables.containsKey(key) || tables.containsKey(Material.swapColors(key));
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	// WIN, DRAW or LOSS for the side to move, or UNKNOWN
+	public int probeWdl(Board board) {
+		return probeWdl(board.getPosition());
+	}
+
+	public int probeWdl(Position pos) {
+		long result = probe(pos);
+		return result < 0 ? UNKNOWN : wdl((int) result & 3);
+	}
+
+	// Plies to mate with best play (0 for draws and for a side already mated), or -1 if UNKNOWN;
+	// use probeWdl to tell who mates
+	public int probeDtm(Board board) {
+		return probeDtm(board.getPosition());
+	}
+
+	public int probeDtm(Position pos) {
+		long result = probe(pos);
+		return result < 0 ? -1 : (int) (result >>> 2);
+	}
+
+	// Table code (dtm << 2 | Table WDL code) for pos, or -1 if it cannot be probed
+	long probe(Position pos) {
+		if (Long.bitCount(pos.occupied()) > Math.max(2, maxPieces) || pos.castlingRights() != 0 || canCaptureEnPassant(pos))
+			return -1;
+		int key = Material.key(pos);
+		if (key < 0)
+			return -1;
+		if (isBareKings(key))
+			return Table.DRAW;
+		Table table = tables.get(key);
+		boolean flip = false;
+		if (table == null) {
+			table = tables.get(Material.swapColors(key));
+			flip = true;
+			if (table == null)
+				return -1;
+		}
+		int i = table.index.index(pos, flip);
+		int wdl = table.wdl(i);
+		if (wdl == Table.ILLEGAL)
+			return -1;
+		return (long) table.dtm(i) << 2 | wdl;
+	}
+
+	// Largest DTM stored in the table for a signature (either orientation), or 0
+	int maxDtm(int key) {
+		Table table = tables.get(key);
+		if (table == null)
+			table = tables.get(Material.swapColors(key));
+		return table == null ? 0 : table.maxDtm;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		for (Table table : tables.values())
+			table.close();
+		tables = new HashMap<>();
+	}
+
+	private static int wdl(int code) {
+		return code == Table.WIN ? WIN : code == Table.LOSS ? LOSS : DRAW;
+	}
+
+	// Only kings are left (or a signature with no pieces besides them)
+	private static boolean isBareKings(int key) {
+		return key == 0;
+	}
+
+	private static boolean canCaptureEnPassant(Position pos) {
+		int ep = pos.epSquare();
+		int us = pos.sideToMove();
+		return ep >= 0 && (Attacks.PAWN[us ^ 1][ep] & pos.pieces(us, Position.PAWN)) != 0;
+	}
+
+}
@@ -0,0 +1,128 @@
+package chess.tournament;
+
+import chess.Board;
+import chess.Move;
+import chess.Position;
+import chess.engine.Engine;
+import chess.engine.SearchInfo;
+import chess.uci.TimeManager;
+
+// Plays engine-against-engine games on a Board, one at a time, under a time control. A game ends
+// by the rules (checkmate, stalemate, threefold repetition, the fifty-move rule, insufficient
+// material), by a side overstepping its clock, or by adjudication on the engines' own scores:
+// resignation once both have agreed for RESIGN_PLIES plies that one side is RESIGN_SCORE ahead,
+// and a draw once the game is long and both have scored it near zero for DRAW_PLIES plies.
+final class GameRunner {
+
+	static final int MAX_PLIES = 600;               // Longer games are drawn
+	static final int RESIGN_SCORE = 1000, RESIGN_PLIES = 8;
+	static final int DRAW_SCORE = 10, DRAW_PLIES = 16, DRAW_MIN_PLY = 80;
+
+	// How a game ended: result "1-0", "0-1" or "1/2-1/2", why, and after how many plies
+	static final class Outcome {
+		final String result;
+		final String reason;
+		final int plies;
+
+		Outcome(String result, String reason, int plies) {
+			this.result = result;
+			this.reason = reason;
+			this.plies = plies;
+		}
+	}
+
+	private final Board board = new Board();
+	private final TimeControl timeControl;
+
+	GameRunner(TimeControl timeControl) {
+		this.timeControl = timeControl;
+	}
+
+	Outcome play(String fen, Engine white, Engine black) {
+		board.loadFen(fen);
+		white.newGame();
+		black.newGame();
+		long[] clocks = { timeControl.getBaseMillis(), timeControl.getBaseMillis() };
+		int[] movesMade = new int[2];
+		int resignRun = 0;          // Plies in a row scored a win for white (positive) or black (negative)
+		int drawRun = 0;
+
+		for (int ply = 0; ; ply++) {
+			boolean whiteToMove = board.isWhiteTurn();
+			int side = whiteToMove ? 0 : 1;
+			Outcome end = ruleEnding(whiteToMove, ply);
+			if (end != null)
+				return end;
+
+			Engine engine = whiteToMove ? white : black;
+			TimeManager budget = timeControl.budget(clocks[side], movesMade[side]);
+			long start = System.nanoTime();
+			SearchInfo info = engine.search(board, timeControl.limits(budget), iteration -> {
+				if (budget != null && budget.stopAfterIteration(iteration.getTimeMillis()))
+					engine.stop();
+			});
+			long elapsed = (System.nanoTime() - start) / 1_000_000;
+			if (timeControl.hasClock()) {
+				clocks[side] -= elapsed;
+				if (clocks[side] < 0)
+					return win(!whiteToMove, "time forfeit", ply);
+				clocks[side] += timeControl.getIncrementMillis();
+				movesMade[side]++;
+				if (timeControl.getMovesPerPeriod() > 0 && movesMade[side] % timeControl.getMovesPerPeriod() == 0)
+					clocks[side] += timeControl.getBaseMillis();
+			}
+			int move = info.getBestMove();
+			if (move == Move.NONE)
+				return win(!whiteToMove, "no move", ply);
+
+			// Adjudication on scores from white's point of view
+			int score = whiteToMove ? info.getScore() : -info.getScore();
+			if (score >= RESIGN_SCORE)
+				resignRun = Math.max(resignRun, 0) + 1;
+			else if (score <= -RESIGN_SCORE)
+				resignRun = Math.min(resignRun, 0) - 1;
+			else
+				resignRun = 0;
+			drawRun = ply >= DRAW_MIN_PLY && Math.abs(score) <= DRAW_SCORE ? drawRun + 1 : 0;
+			if (Math.abs(resignRun) >= RESIGN_PLIES)
+				return win(resignRun > 0, "adjudication", ply);
+			if (drawRun >= DRAW_PLIES)
+				return new Outcome("1/2-1/2", "adjudication", ply);
+
+			board.makeMove(move);
+		}
+	}
+
+	// The end of the game by the rules before ply, if it has ended
+	private Outcome ruleEnding(boolean whiteToMove, int ply) {
+		if (board.isCheckmateFor(whiteToMove))
+			return win(!whiteToMove, "checkmate", ply);
+		if (board.isStalemate())
+			return new Outcome("1/2-1/2", "stalemate", ply);
+		if (board.isThreefoldRepetition())
+			return new Outcome("1/2-1/2", "repetition", ply);
+		if (board.getPosition().halfmoveClock() >= 100)
+			return new Outcome("1/2-1/2", "fifty-moves", ply);
+		if (insufficientMaterial(board.getPosition()))
+			return new Outcome("1/2-1/2", "insufficient-material", ply);
+		if (ply >= MAX_PLIES)
+			return new Outcome("1/2-1/2", "move-limit", ply);
+		return null;
+	}
+
+	private static Outcome win(boolean white, String reason, int ply) {
+		return new Outcome(white ? "1-0" : "0-1", reason, ply);
+	}
+
+	// No pawns, rooks or queens, and at most one minor piece per side
+	static boolean insufficientMaterial(Position pos) {
+		for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+			if ((pos.pieces(color, Position.PAWN) | pos.pieces(color, Position.ROOK) | pos.pieces(color, Position.QUEEN)) != 0)
+				return false;
+			if (Long.bitCount(pos.pieces(color, Position.KNIGHT) | pos.pieces(color, Position.BISHOP)) > 1)
+				return false;
+		}
+		return true;
+	}
+
+}
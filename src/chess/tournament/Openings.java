@@ -0,0 +1,71 @@
+package chess.tournament;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import chess.Fen;
+import chess.MoveGenerator;
+import chess.Position;
+
+// Opening positions for a match, one per line as FEN or EPD. EPD lines keep their first four
+// fields (placement, side, castling, en passant) and get clocks of "0 1"; operations after them
+// ("bm", "id", ...) are ignored. Blank lines and lines starting with '#' are skipped.
+public final class Openings {
+
+	private Openings() {
+	}
+
+	// Reads every position of the file as a FEN; fails on the first line that is not a legal
+	// position with moves to play
+	public static List<String> load(Path file) throws IOException {
+		List<String> fens = new ArrayList<>();
+		Position pos = new Position();
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			for (int number = 1; (line = in.readLine()) != null; number++) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#"))
+					continue;
+				String fen = toFen(line);
+				try {
+					Fen.parse(fen, pos);
+				} catch (IllegalArgumentException e) {
+					throw new IOException(file + ":" + number + ": " + e.getMessage());
+				}
+				if (pos.kingSquare(Position.WHITE) < 0 || pos.kingSquare(Position.BLACK) < 0
+						|| pos.isInCheck(pos.sideToMove() ^ 1) || MoveGenerator.generate(pos, moves, 0) == 0)
+					throw new IOException(file + ":" + number + ": not a playable position: " + line);
+				fens.add(fen);
+			}
+		}
+		if (fens.isEmpty())
+			throw new IOException(file + " holds no positions");
+		return fens;
+	}
+
+	// FEN of a FEN or EPD line
+	static String toFen(String line) {
+		String[] fields = line.split("\\s+");
+		if (fields.length < 4)
+			return line;
+		String fen = fields[0] + " " + fields[1] + " " + fields[2] + " " + fields[3];
+		if (fields.length >= 6 && isNumber(fields[4]) && isNumber(fields[5]))
+			return fen + " " + fields[4] + " " + fields[5];
+		return fen + " 0 1";
+	}
+
+	private static boolean isNumber(String field) {
+		for (int i = 0; i < field.length(); i++) {
+			if (!Character.isDigit(field.charAt(i)))
+				return false;
+		}
+		return !field.isEmpty();
+	}
+
+}
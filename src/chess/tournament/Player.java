@@ -0,0 +1,64 @@
+package chess.tournament;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+import chess.engine.ClassicEvaluator;
+import chess.engine.Engine;
+import chess.engine.Evaluator;
+import chess.nnue.Network;
+import chess.nnue.NnueEvaluator;
+
+// One side of a match, described by options "name=<name> eval=<classic|network file> hash=<MB>
+// threads=<n>". The network is loaded once and shared by the engines of every game thread.
+public final class Player {
+
+	private final String name;
+	private final Map<String, String> options;
+	private final Evaluator evaluator;
+	private final int hashMegabytes;
+	private final int threads;
+
+	public Player(Map<String, String> options) throws IOException {
+		this.options = new TreeMap<>(options);
+		name = options.get("name");
+		if (name == null || name.isEmpty() || name.contains(" "))
+			throw new IllegalArgumentException("Each engine needs a name without spaces: " + options);
+		String eval = options.getOrDefault("eval", "classic");
+		evaluator = eval.equals("classic") ? new ClassicEvaluator() : new NnueEvaluator(Network.load(Paths.get(eval)));
+		hashMegabytes = Integer.parseInt(options.getOrDefault("hash", "16"));
+		threads = Integer.parseInt(options.getOrDefault("threads", "1"));
+		for (String key : options.keySet()) {
+			if (!key.matches("name|eval|hash|threads"))
+				throw new IllegalArgumentException("Unknown engine option " + key);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	// A new engine for one game thread
+	public Engine newEngine() {
+		return new Engine(hashMegabytes, evaluator, threads);
+	}
+
+	// The options in a stable order, for the results file header
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, String> option : options.entrySet()) {
+			if (sb.length() > 0)
+				sb.append(' ');
+			sb.append(option.getKey()).append('=').append(option.getValue());
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,104 @@
+package chess.tournament;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Append-only record of a match: a header of '#' lines describing it, then one line per finished
+// game, "<game> <opening> <white> <black> <result> <reason> <plies>", written and flushed as soon as
+// the game ends. Reopening the file resumes the match: the header must match the new run's, the
+// games already recorded are returned so they are not played again, and a last line cut short by
+// an interruption is dropped.
+final class ResultsFile implements Closeable {
+
+	static final class Record {
+		final int game;
+		final int opening;
+		final String white;
+		final String black;
+		final String result;
+		final String reason;
+		final int plies;
+
+		Record(int game, int opening, String white, String black, String result, String reason, int plies) {
+			this.game = game;
+			this.opening = opening;
+			this.white = white;
+			this.black = black;
+			this.result = result;
+			this.reason = reason;
+			this.plies = plies;
+		}
+
+		@Override
+		public String toString() {
+			return game + " " + opening + " " + white + " " + black + " " + result + " " + reason + " " + plies;
+		}
+	}
+
+	private final List<Record> records = new ArrayList<>();
+	private final Writer out;
+
+	ResultsFile(Path file, List<String> header) throws IOException {
+		boolean resume = Files.exists(file) && Files.size(file) > 0;
+		if (resume)
+			read(file, header);
+		out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		if (!resume) {
+			for (String line : header)
+				out.write(line + "\n");
+			out.flush();
+		}
+	}
+
+	private void read(Path file, List<String> header) throws IOException {
+		// Whatever follows the last newline was cut short by an interruption
+		byte[] bytes = Files.readAllBytes(file);
+		int complete = bytes.length;
+		while (complete > 0 && bytes[complete - 1] != '\n')
+			complete--;
+		if (complete < bytes.length) {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				channel.truncate(complete);
+			}
+		}
+
+		String[] lines = new String(bytes, 0, complete, StandardCharsets.UTF_8).split("\n");
+		for (int i = 0; i < header.size(); i++) {
+			if (i >= lines.length || !lines[i].equals(header.get(i)))
+				throw new IOException(file + " records a different match" + (i < lines.length ? ": " + lines[i] : ""));
+		}
+		for (int i = header.size(); i < lines.length; i++) {
+			String[] fields = lines[i].split(" ");
+			try {
+				records.add(new Record(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), fields[2], fields[3],
+						fields[4], fields[5], Integer.parseInt(fields[6])));
+			} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+				throw new IOException(file + ":" + (i + 1) + ": bad record: " + lines[i]);
+			}
+		}
+	}
+
+	// Games recorded before this run
+	List<Record> getRecords() {
+		return records;
+	}
+
+	synchronized void append(Record record) throws IOException {
+		out.write(record + "\n");
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+}
@@ -0,0 +1,122 @@
+package chess.tournament;
+
+// Sequential probability ratio test between two Elo hypotheses, H0: the test engine is elo0
+// stronger than the base, H1: it is elo1 stronger. Games are counted in pairs played from the
+// same opening with colors swapped, which cancels most of the openings' own bias; a pair scores
+// 0, 1/4, 1/2, 3/4 or 1 for the test engine, and the five counts (the pentanomial) are all the
+// test needs. The log-likelihood ratio uses the normal approximation of the generalized SPRT,
+//   LLR = n (s1 - s0) (2 mean - s0 - s1) / (2 variance)
+// with s0 and s1 the expected pair scores under each hypothesis and the pair scores' sample mean
+// and variance. Every count gets a small prior (PRIOR pairs), so pairs that all scored the same,
+// which have no variance, still move the LLR. The test passes once LLR reaches
+// log((1 - beta) / alpha) and fails once it drops to log(beta / (1 - alpha)), so alpha and beta are
+// its false positive and false negative rates.
+public final class Sprt {
+
+	public static final String PASS = "pass", FAIL = "fail";
+
+	private static final double PRIOR = 1e-3;
+
+	private final double elo0, elo1, alpha, beta;
+	private final double lowerBound, upperBound;
+
+	public Sprt(double elo0, double elo1, double alpha, double beta) {
+		if (elo1 <= elo0 || alpha <= 0 || beta <= 0 || alpha + beta >= 1)
+			throw new IllegalArgumentException("SPRT needs elo0 < elo1 and 0 < alpha, beta with alpha + beta < 1");
+		this.elo0 = elo0;
+		this.elo1 = elo1;
+		this.alpha = alpha;
+		this.beta = beta;
+		lowerBound = Math.log(beta / (1 - alpha));
+		upperBound = Math.log((1 - beta) / alpha);
+	}
+
+	public double getLowerBound() {
+		return lowerBound;
+	}
+
+	public double getUpperBound() {
+		return upperBound;
+	}
+
+	// Log-likelihood ratio of H1 against H0 for pentanomial counts (pairs scoring 0, 1/4 ... 1)
+	public double llr(long[] pentanomial) {
+		long pairs = pairs(pentanomial);
+		if (pairs < 2)
+			return 0;
+		double[] counts = counts(pentanomial, PRIOR);
+		double s0 = expectedScore(elo0), s1 = expectedScore(elo1);
+		return pairs * (s1 - s0) * (2 * mean(counts) - s0 - s1) / (2 * variance(counts));
+	}
+
+	// PASS, FAIL or null while the test goes on
+	public String decide(double llr) {
+		return llr >= upperBound ? PASS : llr <= lowerBound ? FAIL : null;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("elo0=%s elo1=%s alpha=%s beta=%s", elo0, elo1, alpha, beta);
+	}
+
+	// Expected score of a side the given number of Elo points stronger (logistic model)
+	public static double expectedScore(double elo) {
+		return 1 / (1 + Math.pow(10, -elo / 400));
+	}
+
+	// Elo difference for an expected score
+	public static double elo(double score) {
+		score = Math.max(1e-6, Math.min(1 - 1e-6, score));
+		return -400 * Math.log10(1 / score - 1);
+	}
+
+	// Elo difference measured by the pairs and the half width of its 95% confidence interval. The
+	// width is infinite below two pairs and while every pair has scored the same: a sample without
+	// variance says nothing about the spread, it does not mean certainty.
+	public static double[] eloWithError(long[] pentanomial) {
+		long pairs = pairs(pentanomial);
+		double[] counts = counts(pentanomial, 0);
+		if (pairs == 0)
+			return new double[] { 0, Double.POSITIVE_INFINITY };
+		double mean = mean(counts), variance = variance(counts);
+		if (pairs < 2 || variance <= 0)
+			return new double[] { elo(mean), Double.POSITIVE_INFINITY };
+		double error = 1.959964 * Math.sqrt(variance / pairs);
+		return new double[] { elo(mean), (elo(mean + error) - elo(mean - error)) / 2 };
+	}
+
+	static long pairs(long[] pentanomial) {
+		long pairs = 0;
+		for (long count : pentanomial)
+			pairs += count;
+		return pairs;
+	}
+
+	// The pentanomial counts with prior added to each
+	private static double[] counts(long[] pentanomial, double prior) {
+		double[] counts = new double[5];
+		for (int i = 0; i < 5; i++)
+			counts[i] = pentanomial[i] + prior;
+		return counts;
+	}
+
+	// Mean and variance of the pair scores for (possibly fractional) pentanomial counts
+	private static double mean(double[] counts) {
+		double sum = 0, total = 0;
+		for (int i = 0; i < 5; i++) {
+			sum += counts[i] * i / 4.0;
+			total += counts[i];
+		}
+		return sum / total;
+	}
+
+	private static double variance(double[] counts) {
+		double mean = mean(counts), sum = 0, total = 0;
+		for (int i = 0; i < 5; i++) {
+			sum += counts[i] * (i / 4.0 - mean) * (i / 4.0 - mean);
+			total += counts[i];
+		}
+		return sum / total;
+	}
+
+}
@@ -0,0 +1,100 @@
+package chess.tournament;
+
+import chess.engine.SearchLimits;
+import chess.uci.TimeManager;
+
+// How long each side may think. Either a clock, written "[moves/]base+increment" in seconds
+// (e.g. "10+0.1", or "40/60+0" for 40 moves in 60 seconds, repeating), budgeted per move by the
+// same TimeManager the UCI front end uses; or a fixed budget per move: "movetime=<ms>",
+// "nodes=<n>" or "depth=<plies>". Fixed node and depth budgets make games independent of machine
+// load, which suits running many games on few cores.
+public final class TimeControl {
+
+	private static final long OVERHEAD_MILLIS = 10;     // Margin for scheduling and GC pauses
+
+	private final String text;
+	private final long baseMillis;          // 0 for fixed budgets
+	private final long incrementMillis;
+	private final int movesPerPeriod;       // 0 for sudden death
+	private final long moveTimeMillis;
+	private final long nodes;
+	private final int depth;
+
+	private TimeControl(String text, long baseMillis, long incrementMillis, int movesPerPeriod, long moveTimeMillis,
+			long nodes, int depth) {
+		this.text = text;
+		this.baseMillis = baseMillis;
+		this.incrementMillis = incrementMillis;
+		this.movesPerPeriod = movesPerPeriod;
+		this.moveTimeMillis = moveTimeMillis;
+		this.nodes = nodes;
+		this.depth = depth;
+	}
+
+	public static TimeControl parse(String text) {
+		try {
+			if (text.startsWith("movetime="))
+				return new TimeControl(text, 0, 0, 0, Long.parseLong(text.substring(9)), 0, 0);
+			if (text.startsWith("nodes="))
+				return new TimeControl(text, 0, 0, 0, 0, Long.parseLong(text.substring(6)), 0);
+			if (text.startsWith("depth="))
+				return new TimeControl(text, 0, 0, 0, 0, 0, Integer.parseInt(text.substring(6)));
+			int slash = text.indexOf('/'), plus = text.indexOf('+');
+			int moves = slash < 0 ? 0 : Integer.parseInt(text.substring(0, slash));
+			String base = text.substring(slash + 1, plus < 0 ? text.length() : plus);
+			double increment = plus < 0 ? 0 : Double.parseDouble(text.substring(plus + 1));
+			long baseMillis = Math.round(Double.parseDouble(base) * 1000);
+			if (baseMillis <= 0 || increment < 0 || moves < 0)
+				throw new IllegalArgumentException("Bad time control: " + text);
+			return new TimeControl(text, baseMillis, Math.round(increment * 1000), moves, 0, 0, 0);
+		} catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Bad time control: " + text);
+		}
+	}
+
+	// True if the sides play on a clock and can lose on time
+	public boolean hasClock() {
+		return baseMillis > 0;
+	}
+
+	public long getBaseMillis() {
+		return baseMillis;
+	}
+
+	public long getIncrementMillis() {
+		return incrementMillis;
+	}
+
+	public int getMovesPerPeriod() {
+		return movesPerPeriod;
+	}
+
+	// Budget for the next move of a side with clockMillis left that has made movesMade moves; for a
+	// clock, also the point after which no new iteration should start
+	public TimeManager budget(long clockMillis, int movesMade) {
+		if (moveTimeMillis > 0)
+			return TimeManager.fixed(moveTimeMillis, 0);
+		if (!hasClock())
+			return null;
+		int movesToGo = movesPerPeriod > 0 ? movesPerPeriod - movesMade % movesPerPeriod : 0;
+		return TimeManager.forClock(clockMillis, incrementMillis, movesToGo, OVERHEAD_MILLIS);
+	}
+
+	// Search limits for a move with the given budget (null for node and depth budgets)
+	public SearchLimits limits(TimeManager budget) {
+		SearchLimits limits = new SearchLimits();
+		if (nodes > 0)
+			limits.nodes(nodes);
+		if (depth > 0)
+			limits.depth(depth);
+		if (budget != null)
+			limits.moveTime(budget.maximumMillis);
+		return limits;
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+
+}
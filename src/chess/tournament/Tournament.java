@@ -0,0 +1,250 @@
+package chess.tournament;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import chess.engine.Engine;
+
+// Headless match between a test engine and a base engine, many games at once: each game thread
+// owns a Board and one Engine per player and plays games until the match is over. Game 2k and
+// game 2k + 1 start from opening k (cycling through the file) with the colors swapped. After every
+// game the running score, Elo estimate and, when a test is given, the SPRT log-likelihood ratio
+// are printed; a passed or failed SPRT stops the match once the games in progress finish.
+//
+// Every finished game is appended to the results file at once, so an interrupted run is resumed
+// by starting it again with the same arguments: recorded games are counted and not replayed.
+//
+// Usage: java chess.tournament.Tournament -engine name=<name> [eval=<classic|file>] [hash=<MB>] [threads=<n>]
+//            -engine name=<name> ... -openings <FEN/EPD file> -tc <time control> [-games <n>]
+//            [-concurrency <threads>] [-sprt elo0=<elo> elo1=<elo> [alpha=0.05] [beta=0.05]] [-results <file>]
+//   the first engine is the one under test; time controls are described in TimeControl
+public class Tournament {
+
+	private final Player[] players;                 // Test engine, then base engine
+	private final List<String> openings;
+	private final TimeControl timeControl;
+	private final int games;
+	private final Sprt sprt;                        // null to play all games
+	private final ResultsFile results;
+
+	// Match state, guarded by this
+	private final BitSet finished = new BitSet();
+	private final Map<Integer, Double> halfPairs = new HashMap<>();   // Pair -> test score of its one finished game
+	private final long[] pentanomial = new long[5];
+	private int wins, draws, losses;
+	private int next;                               // Lowest game that may still be unclaimed
+	private String decision;
+	private Exception failure;                      // First IOException or RuntimeException of a game thread
+
+	public Tournament(Player test, Player base, List<String> openings, TimeControl timeControl, int games, Sprt sprt,
+			Path resultsFile) throws IOException {
+		players = new Player[] { test, base };
+		this.openings = openings;
+		this.timeControl = timeControl;
+		this.games = games;
+		this.sprt = sprt;
+		List<String> header = new ArrayList<>();
+		header.add("# chess.tournament results 1");
+		header.add("# test " + test);
+		header.add("# base " + base);
+		header.add("# tc " + timeControl);
+		header.add("# openings " + openings.size() + " " + Integer.toHexString(openings.hashCode()));
+		header.add("# sprt " + (sprt == null ? "none" : sprt.toString()));
+		results = new ResultsFile(resultsFile, header);
+		for (ResultsFile.Record record : results.getRecords())
+			count(record);
+		if (!results.getRecords().isEmpty()) {
+			System.out.println("Resuming after " + results.getRecords().size() + " recorded games. " + status());
+			// The recorded games may already settle the test, and then no further game is played
+			if (sprt != null)
+				decision = sprt.decide(sprt.llr(pentanomial));
+			if (decision != null)
+				System.out.println("SPRT already decided by the recorded games: " + decision);
+		}
+	}
+
+	// Plays on the given number of threads until every game is played or the SPRT decides
+	public void run(int concurrency) throws IOException, InterruptedException {
+		Thread[] threads = new Thread[concurrency];
+		for (int i = 0; i < concurrency; i++) {
+			threads[i] = new Thread(this::playGames, "tournament-" + i);
+			threads[i].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		results.close();
+		if (failure instanceof IOException)
+			throw (IOException) failure;
+		if (failure != null)
+			throw (RuntimeException) failure;
+		System.out.println("Finished. " + status());
+		if (decision != null)
+			System.out.println("SPRT: H1 " + (decision.equals(Sprt.PASS) ? "accepted (pass)" : "rejected (fail)"));
+	}
+
+	// Game thread body. A failure stops the match: the game in progress is not recorded, so a
+	// resumed run plays it again, and run() rethrows the failure instead of reporting a result.
+	private void playGames() {
+		GameRunner runner = new GameRunner(timeControl);
+		try (Engine test = players[0].newEngine(); Engine base = players[1].newEngine()) {
+			playGames(runner, new Engine[] { test, base });
+		} catch (IOException | RuntimeException e) {
+			fail(e);
+		}
+	}
+
+	// Records the first failure and stops every thread from claiming more games
+	private synchronized void fail(Exception e) {
+		if (failure == null)
+			failure = e;
+		decision = "error";
+	}
+
+	// Plays claimed games with this thread's engines, indexed like players
+	private void playGames(GameRunner runner, Engine[] engines) throws IOException {
+		int game;
+		while ((game = claim()) >= 0) {
+			int opening = (game / 2) % openings.size();
+			int white = game % 2;           // The test engine has white in even games
+			GameRunner.Outcome outcome = runner.play(openings.get(opening), engines[white], engines[white ^ 1]);
+			ResultsFile.Record record = new ResultsFile.Record(game, opening, players[white].getName(),
+					players[white ^ 1].getName(), outcome.result, outcome.reason, outcome.plies);
+			finish(record);
+		}
+	}
+
+	// The next game to play, or -1 once there is none
+	private synchronized int claim() {
+		while (next < games && finished.get(next))
+			next++;
+		if (decision != null || next >= games)
+			return -1;
+		return next++;
+	}
+
+	private synchronized void finish(ResultsFile.Record record) throws IOException {
+		results.append(record);
+		count(record);
+		System.out.printf("Game %d (%s vs %s): %s {%s}%n", record.game + 1, record.white, record.black, record.result,
+				record.reason);
+		System.out.println(status());
+		if (sprt != null && decision == null)
+			decision = sprt.decide(sprt.llr(pentanomial));
+	}
+
+	// Adds a finished game to the score
+	private void count(ResultsFile.Record record) {
+		finished.set(record.game);
+		double score = record.result.equals("1/2-1/2") ? 0.5 : record.result.equals("1-0") ? 1 : 0;
+		if (!record.white.equals(players[0].getName()))
+			score = 1 - score;
+		if (score == 1)
+			wins++;
+		else if (score == 0)
+			losses++;
+		else
+			draws++;
+		Double other = halfPairs.remove(record.game / 2);
+		if (other == null)
+			halfPairs.put(record.game / 2, score);
+		else
+			pentanomial[(int) Math.round((score + other) * 2)]++;
+	}
+
+	private String status() {
+		int played = wins + draws + losses;
+		double[] elo = Sprt.eloWithError(pentanomial);
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Score of %s vs %s: +%d -%d =%d [%.3f] %d games", players[0].getName(),
+				players[1].getName(), wins, losses, draws, played == 0 ? 0.5 : (wins + draws / 2.0) / played, played));
+		sb.append(String.format(", Elo %.1f +- %.1f", elo[0], elo[1]));
+		if (sprt != null)
+			sb.append(String.format(", LLR %.2f (%.2f, %.2f)", sprt.llr(pentanomial), sprt.getLowerBound(),
+					sprt.getUpperBound()));
+		return sb.toString();
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<Map<String, String>> engines = new ArrayList<>();
+		Map<String, String> sprtOptions = null;
+		String openingsFile = null, tc = null, resultsFile = "tournament.txt";
+		int games = 1000, concurrency = -1;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "-engine":
+					engines.add(new LinkedHashMap<>());
+					i = options(args, i, engines.get(engines.size() - 1));
+					break;
+				case "-sprt":
+					sprtOptions = new LinkedHashMap<>();
+					i = options(args, i, sprtOptions);
+					break;
+				case "-openings":
+					openingsFile = args[++i];
+					break;
+				case "-tc":
+					tc = args[++i];
+					break;
+				case "-games":
+					games = Integer.parseInt(args[++i]);
+					break;
+				case "-concurrency":
+					concurrency = Integer.parseInt(args[++i]);
+					break;
+				case "-results":
+					resultsFile = args[++i];
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown argument " + args[i]);
+				}
+			}
+			if (engines.size() != 2 || openingsFile == null || tc == null)
+				throw new IllegalArgumentException("Two engines, openings and a time control are required");
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			System.err.println(e.getMessage() == null ? "Missing value for " + args[args.length - 1] : e.getMessage());
+			System.err.println("Usage: java chess.tournament.Tournament -engine name=<name> [eval=<classic|file>] [hash=<MB>] [threads=<n>]");
+			System.err.println("           -engine name=<name> ... -openings <FEN/EPD file> -tc <time control> [-games <n>]");
+			System.err.println("           [-concurrency <threads>] [-sprt elo0=<elo> elo1=<elo> [alpha=0.05] [beta=0.05]] [-results <file>]");
+			System.exit(2);
+			return;
+		}
+
+		Player test = new Player(engines.get(0)), base = new Player(engines.get(1));
+		if (test.getName().equals(base.getName()))
+			throw new IllegalArgumentException("The engines need different names");
+		Sprt sprt = null;
+		if (sprtOptions != null) {
+			sprt = new Sprt(Double.parseDouble(sprtOptions.getOrDefault("elo0", "0")),
+					Double.parseDouble(sprtOptions.getOrDefault("elo1", "5")),
+					Double.parseDouble(sprtOptions.getOrDefault("alpha", "0.05")),
+					Double.parseDouble(sprtOptions.getOrDefault("beta", "0.05")));
+		}
+		if (concurrency <= 0)
+			concurrency = Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(test.getThreads(), base.getThreads()));
+
+		Tournament tournament = new Tournament(test, base, Openings.load(Paths.get(openingsFile)), TimeControl.parse(tc),
+				games, sprt, Paths.get(resultsFile));
+		tournament.run(concurrency);
+	}
+
+	// Reads the key=value arguments after args[i]; returns the index of the last one
+	private static int options(String[] args, int i, Map<String, String> options) {
+		while (i + 1 < args.length && !args[i + 1].startsWith("-")) {
+			String option = args[++i];
+			int equals = option.indexOf('=');
+			if (equals <= 0)
+				throw new IllegalArgumentException("Expected key=value, got " + option);
+			options.put(option.substring(0, equals), option.substring(equals + 1));
+		}
+		return i;
+	}
+
+}
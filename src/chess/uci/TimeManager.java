@@ -0,0 +1,40 @@
+package chess.uci;
+
+// Splits the clock between moves. Each move gets an optimum time, the budget it normally uses,
+// and a maximum it may never exceed. The search stops at the end of an iteration once it has used
+// most of the optimum (the next iteration would usually take as long again as all the previous
+// ones together), and a timer stops it outright at the maximum.
+public final class TimeManager {
+
+	static final int DEFAULT_MOVES_TO_GO = 30;      // Assumed when the GUI does not say (sudden death)
+	static final double ITERATION_FRACTION = 0.6;   // Share of the optimum after which no new iteration starts
+
+	public final long optimumMillis;
+	public final long maximumMillis;
+
+	private TimeManager(long optimumMillis, long maximumMillis) {
+		this.optimumMillis = optimumMillis;
+		this.maximumMillis = maximumMillis;
+	}
+
+	// Budget for a move with time left on the clock, the increment per move, the moves until the
+	// next time control (0 if none) and a safety margin for communication delays
+	public static TimeManager forClock(long timeMillis, long incrementMillis, int movesToGo, long overheadMillis) {
+		long left = Math.max(1, timeMillis - overheadMillis);
+		int moves = movesToGo > 0 ? Math.min(movesToGo, 50) : DEFAULT_MOVES_TO_GO;
+		long maximum = Math.max(1, moves == 1 ? left * 9 / 10 : Math.min(left * 3 / 4, (left / moves + incrementMillis) * 5));
+		long optimum = Math.max(1, Math.min(maximum, left / moves + incrementMillis * 3 / 4));
+		return new TimeManager(optimum, maximum);
+	}
+
+	// Exactly the given thinking time ("go movetime"): no iteration is cut short before it
+	public static TimeManager fixed(long moveTimeMillis, long overheadMillis) {
+		return new TimeManager(Long.MAX_VALUE, Math.max(1, moveTimeMillis - overheadMillis));
+	}
+
+	// True if an iteration finishing after elapsedMillis should be the last one
+	public boolean stopAfterIteration(long elapsedMillis) {
+		return elapsedMillis >= optimumMillis * ITERATION_FRACTION;
+	}
+
+}
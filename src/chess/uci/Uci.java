@@ -0,0 +1,406 @@
+package chess.uci;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import chess.Board;
+import chess.Fen;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.Position;
+import chess.book.Book;
+import chess.engine.ClassicEvaluator;
+import chess.engine.Engine;
+import chess.engine.Search;
+import chess.engine.SearchInfo;
+import chess.engine.SearchLimits;
+import chess.nnue.Network;
+import chess.nnue.NnueEvaluator;
+import chess.tablebase.Tablebases;
+
+// Universal Chess Interface front end: reads commands from in and answers on out, so the engine
+// can be driven by tournament GUIs and match runners. The reading thread only parses commands;
+// searches run on their own thread, which keeps "stop", "isready" and "ponderhit" answered
+// within a millisecond while the engine thinks. Started by "java chess.ChessGame uci".
+//
+// Supported: uci, isready, setoption (Hash, Threads, MultiPV, Ponder, Move Overhead, BookFile,
+// TablebasePath, EvalFile), ucinewgame, position, go (wtime btime winc binc movestogo movetime depth nodes
+// infinite ponder), stop, ponderhit, quit.
+public class Uci {
+
+	public static final String NAME = "ChessGame";
+	public static final String AUTHOR = "ChessGame contributors";
+
+	private final BufferedReader in;
+	private final PrintStream out;
+	private final Board board = new Board();
+	private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
+
+	private Engine engine;
+	private int hashMegabytes = Engine.DEFAULT_HASH_MB;
+	private int threads = 1;
+	private int multiPv = 1;
+	private long moveOverheadMillis = 30;
+
+	private final ExecutorService searchThread = Executors.newSingleThreadExecutor(r -> daemon(r, "uci-search"));
+	private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "uci-timer"));
+	private Future<?> search;                       // Current or last search
+	private ScheduledFuture<?> hardStop;            // Fires at the move's maximum time
+
+	// Shared with the search thread
+	private final Object lock = new Object();
+	private volatile boolean stopRequested;         // "stop" arrived; the search may not have started yet
+	private volatile TimeManager time;              // Budget of the running search, null while pondering or unlimited
+	private volatile long clockStartNanos;
+	private boolean holdBestMove;                   // Pondering or infinite: bestmove waits for stop/ponderhit (guarded by lock)
+	private TimeManager ponderTime;                 // Budget that ponderhit switches on
+
+	public Uci(InputStream in, PrintStream out) {
+		this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+		this.out = out;
+	}
+
+	// Processes commands until "quit" or the end of the input
+	public void run() throws IOException {
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (!handle(line.trim()))
+				break;
+		}
+		stop();
+		waitForSearch();
+		searchThread.shutdownNow();
+		timer.shutdownNow();
+		if (engine != null)
+			engine.close();
+	}
+
+	// Executes one command; returns false for "quit"
+	boolean handle(String line) throws IOException {
+		String[] tokens = line.split("\\s+");
+		switch (tokens[0]) {
+		case "uci":
+			send("id name " + NAME);
+			send("id author " + AUTHOR);
+			send("option name Hash type spin default " + Engine.DEFAULT_HASH_MB + " min 1 max 65536");
+			send("option name Threads type spin default 1 min 1 max 256");
+			send("option name MultiPV type spin default 1 min 1 max " + MoveGenerator.MAX_MOVES);
+			send("option name Ponder type check default false");
+			send("option name Move Overhead type spin default 30 min 0 max 5000");
+			send("option name BookFile type string default <empty>");
+			send("option name TablebasePath type string default <empty>");
+			send("option name EvalFile type string default <empty>");
+			send("uciok");
+			break;
+		case "isready":
+			engine();
+			send("readyok");
+			break;
+		case "setoption":
+			waitForSearch();
+			setOption(line);
+			break;
+		case "ucinewgame":
+			waitForSearch();
+			engine().newGame();
+			break;
+		case "position":
+			waitForSearch();
+			position(tokens);
+			break;
+		case "go":
+			waitForSearch();
+			go(tokens);
+			break;
+		case "stop":
+			stop();
+			break;
+		case "ponderhit":
+			ponderHit();
+			break;
+		case "quit":
+			return false;
+		case "":
+		case "debug":
+		case "register":
+			break;
+		default:
+			send("info string unknown command " + tokens[0]);
+		}
+		return true;
+	}
+
+	// "setoption name <name> [value <value>]"; the name may contain spaces
+	private void setOption(String line) throws IOException {
+		int name = line.indexOf(" name "), value = line.indexOf(" value ");
+		if (name < 0)
+			return;
+		String option = (value < 0 ? line.substring(name + 6) : line.substring(name + 6, value)).trim();
+		String argument = value < 0 ? "" : line.substring(value + 7).trim();
+		try {
+			switch (option.toLowerCase()) {
+			case "hash":
+				hashMegabytes = Integer.parseInt(argument);
+				if (engine != null)
+					engine.getTranspositionTable().resize(hashMegabytes);
+				break;
+			case "threads":
+				threads = Integer.parseInt(argument);
+				if (engine != null)
+					engine.setThreads(threads);
+				break;
+			case "multipv":
+				multiPv = Integer.parseInt(argument);
+				break;
+			case "move overhead":
+				moveOverheadMillis = Long.parseLong(argument);
+				break;
+			case "bookfile":
+				if (engine().getBook() != null)
+					engine.getBook().close();
+				engine.setBook(argument.isEmpty() || argument.equals("<empty>") ? null : new Book(Paths.get(argument)));
+				break;
+			case "tablebasepath":
+				if (engine().getTablebases() != null)
+					engine.getTablebases().close();
+				engine.setTablebases(argument.isEmpty() || argument.equals("<empty>") ? null : new Tablebases(Paths.get(argument)));
+				break;
+			case "evalfile":
+				engine().setEvaluator(argument.isEmpty() || argument.equals("<empty>") ? new ClassicEvaluator()
+						: new NnueEvaluator(Network.load(Paths.get(argument))));
+				break;
+			case "ponder":
+				break;                              // Pondering is driven by "go ponder"; nothing to set up
+			default:
+				send("info string unknown option " + option);
+			}
+		} catch (NumberFormatException | IOException e) {
+			send("info string cannot set " + option + ": " + e.getMessage());
+		}
+	}
+
+	// "position [startpos | fen <fen>] [moves <move>...]"
+	private void position(String[] tokens) {
+		int i = 1;
+		if (i < tokens.length && tokens[i].equals("fen")) {
+			StringBuilder fen = new StringBuilder();
+			for (i++; i < tokens.length && !tokens[i].equals("moves"); i++)
+				fen.append(tokens[i]).append(' ');
+			board.loadFen(fen);
+		} else {
+			board.loadFen(Fen.START);
+			i++;
+		}
+		if (i < tokens.length && tokens[i].equals("moves")) {
+			for (i++; i < tokens.length; i++) {
+				int move = Move.fromUci(board.getPosition(), tokens[i], moveBuffer);
+				if (move == Move.NONE) {
+					send("info string illegal move " + tokens[i]);
+					break;
+				}
+				board.makeMove(move);
+			}
+		}
+	}
+
+	// Starts a search on the search thread and returns at once
+	private void go(String[] tokens) {
+		long wtime = parameter(tokens, "wtime", -1), btime = parameter(tokens, "btime", -1);
+		long winc = parameter(tokens, "winc", 0), binc = parameter(tokens, "binc", 0);
+		long moveTime = parameter(tokens, "movetime", 0), nodes = parameter(tokens, "nodes", Long.MAX_VALUE);
+		int movesToGo = (int) parameter(tokens, "movestogo", 0), depth = (int) parameter(tokens, "depth", Search.MAX_PLY);
+		boolean infinite = hasToken(tokens, "infinite"), ponder = hasToken(tokens, "ponder");
+
+		boolean white = board.isWhiteTurn();
+		long clock = white ? wtime : btime;
+		TimeManager budget = moveTime > 0 ? TimeManager.fixed(moveTime, moveOverheadMillis)
+				: clock >= 0 ? TimeManager.forClock(clock, white ? winc : binc, movesToGo, moveOverheadMillis) : null;
+		SearchLimits limits = new SearchLimits().depth(depth).nodes(nodes).multiPv(multiPv);
+
+		// The board may change under the search once the next "position" arrives, so search a copy
+		Position root = new Position();
+		root.copyFrom(board.getPosition());
+		Engine engine = engine();
+		cancelHardStop();
+		stopRequested = false;
+		synchronized (lock) {
+			holdBestMove = infinite || ponder;
+			ponderTime = ponder ? budget : null;
+		}
+		time = null;
+		if (!ponder && !infinite)
+			startClock(budget);
+		search = searchThread.submit(() -> think(engine, root, limits));
+	}
+
+	// Value following name in a "go" command, or fallback if it is absent or not a number
+	private static long parameter(String[] tokens, String name, long fallback) {
+		for (int i = 1; i + 1 < tokens.length; i++) {
+			if (tokens[i].equals(name)) {
+				try {
+					return Long.parseLong(tokens[i + 1]);
+				} catch (NumberFormatException e) {
+					return fallback;
+				}
+			}
+		}
+		return fallback;
+	}
+
+	private static boolean hasToken(String[] tokens, String name) {
+		for (int i = 1; i < tokens.length; i++) {
+			if (tokens[i].equals(name))
+				return true;
+		}
+		return false;
+	}
+
+	// Runs on the search thread: searches, then reports the best move once the GUI may have it. The
+	// bestmove line is built without string concatenation, whose first use bootstraps for tens of
+	// milliseconds and would land on the first "stop".
+	private void think(Engine engine, Position root, SearchLimits limits) {
+		SearchInfo result = engine.search(root, limits, info -> {
+			// A stop that arrived before the search reset its stop flag is applied here
+			TimeManager budget = time;
+			if (stopRequested || budget != null && budget.stopAfterIteration(elapsedMillis()))
+				engine.stop();
+			sendInfo(engine, info);
+		});
+		synchronized (lock) {
+			while (holdBestMove && !stopRequested) {
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+		cancelHardStop();
+		int best = result.getBestMove(), ponder = result.getPonderMove();
+		StringBuilder sb = new StringBuilder("bestmove ").append(best == Move.NONE ? "0000" : Move.toUci(best));
+		if (ponder != Move.NONE)
+			sb.append(" ponder ").append(Move.toUci(ponder));
+		send(sb.toString());
+	}
+
+	// The opponent played the expected move: the ponder search becomes a timed search of our own.
+	// The clock starts before the search thread is woken, so a search that already finished
+	// cancels the hard stop on its way out instead of leaving it to hit the next search.
+	private void ponderHit() {
+		synchronized (lock) {
+			TimeManager budget = ponderTime;
+			ponderTime = null;
+			startClock(budget);
+			holdBestMove = false;
+			lock.notifyAll();
+		}
+	}
+
+	// Answers "stop": sets flags only, so the search thread replies with bestmove right away
+	private void stop() {
+		stopRequested = true;
+		synchronized (lock) {
+			holdBestMove = false;
+			lock.notifyAll();
+		}
+		if (engine != null)
+			engine.stop();
+	}
+
+	// Starts the move's clock now; a null budget means no time limit
+	private void startClock(TimeManager budget) {
+		clockStartNanos = System.nanoTime();
+		time = budget;
+		cancelHardStop();
+		if (budget != null) {
+			Engine engine = this.engine;
+			ScheduledFuture<?> stop = timer.schedule(() -> {
+				stopRequested = true;
+				engine.stop();
+			}, budget.maximumMillis, TimeUnit.MILLISECONDS);
+			synchronized (this) {
+				hardStop = stop;
+			}
+		}
+	}
+
+	private synchronized void cancelHardStop() {
+		if (hardStop != null) {
+			hardStop.cancel(false);
+			hardStop = null;
+		}
+	}
+
+	private long elapsedMillis() {
+		return (System.nanoTime() - clockStartNanos) / 1_000_000;
+	}
+
+	// Ends the previous search and waits until it has sent its bestmove. GUIs send "stop" before
+	// anything that changes the engine's state; stopping here as well means a GUI that does not
+	// cannot leave an infinite search running forever.
+	private void waitForSearch() {
+		if (search == null)
+			return;
+		if (!search.isDone())
+			stop();
+		try {
+			search.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			send("info string search failed: " + e.getCause());
+		}
+		search = null;
+	}
+
+	private Engine engine() {
+		if (engine == null)
+			engine = new Engine(hashMegabytes, new ClassicEvaluator(), threads);
+		return engine;
+	}
+
+	private void sendInfo(Engine engine, SearchInfo info) {
+		StringBuilder sb = new StringBuilder(256);
+		sb.append("info depth ").append(info.getDepth());
+		if (multiPv > 1)
+			sb.append(" multipv ").append(info.getMultiPv());
+		sb.append(info.isMate() ? " score mate " + info.getMateIn() : " score cp " + info.getScore());
+		sb.append(" nodes ").append(info.getNodes()).append(" nps ").append(info.getNodesPerSecond());
+		sb.append(" hashfull ").append(engine.getTranspositionTable().hashfull());
+		sb.append(" time ").append(info.getTimeMillis());
+		if (info.getPv().length > 0)
+			sb.append(" pv ").append(info.getPvString());
+		send(sb.toString());
+	}
+
+	private void send(String line) {
+		synchronized (out) {
+			out.println(line);
+			out.flush();
+		}
+	}
+
+	private static Thread daemon(Runnable r, String name) {
+		Thread thread = new Thread(r, name);
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	public static void main(String[] args) throws IOException {
+		new Uci(System.in, System.out).run();
+	}
+
+}